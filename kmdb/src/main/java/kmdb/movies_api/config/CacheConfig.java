@@ -0,0 +1,43 @@
+package kmdb.movies_api.config;
+
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.JCacheMetrics;
+import org.ehcache.jsr107.EhcacheCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ClassPathResource;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.io.IOException;
+
+// Second-level cache regions are declared in ehcache.xml. Hibernate keeps them consistent for writes
+// made through the EntityManager (including JPQL bulk statements); anything written with plain JDBC
+// has to go through JdbcCacheInvalidator or evict the affected regions itself.
+@Configuration
+public class CacheConfig {
+
+    // JCache manager shared with Hibernate, so the same regions can be bound to metrics
+    @Bean(destroyMethod = "close")
+    public CacheManager jCacheManager() throws IOException {
+        return Caching.getCachingProvider(EhcacheCachingProvider.class.getName())
+                .getCacheManager(new ClassPathResource("ehcache.xml").getURI(), getClass().getClassLoader());
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheManager(CacheManager jCacheManager) {
+        return properties -> properties.put(ConfigSettings.CACHE_MANAGER, jCacheManager);
+    }
+
+    // cache.gets{result=hit|miss}, cache.puts, cache.removals and cache.evictions per region
+    @Bean
+    public MeterBinder secondLevelCacheMetrics(CacheManager jCacheManager) {
+        return registry -> {
+            for (String region : jCacheManager.getCacheNames()) {
+                JCacheMetrics.monitor(registry, jCacheManager.getCache(region));
+            }
+        };
+    }
+}
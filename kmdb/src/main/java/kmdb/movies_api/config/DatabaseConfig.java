@@ -1,31 +1,173 @@
 package kmdb.movies_api.config;
 
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import kmdb.movies_api.entities.BlockSequenceGenerator;
+import kmdb.movies_api.entities.IdBlocks;
+import kmdb.movies_api.metrics.ConnectionWaitTrackerFactory;
+import kmdb.movies_api.metrics.SlowQueryDataSource;
+import kmdb.movies_api.metrics.SlowQueryRecorder;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.env.Environment;
 import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.sqlite.SQLiteConfig;
+import org.sqlite.SQLiteDataSource;
 
 import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
 import java.util.Objects;
 
+// Closes the writer and reader pools of the read-write split on shutdown: they sit behind the lazy
+// proxy, so they are not beans Spring would close itself. The data source bean is made by this
+// configuration, so everything using it (MovieRatings' last flush included) is shut down first.
 @Configuration
-public class DatabaseConfig {
+public class DatabaseConfig implements DisposableBean {
 
     private final Environment env;
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+    private final SlowQueryRecorder slowQueryRecorder;
+    private final List<HikariDataSource> splitPools = new ArrayList<>();
 
-    public DatabaseConfig(Environment env) {
+    public DatabaseConfig(Environment env, ObjectProvider<MeterRegistry> meterRegistry,
+                          SlowQueryRecorder slowQueryRecorder) {
         this.env = env;
+        this.meterRegistry = meterRegistry;
+        this.slowQueryRecorder = slowQueryRecorder;
+    }
+
+    // ids claimed per update of actor_sequence and genre_sequence, and the handle the CSV import uses
+    // to drop the claimed blocks
+    @Bean
+    public IdBlocks idBlocks() {
+        return new IdBlocks();
+    }
+
+    // A block is handed out from memory while the transaction that claimed it is still open, which is
+    // only safe when no other transaction can write meanwhile (see BlockSequenceGenerator). Without the
+    // single writer connection, ids have to be claimed one at a time.
+    @Bean
+    public HibernatePropertiesCustomizer idBlockSize(IdBlocks idBlocks) {
+        int blockSize = env.getProperty(BlockSequenceGenerator.BLOCK_SIZE, Integer.class, 50);
+        if (blockSize > 1 && !hasSingleWriter(env)) {
+            throw new IllegalStateException(BlockSequenceGenerator.BLOCK_SIZE + "=" + blockSize +
+                    " needs the single writer connection (kmdb.datasource.pooled=true and" +
+                    " kmdb.datasource.read-write-split=true), set it to 1 otherwise");
+        }
+        return properties -> {
+            properties.put(BlockSequenceGenerator.BLOCK_SIZE, blockSize);
+            properties.put(IdBlocks.SETTING, idBlocks);
+        };
+    }
+
+    // Connections the data source hands out at once: the reader pool plus the writer with the split,
+    // the one pool without it. Unpooled connections have no bound and count as one pool's worth.
+    public int maximumConnections() {
+        int poolSize = env.getProperty("kmdb.datasource.pool.maximum-size", Integer.class, 8);
+        return hasSingleWriter(env) ? poolSize + 1 : poolSize;
+    }
+
+    // True when every write goes through the one writer connection, so a transaction that read the
+    // current ids or counters cannot be overtaken by another writer before it commits
+    public static boolean hasSingleWriter(Environment env) {
+        return env.getProperty("kmdb.datasource.pooled", Boolean.class, true)
+                && env.getProperty("kmdb.datasource.read-write-split", Boolean.class, true);
     }
 
     // configuring database
     @Bean
     public DataSource dataSource() {
+        if (!env.getProperty("kmdb.datasource.pooled", Boolean.class, true)) {
+            return driverManagerDataSource();
+        }
+        if (!env.getProperty("kmdb.datasource.read-write-split", Boolean.class, true)) {
+            return pooledDataSource("kmdb-pool", sqliteDataSource(false));
+        }
+
+        // SQLite only allows one writer at a time, so writes queue on a single connection instead of
+        // failing with SQLITE_BUSY, while @Transactional(readOnly = true) work runs on the reader pool.
+        // The lazy proxy only picks the target once the transaction's read-only flag is known.
+        HikariDataSource writer = pooledDataSource("kmdb-writer", sqliteDataSource(false));
+        writer.setMaximumPoolSize(1);
+        writer.setMinimumIdle(1);
+        writer.setConnectionTimeout(env.getProperty("kmdb.datasource.writer.connection-timeout-ms", Long.class, 30000L));
+
+        HikariDataSource readers = pooledDataSource("kmdb-readers", sqliteDataSource(true));
+        readers.setReadOnly(true);
+
+        splitPools.add(writer);
+        splitPools.add(readers);
+
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(writer);
+        dataSource.setReadOnlyDataSource(readers);
+        return dataSource;
+    }
+
+    // the writer last, so its close checkpoints the WAL once no reader holds a snapshot
+    @Override
+    public void destroy() {
+        for (int i = splitPools.size() - 1; i >= 0; i--) {
+            splitPools.get(i).close();
+        }
+    }
+
+    // unpooled data source, opens a new connection for every request
+    private DataSource driverManagerDataSource() {
         final DriverManagerDataSource dataSource = new DriverManagerDataSource();
         dataSource.setDriverClassName(Objects.requireNonNull(env.getProperty("spring.datasource.driver-class-name")));
         dataSource.setUrl(env.getProperty("spring.datasource.url"));
         dataSource.setUsername(env.getProperty("spring.datasource.username"));
         dataSource.setPassword(env.getProperty("spring.datasource.password"));
+        return recorded(dataSource);
+    }
+
+    // SQLite connections with the pragmas applied every time a connection is opened
+    private SQLiteDataSource sqliteDataSource(boolean readOnly) {
+        SQLiteConfig config = new SQLiteConfig();
+        // lets Connection.setReadOnly toggle PRAGMA query_only on an open connection
+        config.setExplicitReadOnly(readOnly);
+        config.setJournalMode(SQLiteConfig.JournalMode.valueOf(
+                env.getProperty("kmdb.datasource.sqlite.journal-mode", "WAL").toUpperCase(Locale.ROOT)));
+        config.setSynchronous(SQLiteConfig.SynchronousMode.valueOf(
+                env.getProperty("kmdb.datasource.sqlite.synchronous", "NORMAL").toUpperCase(Locale.ROOT)));
+        // negative cache_size is interpreted by SQLite as KiB instead of pages
+        config.setCacheSize(-env.getProperty("kmdb.datasource.sqlite.cache-size-kib", Integer.class, 16384));
+        config.setPragma(SQLiteConfig.Pragma.MMAP_SIZE,
+                env.getProperty("kmdb.datasource.sqlite.mmap-size", "268435456"));
+        config.setTempStore(SQLiteConfig.TempStore.MEMORY);
+        config.setBusyTimeout(env.getProperty("kmdb.datasource.sqlite.busy-timeout-ms", Integer.class, 5000));
+
+        SQLiteDataSource dataSource = new SQLiteDataSource(config);
+        dataSource.setUrl(env.getProperty("spring.datasource.url"));
         return dataSource;
     }
 
-}
\ No newline at end of file
+    // bounded Hikari pool on top of the SQLite data source, metrics are published under the pool name
+    // and connection waits are also added to the request's kmdb.request.connection.wait
+    private HikariDataSource pooledDataSource(String poolName, DataSource target) {
+        HikariDataSource pool = new HikariDataSource();
+        pool.setPoolName(poolName);
+        pool.setDataSource(recorded(target));
+        pool.setMaximumPoolSize(env.getProperty("kmdb.datasource.pool.maximum-size", Integer.class, 8));
+        pool.setMinimumIdle(env.getProperty("kmdb.datasource.pool.minimum-idle", Integer.class, 2));
+        pool.setConnectionTimeout(env.getProperty("kmdb.datasource.pool.connection-timeout-ms", Long.class, 10000L));
+        pool.setIdleTimeout(env.getProperty("kmdb.datasource.pool.idle-timeout-ms", Long.class, 600000L));
+        pool.setMaxLifetime(env.getProperty("kmdb.datasource.pool.max-lifetime-ms", Long.class, 1800000L));
+        pool.setRegisterMbeans(env.getProperty("kmdb.datasource.pool.register-mbeans", Boolean.class, false));
+        meterRegistry.ifAvailable(registry -> pool.setMetricsTrackerFactory(
+                new ConnectionWaitTrackerFactory(new MicrometerMetricsTrackerFactory(registry))));
+        return pool;
+    }
+
+    // statements slower than kmdb.slow-query.threshold-ms are recorded with their parameters and plan
+    private DataSource recorded(DataSource target) {
+        return slowQueryRecorder.isEnabled() ? new SlowQueryDataSource(target, slowQueryRecorder) : target;
+    }
+}
@@ -0,0 +1,78 @@
+package kmdb.movies_api.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import kmdb.movies_api.metrics.RequestCountingStatistics;
+import kmdb.movies_api.metrics.RequestIdFilter;
+import kmdb.movies_api.metrics.RequestMetricsFilter;
+import kmdb.movies_api.metrics.SqlStatementLog;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.stat.spi.StatisticsFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+
+import java.util.Locale;
+
+// Request and SQL instrumentation, scraped from /actuator/prometheus. Latency per endpoint
+// (http.server.requests) and per repository method (spring.data.repository.invocations) are Spring
+// Boot's own timers, with histograms switched on in application.properties; this adds the database
+// work per request and replaces show-sql with a logging mode.
+@Configuration
+public class MetricsConfig {
+
+    private enum SqlLog { OFF, ALL, SAMPLED, SLOW }
+
+    private final Environment env;
+
+    public MetricsConfig(Environment env) {
+        this.env = env;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer sqlInstrumentation() {
+        return properties -> {
+            if (requestSqlMetrics()) {
+                // statement, row and entity counts come from Hibernate's statistics callbacks
+                properties.put(AvailableSettings.GENERATE_STATISTICS, true);
+                properties.put(AvailableSettings.STATS_BUILDER, (StatisticsFactory) RequestCountingStatistics::new);
+                // without this every session close logs its statistics at INFO
+                properties.put(AvailableSettings.LOG_SESSION_METRICS, false);
+            }
+            switch (SqlLog.valueOf(env.getProperty("kmdb.sql.log", "slow").toUpperCase(Locale.ROOT))) {
+                case ALL -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, new SqlStatementLog(1));
+                case SAMPLED -> properties.put(AvailableSettings.STATEMENT_INSPECTOR,
+                        new SqlStatementLog(env.getProperty("kmdb.sql.log.sample-every", Integer.class, 100)));
+                // logged by Hibernate under org.hibernate.SQL_SLOW, with the execution time
+                case SLOW -> properties.put(AvailableSettings.LOG_SLOW_QUERY,
+                        env.getProperty("kmdb.sql.log.slow-ms", Long.class, 200L));
+                case OFF -> { }
+            }
+        };
+    }
+
+    // first, so everything the request does, logs or records sees its id
+    @Bean
+    public FilterRegistrationBean<RequestIdFilter> requestIdFilter() {
+        FilterRegistrationBean<RequestIdFilter> registration = new FilterRegistrationBean<>(new RequestIdFilter());
+        registration.addUrlPatterns("/api/*");
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "kmdb.metrics.request-sql.enabled", matchIfMissing = true)
+    public FilterRegistrationBean<RequestMetricsFilter> requestMetricsFilter(MeterRegistry registry) {
+        FilterRegistrationBean<RequestMetricsFilter> registration =
+                new FilterRegistrationBean<>(new RequestMetricsFilter(registry));
+        registration.addUrlPatterns("/api/*");
+        return registration;
+    }
+
+    private boolean requestSqlMetrics() {
+        return env.getProperty("kmdb.metrics.request-sql.enabled", Boolean.class, true);
+    }
+}
@@ -0,0 +1,53 @@
+package kmdb.movies_api.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+// Lets at most maxConcurrent requests run at once; the others wait in arrival order for up to
+// maxWaitMillis and then get a 503 with Retry-After, instead of timing out inside the connection pool
+public class RequestConcurrencyLimiter extends OncePerRequestFilter {
+
+    private final Semaphore permits;
+    private final long maxWaitMillis;
+
+    public RequestConcurrencyLimiter(int maxConcurrent, long maxWaitMillis) {
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), "Server is busy, try again later");
+            return;
+        }
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            permits.release();
+        }
+    }
+
+    // requests waiting for a permit, for the metrics endpoint
+    public int queueLength() {
+        return permits.getQueueLength();
+    }
+}
@@ -0,0 +1,51 @@
+package kmdb.movies_api.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+// Virtual-thread mode, switched on with spring.threads.virtual.enabled=true: Tomcat and Spring's task
+// executor and scheduler then run every task on a new virtual thread instead of a bounded pool. That
+// removes the 200-thread cap that used to limit concurrency, so the limit is put back where it
+// matters: SQLite calls are JNI calls that pin their carrier thread and there are only a few pooled
+// connections, so /api requests are admitted in step with the connection pools (the readers plus the
+// writer with the read-write split, see DatabaseConfig.maximumConnections).
+@Configuration
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadConfig {
+
+    private final Environment env;
+
+    public VirtualThreadConfig(Environment env) {
+        this.env = env;
+    }
+
+    @Bean
+    public RequestConcurrencyLimiter requestConcurrencyLimiter(DatabaseConfig databaseConfig) {
+        return new RequestConcurrencyLimiter(
+                env.getProperty("kmdb.web.virtual-threads.max-concurrent-requests", Integer.class,
+                        databaseConfig.maximumConnections()),
+                env.getProperty("kmdb.web.virtual-threads.max-wait-ms", Long.class, 30000L));
+    }
+
+    @Bean
+    public FilterRegistrationBean<RequestConcurrencyLimiter> requestConcurrencyLimiterRegistration(
+            RequestConcurrencyLimiter limiter) {
+        FilterRegistrationBean<RequestConcurrencyLimiter> registration = new FilterRegistrationBean<>(limiter);
+        // actuator stays reachable while the API is saturated
+        registration.addUrlPatterns("/api/*");
+        return registration;
+    }
+
+    @Bean
+    public MeterBinder requestConcurrencyLimiterMetrics(RequestConcurrencyLimiter limiter) {
+        return registry -> Gauge.builder("kmdb.requests.waiting", limiter, RequestConcurrencyLimiter::queueLength)
+                .description("API requests waiting for a concurrency permit")
+                .register(registry);
+    }
+}
@@ -4,13 +4,20 @@ import jakarta.validation.Valid;
 import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.Positive;
+import kmdb.movies_api.dto.ActorPathDTO;
+import kmdb.movies_api.dto.CoStarsDTO;
+import kmdb.movies_api.dto.ReferenceDTO;
 import kmdb.movies_api.entities.Actor;
+import kmdb.movies_api.pagination.CursorPage;
+import kmdb.movies_api.repositories.projections.VersionSummaryRow;
 import kmdb.movies_api.services.ActorService;
 import lombok.AllArgsConstructor;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 
 import java.util.List;
 import java.util.Optional;
@@ -22,12 +29,16 @@ import java.util.Optional;
 public class ActorController {
 
     private final ActorService actorService;
+    private final ConditionalGet conditionalGet;
 
     // Get all actors
     @GetMapping
-    @ResponseStatus(HttpStatus.OK)
-    public Optional<List<Actor>> getAllActors() {
-        return actorService.getAllActors();
+    public ResponseEntity<List<Actor>> getAllActors(ServletWebRequest request) {
+        VersionSummaryRow version = actorService.getActorListVersion();
+        if (conditionalGet.notModified(request, version)) {
+            return null;
+        }
+        return conditionalGet.ok(version, actorService.getAllActors().orElseThrow());
     }
 
     // Get number of actors
@@ -50,19 +61,91 @@ public class ActorController {
         return actorService.getActorsByPage(page, size);
     }
 
+    // Get actors by page without the total count
+    @GetMapping(path = "/slice")
+    @ResponseStatus(HttpStatus.OK)
+    public Slice<Actor> getActorSlice(
+            @Min(value = 0, message = "Page index must not be less than zero")
+            @RequestParam(value = "page", defaultValue = "0", required = false) int page,
+
+            @Min(value = 1, message = "Page size must not be less than one")
+            @Max(value = 100, message = "Page size limit is 100")
+            @RequestParam(value = "size", defaultValue = "10", required = false) int size) {
+        return actorService.getActorSlice(page, size);
+    }
+
+    // Get actors with keyset pagination, pass the returned "next" token as cursor for the following page
+    @GetMapping(path = "/scroll")
+    @ResponseStatus(HttpStatus.OK)
+    public CursorPage<Actor> scrollActors(
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "sort", defaultValue = "id", required = false) String sort,
+
+            @Min(value = 1, message = "Page size must not be less than one")
+            @Max(value = 100, message = "Page size limit is 100")
+            @RequestParam(value = "size", defaultValue = "10", required = false) int size) {
+        return actorService.scrollActors(cursor, sort, size);
+    }
+
     // Get actors by ID
     @GetMapping(path = "{actorId}")
-    @ResponseStatus(HttpStatus.OK)
-    public Optional<Actor> getActorsById(
-            @PathVariable @Positive(message = "Actor ID must be greater than 0") Long actorId) {
-        return actorService.getActorById(actorId);
+    public ResponseEntity<Actor> getActorsById(
+            @PathVariable @Positive(message = "Actor ID must be greater than 0") Long actorId,
+            ServletWebRequest request) {
+        if (conditionalGet.notModified(request, actorService.getActorVersion(actorId))) {
+            return null;
+        }
+        Actor actor = actorService.getActorById(actorId).orElseThrow();
+        return conditionalGet.ok(actor.getVersion(), actor.getUpdatedAt(), actor);
     }
 
     // Retrieve actors by name or all if no parameter
     @GetMapping(path = "/search")
     @ResponseStatus(HttpStatus.OK)
-    public Optional<List<Actor>> findActorsByName(@RequestParam(required = false) String name) {
-        return actorService.findActorsByName(name);
+    public Optional<List<Actor>> findActorsByName(
+            @RequestParam(required = false) String name,
+
+            @Min(value = 1, message = "Limit must not be less than one")
+            @Max(value = 100, message = "Limit is at most 100")
+            @RequestParam(value = "limit", defaultValue = "50", required = false) int limit) {
+        return actorService.findActorsByName(name, limit);
+    }
+
+    // Name suggestions while typing, served from memory
+    @GetMapping(path = "/suggest")
+    @ResponseStatus(HttpStatus.OK)
+    public List<ReferenceDTO> suggestNames(
+            @RequestParam(value = "q") String q,
+
+            @Min(value = 1, message = "Limit must not be less than one")
+            @Max(value = 100, message = "Limit is at most 100")
+            @RequestParam(value = "limit", defaultValue = "10", required = false) int limit) {
+        return actorService.suggestNames(q, limit);
+    }
+
+    // Actors who played with this actor, most shared movies first
+    @GetMapping(path = "{actorId}/costars")
+    @ResponseStatus(HttpStatus.OK)
+    public CoStarsDTO getCoStars(
+            @PathVariable("actorId") @Positive(message = "Actor ID must be greater than 0") Long actorId,
+
+            @Min(value = 1, message = "Limit must not be less than one")
+            @Max(value = 100, message = "Limit is at most 100")
+            @RequestParam(value = "limit", defaultValue = "20", required = false) int limit) {
+        return actorService.getCoStars(actorId, limit);
+    }
+
+    // Degrees of separation: a shortest chain of shared movies from this actor to another
+    @GetMapping(path = "{actorId}/path/{otherActorId}")
+    @ResponseStatus(HttpStatus.OK)
+    public ActorPathDTO getPath(
+            @PathVariable("actorId") @Positive(message = "Actor ID must be greater than 0") Long actorId,
+            @PathVariable("otherActorId") @Positive(message = "Actor ID must be greater than 0") Long otherActorId,
+
+            @Min(value = 1, message = "Max degrees must not be less than one")
+            @Max(value = 10, message = "Max degrees is at most 10")
+            @RequestParam(value = "maxDegrees", defaultValue = "6", required = false) int maxDegrees) {
+        return actorService.getPath(actorId, otherActorId, maxDegrees);
     }
 
     // Add actor
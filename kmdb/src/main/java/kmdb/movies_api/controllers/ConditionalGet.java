@@ -0,0 +1,130 @@
+package kmdb.movies_api.controllers;
+
+import kmdb.movies_api.repositories.projections.MovieVersionRow;
+import kmdb.movies_api.repositories.projections.VersionRow;
+import kmdb.movies_api.repositories.projections.VersionSummaryRow;
+import org.springframework.core.env.Environment;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+// ETag, Last-Modified and Cache-Control for the cacheable GETs. The validators come from the
+// version columns (one row read), so a revalidation that still matches is answered with 304
+// before the entity and its associations are loaded. A single entity's ETag is its version (a
+// movie's adds its star rating), a list's ETag is its row count, id and version sums and latest
+// updated_at, which changes on any insert, update or delete; a list built from several tables joins
+// theirs. A movie is also sent gzipped, with a strong ETag of its own ("<version>.<stars>-gzip"), as
+// the bytes differ. Clients and proxies may reuse a response for kmdb.http.cache.max-age-seconds and
+// revalidate after that.
+@Component
+public class ConditionalGet {
+
+    private final CacheControl cacheControl;
+
+    public ConditionalGet(Environment env) {
+        long maxAge = env.getProperty("kmdb.http.cache.max-age-seconds", Long.class, 0L);
+        this.cacheControl = CacheControl.maxAge(maxAge, TimeUnit.SECONDS).cachePublic().mustRevalidate();
+    }
+
+    // True when the 304 has been written and the handler should return null
+    public boolean notModified(ServletWebRequest request, Optional<VersionRow> version) {
+        // a missing entity falls through to the handler, which answers 404
+        return version.isPresent()
+                && notModified(request, etag(version.get()), version.get().updatedAt());
+    }
+
+    // Same for a movie sent unencoded or in the given content coding, where encoded tells which
+    // one this response will use: a revalidation may carry the ETag of either form
+    public boolean notModified(ServletWebRequest request, Optional<MovieVersionRow> version, String coding,
+                               boolean encoded) {
+        if (version.isEmpty()) {
+            return false;
+        }
+        String plainEtag = version.get().etag(null);
+        String codedEtag = version.get().etag(coding);
+        String[] ifNoneMatch = Optional.ofNullable(request.getHeaderValues(HttpHeaders.IF_NONE_MATCH))
+                .orElse(new String[0]);
+        String etag = encoded ? codedEtag : plainEtag;
+        if (Arrays.stream(ifNoneMatch).anyMatch(value -> value.contains(plainEtag))) {
+            etag = plainEtag;
+        } else if (Arrays.stream(ifNoneMatch).anyMatch(value -> value.contains(codedEtag))) {
+            etag = codedEtag;
+        }
+        boolean notModified = notModified(request, etag, version.get().updatedAt());
+        if (notModified && request.getResponse() != null) {
+            request.getResponse().setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        }
+        return notModified;
+    }
+
+    public boolean notModified(ServletWebRequest request, VersionSummaryRow version) {
+        return notModified(request, List.of(version));
+    }
+
+    public boolean notModified(ServletWebRequest request, List<VersionSummaryRow> versions) {
+        return notModified(request, etag(versions), -1);
+    }
+
+    public <T> ResponseEntity<T> ok(long version, long updatedAt, T body) {
+        return ok(version, updatedAt).body(body);
+    }
+
+    public ResponseEntity.BodyBuilder ok(long version, long updatedAt) {
+        return ResponseEntity.ok()
+                .eTag(etag(new VersionRow(version, updatedAt)))
+                .lastModified(updatedAt)
+                .cacheControl(cacheControl);
+    }
+
+    // For a movie body in the given content coding (null when it is not encoded), see notModified
+    public ResponseEntity.BodyBuilder ok(MovieVersionRow version, String coding) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .eTag(version.etag(coding))
+                .lastModified(version.updatedAt())
+                .cacheControl(cacheControl);
+        if (coding != null) {
+            response.header(HttpHeaders.CONTENT_ENCODING, coding);
+        }
+        return response;
+    }
+
+    public <T> ResponseEntity<T> ok(VersionSummaryRow version, T body) {
+        return ok(List.of(version), body);
+    }
+
+    public <T> ResponseEntity<T> ok(List<VersionSummaryRow> versions, T body) {
+        return ResponseEntity.ok()
+                .eTag(etag(versions))
+                .cacheControl(cacheControl)
+                .body(body);
+    }
+
+    private boolean notModified(ServletWebRequest request, String etag, long lastModified) {
+        if (!request.checkNotModified(etag, lastModified)) {
+            return false;
+        }
+        if (request.getResponse() != null) {
+            request.getResponse().setHeader(HttpHeaders.CACHE_CONTROL, cacheControl.getHeaderValue());
+        }
+        return true;
+    }
+
+    private static String etag(VersionRow version) {
+        return "\"" + version.version() + "\"";
+    }
+
+    private static String etag(List<VersionSummaryRow> versions) {
+        return versions.stream()
+                .map(version -> version.count() + "-" + version.idSum() + "-" + version.versionSum() + "-"
+                        + version.lastUpdatedAt())
+                .collect(Collectors.joining(".", "\"", "\""));
+    }
+}
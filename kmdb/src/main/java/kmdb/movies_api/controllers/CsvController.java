@@ -0,0 +1,45 @@
+package kmdb.movies_api.controllers;
+
+import jakarta.servlet.http.HttpServletResponse;
+import kmdb.movies_api.csv.CsvExportService;
+import kmdb.movies_api.csv.CsvImportService;
+import kmdb.movies_api.csv.CsvTable;
+import kmdb.movies_api.dto.CsvImportResultDTO;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+// CSV export and import of movies, actors, genres, movie-actors and movie-genres,
+// e.g. GET /api/export/movies.csv and POST /api/import/movies.csv
+@RestController
+@RequestMapping("/api")
+public class CsvController {
+    private static final String TEXT_CSV = "text/csv";
+
+    private final CsvExportService csvExportService;
+    private final CsvImportService csvImportService;
+
+    public CsvController(CsvExportService csvExportService, CsvImportService csvImportService) {
+        this.csvExportService = csvExportService;
+        this.csvImportService = csvImportService;
+    }
+
+    // Streams the table straight into the response
+    @GetMapping("/export/{table}.csv")
+    public void exportCsv(@PathVariable String table, HttpServletResponse response) throws IOException {
+        CsvTable csvTable = CsvTable.fromFileName(table);
+        response.setContentType(TEXT_CSV + ";charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                ContentDisposition.attachment().filename(csvTable.fileName() + ".csv").build().toString());
+        csvExportService.export(csvTable, response.getOutputStream());
+    }
+
+    // Upserts the rows of a file in the export format
+    @PostMapping(path = "/import/{table}.csv", consumes = TEXT_CSV)
+    public CsvImportResultDTO importCsv(@PathVariable String table, InputStream body) throws IOException {
+        return csvImportService.importCsv(CsvTable.fromFileName(table), body);
+    }
+}
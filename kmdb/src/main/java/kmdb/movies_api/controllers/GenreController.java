@@ -3,11 +3,13 @@ package kmdb.movies_api.controllers;
 import jakarta.validation.Valid;
 import kmdb.movies_api.entities.Genre;
 import kmdb.movies_api.exceptions.ResourceNotFoundException;
+import kmdb.movies_api.repositories.projections.VersionSummaryRow;
 import kmdb.movies_api.services.GenreService;
 import lombok.AllArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 
 import java.util.List;
 
@@ -16,6 +18,7 @@ import java.util.List;
 @RequestMapping("/api/genres")
 public class GenreController {
     private final GenreService genreService;
+    private final ConditionalGet conditionalGet;
 
     @GetMapping("/search")
     public ResponseEntity<List<Genre>> searchGenresByName(@RequestParam String name) {
@@ -27,14 +30,21 @@ public class GenreController {
 }
 
     @GetMapping
-    public List<Genre> getAllGenres() {
-        return genreService.getAllGenres();
+    public ResponseEntity<List<Genre>> getAllGenres(ServletWebRequest request) {
+        VersionSummaryRow version = genreService.getGenreListVersion();
+        if (conditionalGet.notModified(request, version)) {
+            return null;
+        }
+        return conditionalGet.ok(version, genreService.getAllGenres());
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Genre> getGenreById(@PathVariable Long id) {
+    public ResponseEntity<Genre> getGenreById(@PathVariable Long id, ServletWebRequest request) {
+        if (conditionalGet.notModified(request, genreService.getGenreVersion(id))) {
+            return null;
+        }
         Genre genre = genreService.getGenreById(id);
-        return ResponseEntity.ok(genre);
+        return conditionalGet.ok(genre.getVersion(), genre.getUpdatedAt(), genre);
     }
 
     @PostMapping
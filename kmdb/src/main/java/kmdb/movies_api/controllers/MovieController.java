@@ -1,28 +1,62 @@
 package kmdb.movies_api.controllers;
 
+import kmdb.movies_api.dto.BulkIngestResultDTO;
 import kmdb.movies_api.dto.MovieDTO;
+import kmdb.movies_api.dto.MovieFacetsDTO;
+import kmdb.movies_api.dto.MovieLinksDTO;
+import kmdb.movies_api.dto.MovieLinksDiffDTO;
+import kmdb.movies_api.dto.MovieRatingDTO;
+import kmdb.movies_api.dto.MovieSummaryDTO;
+import kmdb.movies_api.dto.RankedMovieDTO;
+import kmdb.movies_api.dto.ReferenceDTO;
 import kmdb.movies_api.entities.Movie;
 import kmdb.movies_api.entities.Actor;
+import kmdb.movies_api.pagination.CursorPage;
+import kmdb.movies_api.repositories.projections.MovieVersionRow;
+import kmdb.movies_api.repositories.projections.VersionSummaryRow;
+import kmdb.movies_api.services.MovieDocumentCache;
+import kmdb.movies_api.services.MovieDocumentCache.MovieDocument;
+import kmdb.movies_api.services.MovieIngestService;
 import kmdb.movies_api.services.MovieService;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Size;
 
 import org.springframework.http.HttpStatus;
+import org.springframework.validation.annotation.Validated;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
+import java.util.function.Supplier;
 
 @RestController
+@Validated
 @RequestMapping("/api/movies")
 public class MovieController {
     private final MovieService movieService;
+    private final MovieIngestService movieIngestService;
+    private final ConditionalGet conditionalGet;
+    private final MovieDocumentCache movieDocumentCache;
 
-    public MovieController(MovieService movieService) {
+    public MovieController(MovieService movieService, MovieIngestService movieIngestService,
+                           ConditionalGet conditionalGet, MovieDocumentCache movieDocumentCache) {
         this.movieService = movieService;
+        this.movieIngestService = movieIngestService;
+        this.conditionalGet = conditionalGet;
+        this.movieDocumentCache = movieDocumentCache;
     }
 
     @PostMapping
@@ -32,12 +66,103 @@ public class MovieController {
         return ResponseEntity.status(HttpStatus.CREATED).body(createdMovie);
     }
 
+    // Create many movies at once from a JSON array or NDJSON (one movie per line).
+    // Invalid items are skipped and listed in the response, the others are inserted.
+    @PostMapping(path = "/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<BulkIngestResultDTO> createMovies(InputStream body) throws IOException {
+        return ResponseEntity.ok(movieIngestService.ingest(body));
+    }
+
     // Get all movies with pagination
     @GetMapping
-    public Page<Movie> getAllMovies(
+    public ResponseEntity<Page<MovieSummaryDTO>> getAllMovies(
+            ServletWebRequest request,
+
+            @Min(value = 0, message = "Page index must not be less than zero")
+            @RequestParam(defaultValue = "0") int page,
+
+            @Min(value = 1, message = "Page size must not be less than one")
+            @Max(value = 100, message = "Page size limit is 100")
+            @RequestParam(defaultValue = "10") int size) {
+        return movieList(request, () -> movieService.getAllMovies(PageRequest.of(page, size)));
+    }
+
+    // Get movies by page without the total count
+    @GetMapping("/slice")
+    public ResponseEntity<Slice<MovieSummaryDTO>> getMovieSlice(
+            ServletWebRequest request,
+
+            @Min(value = 0, message = "Page index must not be less than zero")
             @RequestParam(defaultValue = "0") int page,
+
+            @Min(value = 1, message = "Page size must not be less than one")
+            @Max(value = 100, message = "Page size limit is 100")
             @RequestParam(defaultValue = "10") int size) {
-        return movieService.getAllMovies(PageRequest.of(page, size));
+        return movieList(request, () -> movieService.getMovieSlice(PageRequest.of(page, size)));
+    }
+
+    // Movies matching all given criteria, e.g. ?yearFrom=1990&yearTo=1999&minDuration=90&genres=1,2&actors=6
+    // (a movie must have every listed actor and genre)
+    @GetMapping("/filter")
+    public ResponseEntity<Page<MovieSummaryDTO>> filterMovies(
+            ServletWebRequest request,
+
+            @RequestParam(required = false) Integer yearFrom,
+            @RequestParam(required = false) Integer yearTo,
+            @RequestParam(required = false) Integer minDuration,
+            @RequestParam(required = false) Integer maxDuration,
+
+            @Min(value = 0, message = "Minimum rating must be between 0 and 5")
+            @Max(value = 5, message = "Minimum rating must be between 0 and 5")
+            @RequestParam(required = false) Integer minRating,
+
+            @Size(max = 20, message = "At most 20 actors can be combined")
+            @RequestParam(required = false) List<Long> actors,
+
+            @Size(max = 20, message = "At most 20 genres can be combined")
+            @RequestParam(required = false) List<Long> genres,
+
+            @Min(value = 0, message = "Page index must not be less than zero")
+            @RequestParam(defaultValue = "0") int page,
+
+            @Min(value = 1, message = "Page size must not be less than one")
+            @Max(value = 100, message = "Page size limit is 100")
+            @RequestParam(defaultValue = "10") int size) {
+        return movieList(request, () -> movieService.filterMovies(yearFrom, yearTo, minDuration, maxDuration,
+                minRating, actors, genres, PageRequest.of(page, size)));
+    }
+
+    // Get movies with keyset pagination, pass the returned "next" token as cursor for the following page
+    @GetMapping("/scroll")
+    public ResponseEntity<CursorPage<MovieSummaryDTO>> scrollMovies(
+            ServletWebRequest request,
+
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "id") String sort,
+
+            @Min(value = 1, message = "Page size must not be less than one")
+            @Max(value = 100, message = "Page size limit is 100")
+            @RequestParam(defaultValue = "10") int size) {
+        return movieList(request, () -> movieService.scrollMovies(cursor, sort, size));
+    }
+
+    // Matching movie ids with counts per genre, top actor, decade and release year in one call.
+    // Filters combine with AND; a decade is given by its first year, e.g. decade=1990
+    @GetMapping("/facets")
+    public MovieFacetsDTO getFacets(
+            @RequestParam(required = false) Long genre,
+            @RequestParam(required = false) Long actor,
+            @RequestParam(required = false) Integer releaseYear,
+            @RequestParam(required = false) Integer decade,
+
+            @Min(value = 0, message = "Limit must not be less than zero")
+            @Max(value = 1000, message = "Limit is at most 1000")
+            @RequestParam(defaultValue = "100") int limit,
+
+            @Min(value = 1, message = "Top actors must not be less than one")
+            @Max(value = 100, message = "Top actors is at most 100")
+            @RequestParam(defaultValue = "10") int topActors) {
+        return movieService.getFacets(genre, actor, releaseYear, decade, limit, topActors);
     }
 
     // Assign actor to movie
@@ -68,42 +193,53 @@ public class MovieController {
         return ResponseEntity.ok(updatedMovie);
     }
 
+    // Add and remove many actors and genres in one request, answers with what changed
+    @PatchMapping("/{movieId}/links")
+    public MovieLinksDiffDTO updateLinks(@PathVariable Long movieId, @Valid @RequestBody MovieLinksDTO links) {
+        return movieService.updateLinks(movieId, links);
+    }
+
     // Get movies by release year
     @GetMapping(params = "releaseYear")
-    public ResponseEntity<List<Movie>> getMoviesByReleaseYear(@RequestParam int releaseYear) {
-        List<Movie> movies = movieService.getMoviesByReleaseYear(releaseYear);
-        if (movies.isEmpty()) {
-            return ResponseEntity.noContent().build();
-        }
-        return ResponseEntity.ok(movies);
+    public ResponseEntity<List<MovieSummaryDTO>> getMoviesByReleaseYear(@RequestParam int releaseYear,
+                                                                        ServletWebRequest request) {
+        return movieList(request, () -> movieService.getMoviesByReleaseYear(releaseYear));
     }
 
     // Get movies by actor
     @GetMapping(params = "actor")
-    public ResponseEntity<List<Movie>> getMoviesByActor(@RequestParam Long actor) {
-        List<Movie> movies = movieService.getMoviesByActor(actor);
-        if (movies.isEmpty()) {
-            return ResponseEntity.noContent().build();
-        }
-        return ResponseEntity.ok(movies);
+    public ResponseEntity<List<MovieSummaryDTO>> getMoviesByActor(@RequestParam Long actor,
+                                                                  ServletWebRequest request) {
+        return movieList(request, () -> movieService.getMoviesByActor(actor));
     }
 
     // Get movies by genre
     @GetMapping(params = "genre")
-    public ResponseEntity<List<Movie>> getMoviesByGenre(@RequestParam Long genre) {
-        List<Movie> movies = movieService.getMoviesByGenre(genre);
-        if (movies.isEmpty()) {
-            return ResponseEntity.noContent().build();
-        }
-        return ResponseEntity.ok(movies);
+    public ResponseEntity<List<MovieSummaryDTO>> getMoviesByGenre(@RequestParam Long genre,
+                                                                  ServletWebRequest request) {
+        return movieList(request, () -> movieService.getMoviesByGenre(genre));
     }
 
-    // Get a specific movie by ID
+    // Get a specific movie by ID, from its pre-serialized document when the current version has one
     @GetMapping("/{id}")
-    public ResponseEntity<Movie> getMovieById(@PathVariable Long id) {
-        Movie movie = movieService.getMovieById(id)
-                .orElseThrow(() -> new RuntimeException("Movie not found"));
-        return ResponseEntity.ok(movie);
+    public ResponseEntity<byte[]> getMovieById(@PathVariable Long id, ServletWebRequest request) {
+        Optional<MovieVersionRow> version = movieService.getMovieVersion(id);
+        boolean gzip = MovieDocumentCache.acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+        if (conditionalGet.notModified(request, version, "gzip", gzip)) {
+            return null;
+        }
+        MovieDocument document = version
+                .map(current -> movieDocumentCache.get(id, current))
+                .orElse(null);
+        if (document == null) {
+            Movie movie = movieService.getMovieById(id)
+                    .orElseThrow(() -> new RuntimeException("Movie not found"));
+            document = movieDocumentCache.put(movie);
+        }
+        return conditionalGet.ok(document.version(), gzip ? "gzip" : null)
+                .contentType(MediaType.APPLICATION_JSON)
+                .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                .body(gzip ? document.gzip() : document.json());
     }
 
     // Get actors in a specific movie
@@ -116,19 +252,55 @@ public class MovieController {
 
     // Search movies by title
     @GetMapping("/search/title")
-    public ResponseEntity<List<Movie>> searchMoviesByTitle(@RequestParam String title) {
-        List<Movie> movies = movieService.searchMoviesByTitle(title);
+    public ResponseEntity<List<MovieSummaryDTO>> searchMoviesByTitle(
+            @RequestParam String title,
+
+            @Min(value = 1, message = "Limit must not be less than one")
+            @Max(value = 100, message = "Limit is at most 100")
+            @RequestParam(defaultValue = "50") int limit) {
+        List<MovieSummaryDTO> movies = movieService.searchMoviesByTitle(title, limit);
         if (movies.isEmpty()) {
             return ResponseEntity.noContent().build();
         }
         return ResponseEntity.ok(movies);
     }
 
+    // Title suggestions while typing, served from memory
+    @GetMapping("/suggest")
+    public List<ReferenceDTO> suggestTitles(
+            @RequestParam String q,
+
+            @Min(value = 1, message = "Limit must not be less than one")
+            @Max(value = 100, message = "Limit is at most 100")
+            @RequestParam(defaultValue = "10") int limit) {
+        return movieService.suggestTitles(q, limit);
+    }
+
+    // Top rated (by=rating), most voted (by=votes) or newest (by=newest) movies, overall or of
+    // one genre or release year, served from memory
+    @GetMapping("/top")
+    public List<RankedMovieDTO> getTopMovies(
+            @RequestParam(defaultValue = "rating") String by,
+            @RequestParam(required = false) Long genre,
+            @RequestParam(required = false) Integer year,
+
+            @Min(value = 1, message = "Limit must not be less than one")
+            @Max(value = 100, message = "Limit is at most 100")
+            @RequestParam(defaultValue = "10") int limit) {
+        return movieService.getTopMovies(by, genre, year, limit);
+    }
+
+    // Vote 1 to 5 stars; answers with the movie, rated with this vote included
     @PatchMapping("/{id}/rate")
     public ResponseEntity<Movie> rateMovie(@PathVariable Long id, @RequestParam int stars) {
-    Movie updatedMovie = movieService.rateMovie(id, stars);
-    return ResponseEntity.ok(updatedMovie);
-}
+        return ResponseEntity.ok(movieService.rateMovie(id, stars));
+    }
+
+    // Vote count, average and distribution of a movie
+    @GetMapping("/{id}/rating")
+    public MovieRatingDTO getRating(@PathVariable Long id) {
+        return movieService.getRating(id);
+    }
 
     // Delete a movie by ID
     @DeleteMapping("/{id}")
@@ -136,4 +308,18 @@ public class MovieController {
     public void deleteMovie(@PathVariable Long id) {
         movieService.deleteMovie(id);
     }
+
+    // A movie list, answered with 304 while the movie, actor and genre tables are as the client saw
+    // them; the lookups by year, actor and genre answer an empty list with 204
+    private <T> ResponseEntity<T> movieList(ServletWebRequest request, Supplier<T> list) {
+        List<VersionSummaryRow> version = movieService.getMovieListVersion();
+        if (conditionalGet.notModified(request, version)) {
+            return null;
+        }
+        T body = list.get();
+        if (body instanceof List<?> movies && movies.isEmpty()) {
+            return ResponseEntity.noContent().build();
+        }
+        return conditionalGet.ok(version, body);
+    }
 }
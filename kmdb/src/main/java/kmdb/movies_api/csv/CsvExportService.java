@@ -0,0 +1,50 @@
+package kmdb.movies_api.csv;
+
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+// Streams a table as CSV. Rows come from a forward-only cursor and are written to the output as they
+// are read, so memory use does not depend on the table size. The read-only transaction keeps one
+// reader connection (and its WAL snapshot) for the whole export, so the file is consistent.
+@Service
+public class CsvExportService {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public CsvExportService(DataSource dataSource, PlatformTransactionManager transactionManager, Environment env) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(env.getProperty("kmdb.csv.fetch-size", Integer.class, 1000));
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    public void export(CsvTable table, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        CsvWriter csv = new CsvWriter(writer);
+        try {
+            readOnlyTransaction.executeWithoutResult(status -> jdbcTemplate.query(table.selectSql(), rs -> {
+                try {
+                    csv.writeRecord(table.read(rs));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+    }
+}
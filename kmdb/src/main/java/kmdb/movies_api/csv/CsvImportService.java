@@ -0,0 +1,226 @@
+package kmdb.movies_api.csv;
+
+import jakarta.persistence.EntityManagerFactory;
+import kmdb.movies_api.dto.CsvImportResultDTO;
+import kmdb.movies_api.entities.IdBlocks;
+import lombok.extern.slf4j.Slf4j;
+import kmdb.movies_api.search.CoStarIndex;
+import kmdb.movies_api.search.FacetIndex;
+import kmdb.movies_api.search.LeaderboardIndex;
+import kmdb.movies_api.search.TypeaheadIndex;
+import org.hibernate.Cache;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+// Loads a CSV file into a table as a two-stage pipeline: a parser thread turns records into batches
+// of bound values and hands them over a bounded queue to the calling thread, which upserts them with
+// batched JDBC statements, committing every kmdb.csv.rows-per-transaction rows. The queue bounds the
+// memory in flight and lets parsing overlap with the writes. A bad record stops the import; rows
+// committed before it stay.
+@Slf4j
+@Service
+public class CsvImportService {
+
+    // marks the end of the input (or a parse failure) on the queue
+    private static final List<Object[]> END = List.of();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transaction;
+    private final TypeaheadIndex typeaheadIndex;
+    private final FacetIndex facetIndex;
+    private final LeaderboardIndex leaderboardIndex;
+    private final CoStarIndex coStarIndex;
+    private final IdBlocks idBlocks;
+    private final EntityManagerFactory entityManagerFactory;
+    private final int batchSize;
+    private final int rowsPerTransaction;
+    private final int queuedBatches;
+
+    public CsvImportService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                            TypeaheadIndex typeaheadIndex, FacetIndex facetIndex, LeaderboardIndex leaderboardIndex,
+                            CoStarIndex coStarIndex, IdBlocks idBlocks, EntityManagerFactory entityManagerFactory,
+                            Environment env) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.typeaheadIndex = typeaheadIndex;
+        this.facetIndex = facetIndex;
+        this.leaderboardIndex = leaderboardIndex;
+        this.coStarIndex = coStarIndex;
+        this.idBlocks = idBlocks;
+        this.entityManagerFactory = entityManagerFactory;
+        this.batchSize = env.getProperty("kmdb.csv.batch-size", Integer.class, 1000);
+        this.rowsPerTransaction = env.getProperty("kmdb.csv.rows-per-transaction", Integer.class, 50000);
+        this.queuedBatches = env.getProperty("kmdb.csv.queued-batches", Integer.class, 8);
+    }
+
+    public CsvImportResultDTO importCsv(CsvTable table, InputStream body) throws IOException {
+        BlockingQueue<List<Object[]>> batches = new ArrayBlockingQueue<>(queuedBatches);
+        Parser parser = new Parser(table, new CsvReader(new InputStreamReader(body, StandardCharsets.UTF_8)), batches);
+        Thread parserThread = Thread.ofPlatform().daemon().name("csv-import-" + table.fileName()).start(parser);
+
+        long imported = 0;
+        try {
+            while (true) {
+                int committed = transaction.execute(status -> {
+                    int written = writeTransaction(table, batches);
+                    // keep the transactions before the bad record, drop the one it is in: only a
+                    // transaction that ran into the end of the queue can hold it, as the parser ends
+                    // the queue right after a failure (one that filled up may merely see the failure
+                    // flag already set)
+                    if (written < rowsPerTransaction && parser.failure != null) {
+                        status.setRollbackOnly();
+                        return 0;
+                    }
+                    return written;
+                });
+                imported += committed;
+                if (committed < rowsPerTransaction) {
+                    break;
+                }
+            }
+        } catch (RuntimeException e) {
+            parserThread.interrupt();
+            throw e;
+        } finally {
+            joinUninterruptibly(parserThread);
+            if (imported > 0) {
+                String touchMovies = table.touchMoviesSql();
+                if (touchMovies != null) {
+                    transaction.executeWithoutResult(status -> jdbcTemplate.update(touchMovies));
+                }
+                // also when a later record failed: the committed rows hold ids the sequence has to skip
+                String sequenceUpdate = table.sequenceUpdateSql();
+                if (sequenceUpdate != null) {
+                    transaction.executeWithoutResult(status -> jdbcTemplate.update(sequenceUpdate));
+                    // imported ids may fall inside a block of ids the generators have already claimed
+                    idBlocks.discardAll();
+                }
+                // the rows were written with plain JDBC, so nothing cached about them can be trusted
+                entityManagerFactory.getCache().unwrap(Cache.class).evictAllRegions();
+                refreshIndexes(table);
+            }
+        }
+
+        if (parser.failure != null) {
+            throw new IllegalArgumentException(table.fileName() + ".csv line " + parser.failureLine + ": " +
+                    parser.failure.getMessage() + " (" + imported + " rows before it were imported)");
+        }
+        log.info("Imported {} rows from {}.csv", imported, table.fileName());
+        return new CsvImportResultDTO(table.fileName(), imported);
+    }
+
+    // Writes batches until rowsPerTransaction rows are written or the input ends, returns the row count
+    private int writeTransaction(CsvTable table, BlockingQueue<List<Object[]>> batches) {
+        int written = 0;
+        while (written < rowsPerTransaction) {
+            List<Object[]> batch = take(batches);
+            if (batch == END) {
+                break;
+            }
+            jdbcTemplate.batchUpdate(table.upsertSql(), batch);
+            written += batch.size();
+        }
+        return written;
+    }
+
+    private List<Object[]> take(BlockingQueue<List<Object[]>> batches) {
+        try {
+            return batches.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("CSV import was interrupted", e);
+        }
+    }
+
+    // One rescan instead of an event per row, which would not scale to millions of rows
+    private void refreshIndexes(CsvTable table) {
+        switch (table) {
+            case MOVIES -> {
+                typeaheadIndex.reloadMovies();
+                facetIndex.reload();
+                leaderboardIndex.reload();
+            }
+            case ACTORS -> typeaheadIndex.reloadActors();
+            case MOVIE_ACTORS -> {
+                facetIndex.reload();
+                coStarIndex.reload();
+            }
+            case MOVIE_GENRES -> {
+                facetIndex.reload();
+                leaderboardIndex.reload();
+            }
+            default -> {
+            }
+        }
+    }
+
+    private static void joinUninterruptibly(Thread thread) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                thread.join();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Producer side of the pipeline. Always ends the queue with END, also when it fails.
+    private final class Parser implements Runnable {
+        private final CsvTable table;
+        private final CsvReader reader;
+        private final BlockingQueue<List<Object[]>> batches;
+        private volatile Exception failure;
+        private volatile long failureLine;
+
+        private Parser(CsvTable table, CsvReader reader, BlockingQueue<List<Object[]>> batches) {
+            this.table = table;
+            this.reader = reader;
+            this.batches = batches;
+        }
+
+        @Override
+        public void run() {
+            try {
+                List<Object[]> batch = new ArrayList<>(batchSize);
+                for (String[] record = reader.next(); record != null; record = reader.next()) {
+                    batch.add(table.parse(record));
+                    if (batch.size() == batchSize) {
+                        batches.put(batch);
+                        batch = new ArrayList<>(batchSize);
+                    }
+                }
+                if (!batch.isEmpty()) {
+                    batches.put(batch);
+                }
+                batches.put(END);
+            } catch (InterruptedException e) {
+                // the writer failed and stopped taking batches
+            } catch (IOException | RuntimeException e) {
+                failure = e;
+                failureLine = reader.recordLine();
+                try {
+                    batches.put(END);
+                } catch (InterruptedException interrupted) {
+                    // the writer is gone already
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package kmdb.movies_api.csv;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+// Streaming RFC 4180 reader: comma separated, fields optionally quoted with "" as an escaped quote,
+// quoted fields may span lines. Blank lines are skipped. Reads through its own buffer, so the
+// underlying Reader does not need to be buffered.
+final class CsvReader {
+
+    private final Reader in;
+    private final char[] buffer = new char[64 * 1024];
+    private int position;
+    private int limit;
+    private long line = 1;
+    private long recordLine;
+
+    CsvReader(Reader in) {
+        this.in = in;
+    }
+
+    // Line number where the record last returned by next() starts
+    long recordLine() {
+        return recordLine;
+    }
+
+    // The next record, or null at the end of the input
+    String[] next() throws IOException {
+        int c = read();
+        while (c == '\n' || c == '\r') {
+            skipLineBreak(c);
+            c = read();
+        }
+        if (c == -1) {
+            return null;
+        }
+        recordLine = line;
+        List<String> fields = new ArrayList<>(4);
+        StringBuilder field = new StringBuilder(32);
+        while (true) {
+            if (c == '"' && field.isEmpty()) {
+                c = readQuoted(field);
+            }
+            if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+                c = read();
+            } else if (c == '\n' || c == '\r' || c == -1) {
+                fields.add(field.toString());
+                if (c != -1) {
+                    skipLineBreak(c);
+                }
+                return fields.toArray(new String[0]);
+            } else {
+                field.append((char) c);
+                c = read();
+            }
+        }
+    }
+
+    // Reads a quoted field up to its closing quote and returns the char after it
+    private int readQuoted(StringBuilder field) throws IOException {
+        long startLine = line;
+        while (true) {
+            int c = read();
+            if (c == -1) {
+                throw new IllegalArgumentException("quoted field starting on line " + startLine + " is not closed");
+            }
+            if (c == '"') {
+                int next = read();
+                if (next != '"') {
+                    return next;
+                }
+            } else if (c == '\n') {
+                line++;
+            }
+            field.append((char) c);
+        }
+    }
+
+    // Called with the \n or \r just read, also consumes the \n of a \r\n pair
+    private void skipLineBreak(int c) throws IOException {
+        line++;
+        if (c == '\r' && fill() && buffer[position] == '\n') {
+            position++;
+        }
+    }
+
+    private int read() throws IOException {
+        return fill() ? buffer[position++] : -1;
+    }
+
+    // Makes sure at least one char is buffered, false at the end of the input
+    private boolean fill() throws IOException {
+        if (position == limit) {
+            int read = in.read(buffer, 0, buffer.length);
+            position = 0;
+            limit = Math.max(read, 0);
+        }
+        return position < limit;
+    }
+}
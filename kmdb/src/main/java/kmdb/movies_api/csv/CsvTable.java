@@ -0,0 +1,151 @@
+package kmdb.movies_api.csv;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+// Tables that can be exported to and imported from CSV. Files have no header row; movies use the
+// column order of movies_backup.csv (id, duration, year, title). Importing upserts by primary key, so
+// an export can be loaded back over an existing catalogue; unchanged rows are left alone, which also
+// spares their full-text index triggers. Changed rows get a new version and updated_at, which are
+// their ETags and Last-Modified.
+public enum CsvTable {
+
+    MOVIES("movies",
+            "SELECT id, duration, release_year, title FROM movie ORDER BY id",
+            "INSERT INTO movie (id, duration, release_year, title, updated_at) " +
+                    "VALUES (?, ?, ?, ?, CAST(unixepoch('subsec') * 1000 AS INTEGER)) ON CONFLICT (id) DO UPDATE " +
+                    "SET duration = excluded.duration, release_year = excluded.release_year, title = excluded.title, " +
+                    "version = version + 1, updated_at = excluded.updated_at " +
+                    "WHERE (duration, release_year, title) IS NOT (excluded.duration, excluded.release_year, excluded.title)",
+            null, Column.ID, Column.NUMBER, Column.NUMBER, Column.TEXT),
+
+    ACTORS("actors",
+            "SELECT id, name, birth_date FROM actor ORDER BY id",
+            "INSERT INTO actor (id, name, birth_date, updated_at) " +
+                    "VALUES (?, ?, ?, CAST(unixepoch('subsec') * 1000 AS INTEGER)) ON CONFLICT (id) DO UPDATE " +
+                    "SET name = excluded.name, birth_date = excluded.birth_date, " +
+                    "version = version + 1, updated_at = excluded.updated_at " +
+                    "WHERE (name, birth_date) IS NOT (excluded.name, excluded.birth_date)",
+            "actor", Column.ID, Column.TEXT, Column.OPTIONAL_TEXT),
+
+    GENRES("genres",
+            "SELECT id, name FROM genre ORDER BY id",
+            "INSERT INTO genre (id, name, updated_at) " +
+                    "VALUES (?, ?, CAST(unixepoch('subsec') * 1000 AS INTEGER)) ON CONFLICT (id) DO UPDATE " +
+                    "SET name = excluded.name, version = version + 1, updated_at = excluded.updated_at " +
+                    "WHERE name IS NOT excluded.name",
+            "genre", Column.ID, Column.TEXT),
+
+    MOVIE_ACTORS("movie-actors",
+            "SELECT movie_id, actor_id FROM actors ORDER BY movie_id, actor_id",
+            "INSERT OR IGNORE INTO actors (movie_id, actor_id) VALUES (?, ?)",
+            null, Column.ID, Column.ID),
+
+    MOVIE_GENRES("movie-genres",
+            "SELECT movie_id, genre_id FROM genres ORDER BY movie_id, genre_id",
+            "INSERT OR IGNORE INTO genres (movie_id, genre_id) VALUES (?, ?)",
+            null, Column.ID, Column.ID);
+
+    private final String fileName;
+    private final String selectSql;
+    private final String upsertSql;
+    // entity table whose Hibernate sequence table has to move past the imported ids, if any
+    private final String sequencedTable;
+    private final Column[] columns;
+
+    CsvTable(String fileName, String selectSql, String upsertSql, String sequencedTable, Column... columns) {
+        this.fileName = fileName;
+        this.selectSql = selectSql;
+        this.upsertSql = upsertSql;
+        this.sequencedTable = sequencedTable;
+        this.columns = columns;
+    }
+
+    // "movies" for movies.csv
+    public static CsvTable fromFileName(String fileName) {
+        for (CsvTable table : values()) {
+            if (table.fileName.equals(fileName)) {
+                return table;
+            }
+        }
+        throw new IllegalArgumentException("Unknown CSV table '" + fileName + "', use one of " +
+                Arrays.stream(values()).map(CsvTable::fileName).collect(Collectors.joining(", ")));
+    }
+
+    public String fileName() {
+        return fileName;
+    }
+
+    String selectSql() {
+        return selectSql;
+    }
+
+    String upsertSql() {
+        return upsertSql;
+    }
+
+    // New ETags for every movie after importing anything a movie lists (its actors and genres), since
+    // the rows written do not tell which movies they appear in
+    String touchMoviesSql() {
+        return this == MOVIES ? null :
+                "UPDATE movie SET version = version + 1, updated_at = CAST(unixepoch('subsec') * 1000 AS INTEGER)";
+    }
+
+    // Moves <table>_sequence past the largest id, so the next entity saved by Hibernate gets a free id
+    String sequenceUpdateSql() {
+        return sequencedTable == null ? null : "UPDATE " + sequencedTable + "_sequence SET next_val = " +
+                "MAX(next_val, (SELECT COALESCE(MAX(id), 0) + 1 FROM " + sequencedTable + "))";
+    }
+
+    // The current row of a selectSql result, in file column order
+    Object[] read(ResultSet rs) throws SQLException {
+        Object[] values = new Object[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            values[i] = columns[i] == Column.ID || columns[i] == Column.NUMBER ? rs.getLong(i + 1) : rs.getString(i + 1);
+        }
+        return values;
+    }
+
+    // Converts the fields of one record to the values bound to upsertSql
+    Object[] parse(String[] fields) {
+        if (fields.length != columns.length) {
+            throw new IllegalArgumentException("expected " + columns.length + " fields but found " + fields.length);
+        }
+        Object[] values = new Object[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            values[i] = columns[i].parse(fields[i]);
+        }
+        return values;
+    }
+
+    enum Column {
+        ID, NUMBER, TEXT, OPTIONAL_TEXT;
+
+        Object parse(String field) {
+            switch (this) {
+                case ID, NUMBER -> {
+                    try {
+                        long value = Long.parseLong(field.trim());
+                        if (this == ID && value < 1) {
+                            throw new IllegalArgumentException("id must be positive: " + field);
+                        }
+                        return value;
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("not a number: '" + field + "'");
+                    }
+                }
+                case TEXT -> {
+                    if (field.isBlank()) {
+                        throw new IllegalArgumentException("text field cannot be empty");
+                    }
+                    return field;
+                }
+                default -> {
+                    return field.isEmpty() ? null : field;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package kmdb.movies_api.csv;
+
+import java.io.IOException;
+import java.io.Writer;
+
+// Writes records in the format CsvReader reads, with CRLF line breaks. Text is quoted when it contains a separator, a quote,
+// a line break or a space, the way movies_backup.csv quotes multi-word titles.
+final class CsvWriter {
+
+    private final Writer out;
+
+    CsvWriter(Writer out) {
+        this.out = out;
+    }
+
+    void writeRecord(Object[] values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            Object value = values[i];
+            if (value instanceof String text) {
+                writeText(text);
+            } else if (value != null) {
+                out.write(value.toString());
+            }
+        }
+        out.write("\r\n");
+    }
+
+    private void writeText(String text) throws IOException {
+        if (!needsQuotes(text)) {
+            out.write(text);
+            return;
+        }
+        out.write('"');
+        int from = 0;
+        for (int quote = text.indexOf('"'); quote >= 0; quote = text.indexOf('"', from)) {
+            out.write(text, from, quote + 1 - from);
+            out.write('"');
+            from = quote + 1;
+        }
+        out.write(text, from, text.length() - from);
+        out.write('"');
+    }
+
+    private static boolean needsQuotes(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r' || c == ' ') {
+                return true;
+            }
+        }
+        return false;
+    }
+}
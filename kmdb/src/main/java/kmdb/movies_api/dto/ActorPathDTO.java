@@ -0,0 +1,8 @@
+package kmdb.movies_api.dto;
+
+import java.util.List;
+
+// A shortest chain from one actor to another: movies.get(i) has both actors.get(i) and
+// actors.get(i + 1) in its cast, degrees is the number of movies
+public record ActorPathDTO(int degrees, List<ReferenceDTO> actors, List<ReferenceDTO> movies) {
+}
@@ -0,0 +1,11 @@
+package kmdb.movies_api.dto;
+
+import java.util.List;
+
+// Outcome of a bulk movie upload; index is the 0-based position of the item in the request body.
+// Only the first errors are listed, failed counts all of them.
+public record BulkIngestResultDTO(int received, int inserted, int failed, List<ItemError> errors) {
+
+    public record ItemError(int index, String message) {
+    }
+}
@@ -0,0 +1,11 @@
+package kmdb.movies_api.dto;
+
+import java.util.List;
+
+// Actors who played with an actor, most shared movies first. coStars lists only the first of them,
+// total counts all.
+public record CoStarsDTO(int total, List<CoStar> coStars) {
+
+    public record CoStar(Long id, String name, int sharedMovies) {
+    }
+}
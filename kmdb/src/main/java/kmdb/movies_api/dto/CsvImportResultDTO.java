@@ -0,0 +1,5 @@
+package kmdb.movies_api.dto;
+
+// Outcome of a CSV import: the table loaded and how many rows of the file were written (unchanged rows included)
+public record CsvImportResultDTO(String table, long rows) {
+}
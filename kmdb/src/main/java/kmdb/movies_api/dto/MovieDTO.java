@@ -25,6 +25,10 @@ public class MovieDTO {
 
     private String starRating; // Star-based rating
 
+    // Constructor used by Jackson when reading a request body
+    public MovieDTO() {
+    }
+
     // Constructor for DTO from Movie
     public MovieDTO(Movie movie) {
         this.title = movie.getTitle();
@@ -0,0 +1,15 @@
+package kmdb.movies_api.dto;
+
+import java.util.List;
+
+// Movies matching the browse filters with their counts per facet. movieIds lists only the first
+// matches by id, every count covers all of them (total). Decades are keyed by their first year.
+public record MovieFacetsDTO(int total, List<Long> movieIds, List<NamedCount> genres, List<NamedCount> actors,
+                             List<YearCount> decades, List<YearCount> releaseYears) {
+
+    public record NamedCount(Long id, String name, int count) {
+    }
+
+    public record YearCount(int year, int count) {
+    }
+}
@@ -0,0 +1,20 @@
+package kmdb.movies_api.dto;
+
+import jakarta.validation.constraints.Size;
+
+import java.util.Set;
+
+// Actor and genre ids to link to or unlink from a movie in one request; missing sets are empty
+public record MovieLinksDTO(
+        @Size(max = 500, message = "At most 500 actors can be added at once") Set<Long> addActors,
+        @Size(max = 500, message = "At most 500 actors can be removed at once") Set<Long> removeActors,
+        @Size(max = 500, message = "At most 500 genres can be added at once") Set<Long> addGenres,
+        @Size(max = 500, message = "At most 500 genres can be removed at once") Set<Long> removeGenres) {
+
+    public MovieLinksDTO {
+        addActors = addActors == null ? Set.of() : addActors;
+        removeActors = removeActors == null ? Set.of() : removeActors;
+        addGenres = addGenres == null ? Set.of() : addGenres;
+        removeGenres = removeGenres == null ? Set.of() : removeGenres;
+    }
+}
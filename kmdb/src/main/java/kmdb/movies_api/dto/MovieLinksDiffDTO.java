@@ -0,0 +1,14 @@
+package kmdb.movies_api.dto;
+
+import java.util.List;
+
+// What a batch link update changed: ids that were already linked (or not linked) are left out.
+// etag is the movie's ETag afterwards, as GET /api/movies/{id} sends it for the unencoded body.
+public record MovieLinksDiffDTO(
+        Long movieId,
+        List<Long> actorsAdded,
+        List<Long> actorsRemoved,
+        List<Long> genresAdded,
+        List<Long> genresRemoved,
+        String etag) {
+}
@@ -0,0 +1,15 @@
+package kmdb.movies_api.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.Map;
+
+// Votes of one movie, including those not yet written to the database; distribution maps each
+// star count (1 to 5) to its number of votes
+public record MovieRatingDTO(
+        Long movieId,
+        long votes,
+        double average,
+        Map<Integer, Long> distribution,
+        @JsonProperty("Rating") String rating) {
+}
@@ -0,0 +1,16 @@
+package kmdb.movies_api.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+// Movie as returned by the listing, search and filter endpoints
+public record MovieSummaryDTO(
+        Long id,
+        String title,
+        int releaseYear,
+        int duration,
+        List<ReferenceDTO> actors,
+        List<ReferenceDTO> genres,
+        @JsonProperty("Rating") String rating) {
+}
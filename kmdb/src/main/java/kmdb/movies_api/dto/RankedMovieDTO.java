@@ -0,0 +1,13 @@
+package kmdb.movies_api.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+// Movie as listed by the top rated, most voted and newest boards
+public record RankedMovieDTO(
+        Long id,
+        String title,
+        int releaseYear,
+        long votes,
+        double average,
+        @JsonProperty("Rating") String rating) {
+}
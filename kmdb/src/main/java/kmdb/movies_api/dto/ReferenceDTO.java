@@ -0,0 +1,5 @@
+package kmdb.movies_api.dto;
+
+// Id and name of an actor or genre inside a movie listing
+public record ReferenceDTO(Long id, String name) {
+}
@@ -5,12 +5,16 @@ import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Pattern;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.HashSet;
 import java.util.Objects;
 import java.util.Set;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "actor")
 @Table
 @Getter
 @Setter
@@ -19,19 +23,16 @@ import java.util.Set;
 @ToString
 public class Actor {
     @Id
-    @SequenceGenerator(
-        name = "actor_sequence",
-        sequenceName = "actor_sequence",
-        allocationSize = 1
-    )
-    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "actor_sequence")
+    @BlockSequence("actor_sequence")
     private Long id;
 
     @NotBlank(message = "Name cannot be empty")
     private String name;
 
     @JsonIgnore
+    @ToString.Exclude
     @ManyToMany(mappedBy = "actors")
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "actor.movies")
     private Set<Movie> movies = new HashSet<>();
 
     @Column(columnDefinition = "VARCHAR(10)")
@@ -41,6 +42,22 @@ public class Actor {
     )
     private String birthDate;
 
+    // Incremented by every change, the actor's ETag
+    @Version
+    @JsonIgnore
+    private long version;
+
+    // Epoch millis of the last change, the actor's Last-Modified
+    @JsonIgnore
+    @Column(name = "updated_at")
+    private long updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    void touch() {
+        updatedAt = System.currentTimeMillis();
+    }
+
     public Actor(String name) {
         this.name = name;
     }
@@ -0,0 +1,18 @@
+package kmdb.movies_api.entities;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.FIELD;
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+// Id taken from the given sequence table, handed out in blocks by BlockSequenceGenerator
+@IdGeneratorType(BlockSequenceGenerator.class)
+@Retention(RUNTIME)
+@Target({FIELD, METHOD})
+public @interface BlockSequence {
+    String value();
+}
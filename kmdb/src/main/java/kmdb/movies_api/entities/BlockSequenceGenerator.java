@@ -0,0 +1,104 @@
+package kmdb.movies_api.entities;
+
+import org.hibernate.HibernateException;
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.config.spi.StandardConverters;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.id.enhanced.StandardOptimizerDescriptor;
+import org.hibernate.id.factory.spi.CustomIdGeneratorCreationContext;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.lang.reflect.Member;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Properties;
+
+// Ids from a sequence table (SQLite has no sequences), claimed kmdb.id.block-size at a time and handed
+// out from memory, so saving n entities costs n / block-size updates of the table instead of n and
+// their inserts can go out as one JDBC batch.
+//
+// The table keeps the next free id (pooled-lo), the same meaning the base schema, the CSV import and
+// an allocation size of 1 give it. A block is claimed with one UPDATE ... RETURNING on the connection
+// of the transaction that needs the id, not in a transaction of its own: the writer pool has a single
+// connection, which that transaction already holds. The write lock SQLite takes for the update keeps
+// instances sharing the file from claiming overlapping blocks. If the transaction rolls back, so does
+// the claim, and the block is dropped with it; with a single writer no other transaction can have
+// taken ids from it. With several write connections another transaction could, and the table would
+// offer those ids again, so DatabaseConfig only allows a block size of 1 there: every id is then
+// claimed under the write lock of the transaction using it. Whatever was left of a block when the
+// application stopped is skipped, never reused.
+public class BlockSequenceGenerator extends SequenceStyleGenerator {
+
+    public static final String BLOCK_SIZE = "kmdb.id.block-size";
+
+    private final String sequenceName;
+    private int blockSize;
+    private IdBlocks idBlocks;
+    private String claimSql;
+
+    // the next id to hand out and the first one past the block, equal when there is no block
+    private long next;
+    private long end;
+    private long blockGeneration;
+    // counts claims, so a rollback only drops the block its own transaction claimed
+    private long claims;
+
+    public BlockSequenceGenerator(BlockSequence config, Member member, CustomIdGeneratorCreationContext context) {
+        this.sequenceName = config.value();
+    }
+
+    @Override
+    public void configure(Type type, Properties parameters, ServiceRegistry serviceRegistry) {
+        ConfigurationService settings = serviceRegistry.requireService(ConfigurationService.class);
+        blockSize = settings.getSetting(BLOCK_SIZE, StandardConverters.INTEGER, 50);
+        if (blockSize < 1) {
+            throw new IllegalArgumentException(BLOCK_SIZE + " must be at least 1, was " + blockSize);
+        }
+        idBlocks = settings.getSettings().get(IdBlocks.SETTING) instanceof IdBlocks shared ? shared : new IdBlocks();
+        claimSql = "UPDATE " + sequenceName + " SET next_val = next_val + " + blockSize +
+                " RETURNING next_val - " + blockSize;
+        // the table structure is still declared for schema validation, its isolated callback goes unused
+        parameters.setProperty(SEQUENCE_PARAM, sequenceName);
+        parameters.setProperty(INCREMENT_PARAM, Integer.toString(blockSize));
+        parameters.setProperty(OPT_PARAM, StandardOptimizerDescriptor.POOLED_LO.getExternalName());
+        super.configure(type, parameters, serviceRegistry);
+    }
+
+    @Override
+    public synchronized Object generate(SharedSessionContractImplementor session, Object object) {
+        long current = idBlocks.generation();
+        if (next == end || blockGeneration != current) {
+            next = claim(session);
+            end = next + blockSize;
+            blockGeneration = current;
+            long claim = ++claims;
+            session.asEventSource().getActionQueue().registerProcess(
+                    (AfterTransactionCompletionProcess) (success, completed) -> dropIfRolledBack(success, claim));
+        }
+        return next++;
+    }
+
+    private synchronized void dropIfRolledBack(boolean success, long claim) {
+        if (!success && claim == claims) {
+            next = end;
+        }
+    }
+
+    private long claim(SharedSessionContractImplementor session) {
+        try (PreparedStatement statement = session.getJdbcCoordinator().getLogicalConnection()
+                .getPhysicalConnection().prepareStatement(claimSql);
+             ResultSet rs = statement.executeQuery()) {
+            if (!rs.next()) {
+                throw new HibernateException("Sequence table " + sequenceName + " has no row");
+            }
+            return rs.getLong(1);
+        } catch (SQLException e) {
+            throw session.getJdbcServices().getSqlExceptionHelper()
+                    .convert(e, "Could not claim a block of ids from " + sequenceName, claimSql);
+        }
+    }
+}
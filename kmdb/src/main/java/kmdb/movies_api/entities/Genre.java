@@ -4,11 +4,15 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.HashSet;
 import java.util.Set;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "genre")
 @Table(name = "genre") // Matches the database table name
 @Getter
 @Setter
@@ -17,18 +21,31 @@ import java.util.Set;
 @ToString
 public class Genre {
     @Id
-    @SequenceGenerator(
-        name = "genre_sequence",
-        sequenceName = "genre_sequence",
-        allocationSize = 1
-    )
-    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "genre_sequence")
+    @BlockSequence("genre_sequence")
     private Long id;
 
     @NotBlank(message = "Name cannot be empty")
     private String name;
 
     @JsonIgnore
-    @ManyToMany(mappedBy = "genres", fetch = FetchType.EAGER)
+    @ToString.Exclude
+    @ManyToMany(mappedBy = "genres", fetch = FetchType.LAZY)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "genre.movies")
     private Set<Movie> movies = new HashSet<>();
+
+    // Incremented by every change, the genre's ETag
+    @Version
+    @JsonIgnore
+    private long version;
+
+    // Epoch millis of the last change, the genre's Last-Modified
+    @JsonIgnore
+    @Column(name = "updated_at")
+    private long updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    void touch() {
+        updatedAt = System.currentTimeMillis();
+    }
 }
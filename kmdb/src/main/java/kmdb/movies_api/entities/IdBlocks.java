@@ -0,0 +1,23 @@
+package kmdb.movies_api.entities;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Shared by every BlockSequenceGenerator (handed to Hibernate as a setting) to let the rest of the
+// application invalidate the blocks they hold
+public class IdBlocks {
+
+    public static final String SETTING = "kmdb.id.blocks";
+
+    // bumped by discardAll, a generator that sees a new value claims a fresh block
+    private final AtomicLong generation = new AtomicLong();
+
+    // Forgets the ids left in every claimed block. Needed after rows were inserted with their own ids
+    // and the sequence tables moved past them, as those ids may lie inside a block already claimed.
+    public void discardAll() {
+        generation.incrementAndGet();
+    }
+
+    long generation() {
+        return generation.get();
+    }
+}
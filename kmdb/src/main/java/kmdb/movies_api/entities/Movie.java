@@ -3,6 +3,9 @@ package kmdb.movies_api.entities;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 import lombok.*;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.HashSet;
 import java.util.Set;
@@ -11,15 +14,26 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "movie")
 @Table(name = "movie") // Ensure the table name matches your database
+@NamedEntityGraph(name = Movie.WITH_ACTORS_AND_GENRES, attributeNodes = {
+        @NamedAttributeNode("actors"),
+        @NamedAttributeNode("genres")
+})
 @Getter
 @Setter
 @NoArgsConstructor
 @AllArgsConstructor
 @ToString
 public class Movie {
+    // Fetch graph for single-movie reads that return the full cast and genres
+    public static final String WITH_ACTORS_AND_GENRES = "Movie.withActorsAndGenres";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // INTEGER PRIMARY KEY is SQLite's rowid alias, which schema validation would otherwise reject as not bigint
+    @Column(columnDefinition = "INTEGER")
     private Long id;
 
     @NotBlank(message = "Title cannot be empty")
@@ -33,7 +47,11 @@ public class Movie {
     @Max(value = 1000, message = "Movie duration must be between 0 and 1000 minutes")
     private int duration;
 
-    @ManyToMany(fetch = FetchType.EAGER)
+    // Lazy + batch fetched: a page of movies loads all casts with one extra select instead of one per movie
+    @ManyToMany(fetch = FetchType.LAZY)
+    @BatchSize(size = 100)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "movie.actors")
+    @ToString.Exclude
     @JoinTable(
         name = "actors", 
         joinColumns = @JoinColumn(name = "movie_id"), 
@@ -41,7 +59,10 @@ public class Movie {
     )
     private Set<Actor> actors = new HashSet<>();
 
-    @ManyToMany(fetch = FetchType.EAGER)
+    @ManyToMany(fetch = FetchType.LAZY)
+    @BatchSize(size = 100)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "movie.genres")
+    @ToString.Exclude
     @JoinTable(
         name = "genres", 
         joinColumns = @JoinColumn(name = "movie_id"), 
@@ -49,17 +70,43 @@ public class Movie {
     )
     private Set<Genre> genres = new HashSet<>();
 
-    // Add the starRating field
-    @Column(name = "star_rating", nullable = false, columnDefinition = "INTEGER default 0")
+    // Incremented by every change of the movie, its cast or its genres, and by changes of the actors it
+    // lists (see MovieRepository.touchMoviesWithActor). The movie's ETag.
+    @Version
+    @JsonIgnore
+    private long version;
+
+    // Epoch millis of the last change, the movie's Last-Modified
+    @JsonIgnore
+    @Column(name = "updated_at")
+    private long updatedAt;
+
+    // Add the starRating field. Only MovieRatings writes it, without a new version, so an edit of a
+    // movie loaded before a rating flush must not write the old value back.
+    @Column(name = "star_rating", nullable = false, updatable = false, columnDefinition = "INTEGER default 0")
     @JsonIgnore
     private int starRating;
 
+    // Precomputed star strings for 0 to 5 stars
+    private static final String[] STAR_RATINGS = {"☆☆☆☆☆", "★☆☆☆☆", "★★☆☆☆", "★★★☆☆", "★★★★☆", "★★★★★"};
+
     // Method to represent the star rating
     @JsonProperty("Rating")
     public String getStarRatingRepresentation() {
-        return "★".repeat(starRating) + "☆".repeat(5 - starRating); // Full and empty stars
+        return starRatingRepresentation(starRating);
+    }
+
+    // Full and empty stars for a rating, shared with the listing projections
+    public static String starRatingRepresentation(int starRating) {
+        return STAR_RATINGS[Math.max(0, Math.min(5, starRating))];
     }
     
+    @PrePersist
+    @PreUpdate
+    void touch() {
+        updatedAt = System.currentTimeMillis();
+    }
+
     public void setStarRating(int starRating) {
         this.starRating = starRating;
     }
@@ -0,0 +1,5 @@
+package kmdb.movies_api.events;
+
+// Published after an actor is deleted
+public record ActorDeleted(Long id) {
+}
@@ -0,0 +1,5 @@
+package kmdb.movies_api.events;
+
+// Published after an actor is created or renamed
+public record ActorSaved(Long id, String name) {
+}
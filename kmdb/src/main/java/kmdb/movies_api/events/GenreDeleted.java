@@ -0,0 +1,5 @@
+package kmdb.movies_api.events;
+
+// Published after a genre is deleted
+public record GenreDeleted(Long id) {
+}
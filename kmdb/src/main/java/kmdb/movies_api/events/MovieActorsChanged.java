@@ -0,0 +1,7 @@
+package kmdb.movies_api.events;
+
+import java.util.Collection;
+
+// Published after actors are assigned to or removed from a movie
+public record MovieActorsChanged(Long movieId, Collection<Long> added, Collection<Long> removed) {
+}
@@ -0,0 +1,5 @@
+package kmdb.movies_api.events;
+
+// Published after a movie is deleted
+public record MovieDeleted(Long id) {
+}
@@ -0,0 +1,10 @@
+package kmdb.movies_api.events;
+
+import java.util.List;
+
+// Published after a flush of votes, with the new stored totals of every movie it changed
+public record MovieRatingsSaved(List<Totals> ratings) {
+
+    public record Totals(Long movieId, long votes, long starSum) {
+    }
+}
@@ -0,0 +1,5 @@
+package kmdb.movies_api.events;
+
+// Published after a movie is created or its title or release year changes
+public record MovieSaved(Long id, String title, int releaseYear) {
+}
@@ -1,6 +1,7 @@
 package kmdb.movies_api.exceptions;
 
 import jakarta.validation.ConstraintViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -121,4 +122,18 @@ public class ApiExceptionHandler {
 
         return new ResponseEntity<>(resourceAlreadyExists, HttpStatus.CONFLICT);
     }
+
+    @ExceptionHandler(OptimisticLockingFailureException.class) // entity changed by another request meanwhile
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public ResponseEntity<ApiException> handleConcurrentChange(OptimisticLockingFailureException exception) {
+        ArrayList<String> errors = new ArrayList<>();
+        errors.add("The resource was changed by another request, reload it and try again");
+
+        ApiException concurrentChange = new ApiException(
+                String.format(HttpStatus.CONFLICT.value() + " " + HttpStatus.CONFLICT.getReasonPhrase()),
+                errors
+        );
+
+        return new ResponseEntity<>(concurrentChange, HttpStatus.CONFLICT);
+    }
 }
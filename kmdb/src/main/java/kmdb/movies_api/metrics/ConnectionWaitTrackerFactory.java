@@ -0,0 +1,48 @@
+package kmdb.movies_api.metrics;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+// Hikari's pool metrics as before, plus the time spent waiting for a connection added to the
+// borrowing request's RequestSqlStats
+public class ConnectionWaitTrackerFactory implements MetricsTrackerFactory {
+
+    private final MetricsTrackerFactory delegate;
+
+    public ConnectionWaitTrackerFactory(MetricsTrackerFactory delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        IMetricsTracker tracker = delegate.create(poolName, poolStats);
+        return new IMetricsTracker() {
+            @Override
+            public void recordConnectionCreatedMillis(long connectionCreatedMillis) {
+                tracker.recordConnectionCreatedMillis(connectionCreatedMillis);
+            }
+
+            @Override
+            public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                tracker.recordConnectionAcquiredNanos(elapsedAcquiredNanos);
+                RequestSqlStats.current().connectionWaitNanos += elapsedAcquiredNanos;
+            }
+
+            @Override
+            public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+                tracker.recordConnectionUsageMillis(elapsedBorrowedMillis);
+            }
+
+            @Override
+            public void recordConnectionTimeout() {
+                tracker.recordConnectionTimeout();
+            }
+
+            @Override
+            public void close() {
+                tracker.close();
+            }
+        };
+    }
+}
@@ -0,0 +1,33 @@
+package kmdb.movies_api.metrics;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.stat.internal.StatisticsImpl;
+
+// Hibernate's statistics, which also count into the current request's RequestSqlStats
+public class RequestCountingStatistics extends StatisticsImpl {
+
+    public RequestCountingStatistics(SessionFactoryImplementor sessionFactory) {
+        super(sessionFactory);
+    }
+
+    @Override
+    public void prepareStatement() {
+        super.prepareStatement();
+        RequestSqlStats.current().statements++;
+    }
+
+    @Override
+    public void loadEntity(String entityName) {
+        super.loadEntity(entityName);
+        RequestSqlStats.current().entities++;
+    }
+
+    // rows of list results; streamed results are reported as -1 and not counted
+    @Override
+    public void queryExecuted(String query, int rows, long time) {
+        super.queryExecuted(query, rows, time);
+        if (rows > 0) {
+            RequestSqlStats.current().rows += rows;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package kmdb.movies_api.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// Database work per request, by endpoint: kmdb.request.sql.statements, kmdb.request.sql.rows,
+// kmdb.request.entities.loaded and kmdb.request.connection.wait, tagged with method and uri like
+// http.server.requests. An endpoint's meters are registered on its first request and only looked up
+// after that, so recording a request allocates nothing.
+public class RequestMetricsFilter extends OncePerRequestFilter {
+
+    private static final double[] COUNT_BUCKETS = {1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 10000};
+
+    private final MeterRegistry registry;
+    // method -> uri pattern -> meters
+    private final Map<String, Map<String, EndpointMeters>> endpoints = new ConcurrentHashMap<>();
+
+    public RequestMetricsFilter(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        RequestSqlStats stats = RequestSqlStats.current();
+        stats.reset();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            endpoint(request.getMethod(), pattern instanceof String uri ? uri : "UNKNOWN").record(stats);
+        }
+    }
+
+    private EndpointMeters endpoint(String method, String uri) {
+        Map<String, EndpointMeters> byUri = endpoints.get(method);
+        if (byUri == null) {
+            byUri = endpoints.computeIfAbsent(method, key -> new ConcurrentHashMap<>());
+        }
+        EndpointMeters meters = byUri.get(uri);
+        if (meters == null) {
+            meters = byUri.computeIfAbsent(uri, key -> new EndpointMeters(
+                    counts("kmdb.request.sql.statements", "SQL statements prepared per request", method, uri),
+                    counts("kmdb.request.sql.rows", "Rows returned by queries per request", method, uri),
+                    counts("kmdb.request.entities.loaded", "Entities built from rows per request", method, uri),
+                    Timer.builder("kmdb.request.connection.wait")
+                            .description("Time a request waited for pooled connections")
+                            .tags("method", method, "uri", uri)
+                            .publishPercentileHistogram()
+                            .maximumExpectedValue(Duration.ofSeconds(30))
+                            .register(registry)));
+        }
+        return meters;
+    }
+
+    private DistributionSummary counts(String name, String description, String method, String uri) {
+        return DistributionSummary.builder(name)
+                .description(description)
+                .tags("method", method, "uri", uri)
+                .serviceLevelObjectives(COUNT_BUCKETS)
+                .register(registry);
+    }
+
+    private record EndpointMeters(DistributionSummary statements, DistributionSummary rows,
+                                  DistributionSummary entities, Timer connectionWait) {
+
+        void record(RequestSqlStats stats) {
+            statements.record(stats.statements);
+            rows.record(stats.rows);
+            entities.record(stats.entities);
+            connectionWait.record(stats.connectionWaitNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package kmdb.movies_api.metrics;
+
+// Database work done on the current thread since the last reset: statements prepared, rows returned by
+// queries, entities built from rows and time spent waiting for a pooled connection. Hibernate and Hikari
+// report on the thread that does the work, so between RequestMetricsFilter's reset and its read these
+// are the numbers of one request. The holder is reused, so a pooled request thread allocates it once
+// (a virtual thread lives for one request and allocates one per request).
+final class RequestSqlStats {
+
+    private static final ThreadLocal<RequestSqlStats> current = ThreadLocal.withInitial(RequestSqlStats::new);
+
+    long statements;
+    long rows;
+    long entities;
+    long connectionWaitNanos;
+
+    static RequestSqlStats current() {
+        return current.get();
+    }
+
+    void reset() {
+        statements = 0;
+        rows = 0;
+        entities = 0;
+        connectionWaitNanos = 0;
+    }
+}
@@ -0,0 +1,11 @@
+package kmdb.movies_api.metrics;
+
+import java.time.Instant;
+import java.util.List;
+
+// A statement that took longer than the slow query threshold. repositoryMethod is null for statements
+// not run inside a repository method (flushes at commit, JdbcTemplate, streams read after the method
+// returned); caller is the application method the statement ran for.
+public record SlowQuery(Instant recordedAt, long millis, String sql, List<String> parameters, List<String> plan,
+                        String repositoryMethod, String caller, String requestId, String thread) {
+}
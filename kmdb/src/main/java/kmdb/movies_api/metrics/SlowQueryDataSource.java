@@ -0,0 +1,156 @@
+package kmdb.movies_api.metrics;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+
+// Data source whose statements are timed with their bind values kept, so the ones slower than the
+// recorder's threshold can be handed to SlowQueryRecorder. A query's time includes stepping through
+// its rows, since that is where SQLite does most of the work of a scan. It sits under the connection
+// pool, so a physical connection is wrapped once and only statements are wrapped per use.
+public class SlowQueryDataSource extends DelegatingDataSource {
+
+    private static final Object[] NO_PARAMETERS = {};
+
+    private final SlowQueryRecorder recorder;
+    private final long thresholdNanos;
+
+    public SlowQueryDataSource(DataSource target, SlowQueryRecorder recorder) {
+        super(target);
+        this.recorder = recorder;
+        this.thresholdNanos = recorder.thresholdNanos();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrap(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrap(super.getConnection(username, password));
+    }
+
+    private Connection wrap(Connection connection) {
+        return proxy(Connection.class, (proxy, method, args) -> {
+            Object result = call(connection, method, args);
+            if (result instanceof Statement statement) {
+                String sql = method.getName().startsWith("prepare") ? (String) args[0] : null;
+                return proxy(method.getReturnType(), new StatementHandler(connection, statement, sql));
+            }
+            return result;
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(SlowQueryDataSource.class.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    private static Object call(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    // One statement: the SQL, the values bound for the current execution and the time spent on it
+    private final class StatementHandler implements InvocationHandler {
+
+        private final Connection connection;
+        private final Statement statement;
+        private String sql;
+        private Object[] parameters = NO_PARAMETERS;
+        private int parameterCount;
+        // time of the execution whose rows are still being read, -1 when there is none
+        private long openQueryNanos = -1;
+
+        StatementHandler(Connection connection, Statement statement, String sql) {
+            this.connection = connection;
+            this.statement = statement;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.startsWith("execute")) {
+                finishQuery();
+                if (args != null && args.length > 0 && args[0] instanceof String text) {
+                    sql = text;
+                }
+                long start = System.nanoTime();
+                Object result = call(statement, method, args);
+                long elapsed = System.nanoTime() - start;
+                if (result instanceof ResultSet resultSet) {
+                    openQueryNanos = elapsed;
+                    return proxy(ResultSet.class, new ResultSetHandler(this, resultSet));
+                }
+                finished(elapsed);
+                return result;
+            }
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer index) {
+                bind(index, name.equals("setNull") ? null : args[1]);
+            } else if (name.equals("clearParameters")) {
+                parameterCount = 0;
+            } else if (name.equals("close")) {
+                finishQuery();
+            }
+            return call(statement, method, args);
+        }
+
+        private void bind(int index, Object value) {
+            if (index > parameters.length) {
+                parameters = Arrays.copyOf(parameters, Math.max(index, parameters.length * 2));
+            }
+            parameters[index - 1] = value;
+            parameterCount = Math.max(parameterCount, index);
+        }
+
+        void finishQuery() {
+            if (openQueryNanos >= 0) {
+                long elapsed = openQueryNanos;
+                openQueryNanos = -1;
+                finished(elapsed);
+            }
+        }
+
+        private void finished(long elapsedNanos) {
+            if (elapsedNanos >= thresholdNanos && sql != null) {
+                recorder.record(connection, sql, Arrays.copyOf(parameters, parameterCount), elapsedNanos);
+            }
+        }
+    }
+
+    // Adds the time spent in next() to the query, which is finished when the rows are closed
+    private record ResultSetHandler(StatementHandler statement, ResultSet resultSet) implements InvocationHandler {
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("next")) {
+                long start = System.nanoTime();
+                Object result = call(resultSet, method, args);
+                if (statement.openQueryNanos >= 0) {
+                    statement.openQueryNanos += System.nanoTime() - start;
+                }
+                return result;
+            }
+            if (name.equals("close")) {
+                statement.finishQuery();
+            }
+            return call(resultSet, method, args);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package kmdb.movies_api.metrics;
+
+import lombok.AllArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// GET /actuator/slowqueries lists the recorded slow statements newest first, DELETE clears them
+@Component
+@Endpoint(id = "slowqueries")
+@AllArgsConstructor
+public class SlowQueryEndpoint {
+
+    private final SlowQueryRecorder recorder;
+
+    @ReadOperation
+    public List<SlowQuery> slowQueries() {
+        return recorder.recent();
+    }
+
+    @DeleteOperation
+    public void clear() {
+        recorder.clear();
+    }
+}
@@ -0,0 +1,153 @@
+package kmdb.movies_api.metrics;
+
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+import org.springframework.core.env.Environment;
+import org.springframework.data.repository.Repository;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+// Keeps the last kmdb.slow-query.capacity statements slower than kmdb.slow-query.threshold-ms (reported
+// by SlowQueryDataSource) with their bind values, SQLite's query plan, the repository method and
+// application method that ran them and the request id, and logs each one. The work is only done for
+// slow statements, so a missing index can be found without logging every statement.
+@Slf4j
+@Component
+public class SlowQueryRecorder {
+
+    private static final Pattern EXPLAINABLE =
+            Pattern.compile("\\s*(SELECT|WITH|INSERT|UPDATE|DELETE|REPLACE)\\b", Pattern.CASE_INSENSITIVE);
+    private static final int MAX_VALUE_LENGTH = 200;
+    private static final String APPLICATION_PACKAGE = "kmdb.movies_api.";
+    private static final StackWalker stackWalker = StackWalker.getInstance(StackWalker.Option.RETAIN_CLASS_REFERENCE);
+
+    private final long thresholdNanos;
+    // ring buffer, next is where the following entry goes
+    private final SlowQuery[] recent;
+    private int next;
+
+    public SlowQueryRecorder(Environment env) {
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(env.getProperty("kmdb.slow-query.threshold-ms", Long.class, 200L));
+        this.recent = new SlowQuery[Math.max(1, env.getProperty("kmdb.slow-query.capacity", Integer.class, 100))];
+    }
+
+    // a threshold of 0 switches the recorder off
+    public boolean isEnabled() {
+        return thresholdNanos > 0;
+    }
+
+    long thresholdNanos() {
+        return thresholdNanos;
+    }
+
+    void record(Connection connection, String sql, Object[] parameters, long elapsedNanos) {
+        String[] source = source();
+        SlowQuery query = new SlowQuery(Instant.now(), TimeUnit.NANOSECONDS.toMillis(elapsedNanos), sql,
+                describe(parameters), explain(connection, sql, parameters), source[0], source[1],
+                MDC.get(RequestIdFilter.MDC_KEY), Thread.currentThread().getName());
+        log.warn("Slow query ({} ms) from {} in request {}: {} parameters {} plan {}", query.millis(),
+                query.repositoryMethod() != null ? query.repositoryMethod() : query.caller(), query.requestId(),
+                sql, query.parameters(), query.plan());
+        synchronized (recent) {
+            recent[next] = query;
+            next = (next + 1) % recent.length;
+        }
+    }
+
+    // newest first
+    public List<SlowQuery> recent() {
+        List<SlowQuery> queries = new ArrayList<>(recent.length);
+        synchronized (recent) {
+            for (int i = 1; i <= recent.length; i++) {
+                SlowQuery query = recent[(next - i + recent.length) % recent.length];
+                if (query == null) {
+                    break;
+                }
+                queries.add(query);
+            }
+        }
+        return queries;
+    }
+
+    public void clear() {
+        synchronized (recent) {
+            Arrays.fill(recent, null);
+            next = 0;
+        }
+    }
+
+    // SQLite's plan for the statement with the same values bound, one line per step, indented under
+    // its parent step like the sqlite3 shell prints it
+    private static List<String> explain(Connection connection, String sql, Object[] parameters) {
+        if (!EXPLAINABLE.matcher(sql).lookingAt()) {
+            return List.of();
+        }
+        try (PreparedStatement explain = connection.prepareStatement("EXPLAIN QUERY PLAN " + sql)) {
+            for (int i = 0; i < parameters.length; i++) {
+                explain.setObject(i + 1, parameters[i]);
+            }
+            List<String> plan = new ArrayList<>();
+            Map<Integer, Integer> depths = new HashMap<>();
+            try (ResultSet steps = explain.executeQuery()) {
+                while (steps.next()) {
+                    int parent = steps.getInt("parent");
+                    int depth = parent == 0 ? 0 : depths.getOrDefault(parent, 0) + 1;
+                    depths.put(steps.getInt("id"), depth);
+                    plan.add("  ".repeat(depth) + steps.getString("detail"));
+                }
+            }
+            return plan;
+        } catch (SQLException e) {
+            return List.of("plan unavailable: " + e.getMessage());
+        }
+    }
+
+    private static List<String> describe(Object[] parameters) {
+        List<String> values = new ArrayList<>(parameters.length);
+        for (Object parameter : parameters) {
+            String value = switch (parameter) {
+                case null -> "null";
+                case byte[] bytes -> "<" + bytes.length + " bytes>";
+                case String text -> "'" + text + "'";
+                default -> parameter.toString();
+            };
+            values.add(value.length() > MAX_VALUE_LENGTH ? value.substring(0, MAX_VALUE_LENGTH) + "..." : value);
+        }
+        return values;
+    }
+
+    // [repository method, application method] the statement ran for, found on the stack of the
+    // thread that ran it. Repositories are JDK proxies of their interfaces.
+    private static String[] source() {
+        String[] source = new String[2];
+        stackWalker.forEach(frame -> {
+            Class<?> type = frame.getDeclaringClass();
+            if (source[0] == null && Proxy.isProxyClass(type)) {
+                for (Class<?> implemented : type.getInterfaces()) {
+                    if (Repository.class.isAssignableFrom(implemented) && implemented.getName().startsWith(APPLICATION_PACKAGE)) {
+                        source[0] = implemented.getSimpleName() + "." + frame.getMethodName();
+                    }
+                }
+            } else if (source[1] == null && type.getName().startsWith(APPLICATION_PACKAGE)
+                    && !type.getPackageName().endsWith(".metrics") && !type.getPackageName().endsWith(".repositories")) {
+                String name = type.getSimpleName();
+                int generated = name.indexOf("$$");
+                source[1] = (generated > 0 ? name.substring(0, generated) : name) + "." + frame.getMethodName();
+            }
+        });
+        return source;
+    }
+}
@@ -0,0 +1,26 @@
+package kmdb.movies_api.metrics;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+// Logs the SQL Hibernate prepares through the kmdb.sql logger, every statement or a random one in
+// sampleEvery, instead of show-sql's System.out on every query
+@Slf4j(topic = "kmdb.sql")
+public class SqlStatementLog implements StatementInspector {
+
+    private final int sampleEvery;
+
+    public SqlStatementLog(int sampleEvery) {
+        this.sampleEvery = sampleEvery;
+    }
+
+    @Override
+    public String inspect(String sql) {
+        if (sampleEvery <= 1 || ThreadLocalRandom.current().nextInt(sampleEvery) == 0) {
+            log.info(sql);
+        }
+        return sql;
+    }
+}
@@ -0,0 +1,19 @@
+package kmdb.movies_api.pagination;
+
+import java.util.List;
+import java.util.function.Function;
+
+// One keyset page; next is null on the last page
+public record CursorPage<T>(List<T> content, int size, String next) {
+
+    // Builds a page from up to size + 1 fetched rows, the extra row only tells that a next page exists
+    public static <R, T> CursorPage<T> of(List<R> rows, int size,
+                                          Function<R, KeysetCursor> cursorAfter,
+                                          Function<List<R>, List<T>> mapper) {
+        if (rows.size() <= size) {
+            return new CursorPage<>(mapper.apply(rows), size, null);
+        }
+        List<R> page = rows.subList(0, size);
+        return new CursorPage<>(mapper.apply(page), size, cursorAfter.apply(page.get(size - 1)).encode());
+    }
+}
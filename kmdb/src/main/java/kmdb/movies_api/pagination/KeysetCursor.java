@@ -0,0 +1,41 @@
+package kmdb.movies_api.pagination;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+// Position after the last row of a keyset page: the sort key, the last id and (for name/title sorts)
+// the last sort value. Clients get it as an opaque URL-safe token and send it back unchanged.
+public record KeysetCursor(String sort, long id, String value) {
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    // Cursor before the first row for the given sort
+    public static KeysetCursor first(String sort) {
+        return new KeysetCursor(sort, 0L, "");
+    }
+
+    public String encode() {
+        String raw = sort + '\n' + id + '\n' + value;
+        return ENCODER.encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Decodes a token, or returns the first-page cursor for the default sort when the token is empty
+    public static KeysetCursor decode(String token, String defaultSort) {
+        if (token == null || token.isEmpty()) {
+            return first(defaultSort);
+        }
+        try {
+            String raw = new String(DECODER.decode(token), StandardCharsets.UTF_8);
+            int first = raw.indexOf('\n');
+            int second = raw.indexOf('\n', first + 1);
+            if (first < 0 || second < 0) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return new KeysetCursor(raw.substring(0, first), Long.parseLong(raw.substring(first + 1, second)),
+                    raw.substring(second + 1));
+        } catch (IllegalArgumentException e) { // also covers bad Base64 and NumberFormatException
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
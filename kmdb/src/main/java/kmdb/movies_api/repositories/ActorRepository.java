@@ -1,14 +1,26 @@
 package kmdb.movies_api.repositories;
 
+import jakarta.persistence.QueryHint;
 import kmdb.movies_api.entities.Actor;
+import kmdb.movies_api.repositories.projections.NamedRow;
+import kmdb.movies_api.repositories.projections.VersionRow;
+import kmdb.movies_api.repositories.projections.VersionSummaryRow;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 @Repository
 public interface ActorRepository
@@ -21,4 +33,52 @@ public interface ActorRepository
     // Query to search actors by name (case-insensitive, partial match)
     @Query("SELECT actor FROM Actor actor WHERE LOWER(actor.name) LIKE LOWER(CONCAT('%', :name, '%'))")
     List<Actor> findByNameContainingIgnoreCase(@Param("name") String name);
+
+    // Page without the COUNT(*) query
+    @Query("SELECT actor FROM Actor actor")
+    Slice<Actor> findSlice(Pageable pageable);
+
+    // Keyset pages: seek past the last row instead of skipping OFFSET rows
+    @Query("SELECT actor FROM Actor actor WHERE actor.id > :afterId ORDER BY actor.id")
+    List<Actor> findAfterId(@Param("afterId") long afterId, Limit limit);
+
+    @Query("SELECT actor FROM Actor actor WHERE actor.name > :afterName " +
+            "OR (actor.name = :afterName AND actor.id > :afterId) ORDER BY actor.name, actor.id")
+    List<Actor> findAfterName(@Param("afterName") String afterName, @Param("afterId") long afterId, Limit limit);
+
+    // Ids of actors whose name matches an FTS5 expression, best bm25 rank first
+    @Query(value = "SELECT rowid FROM actor_fts WHERE actor_fts MATCH :query ORDER BY rank LIMIT :limit", nativeQuery = true)
+    List<Long> findIdsByNameMatch(@Param("query") String query, @Param("limit") int limit);
+
+    // Movies the actor appears in, counted on the join table's actor index
+    @Query(value = "SELECT COUNT(*) FROM actors WHERE actor_id = :actorId", nativeQuery = true)
+    long countMovies(@Param("actorId") Long actorId);
+
+    // All ids and names as a cursor over the result set, must be consumed inside a transaction
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT new kmdb.movies_api.repositories.projections.NamedRow(actor.id, actor.name) FROM Actor actor")
+    Stream<NamedRow> streamNames();
+
+    // Which of the given ids exist, without loading the entities
+    @Query("SELECT actor.id FROM Actor actor WHERE actor.id IN :ids")
+    Set<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    // Names of the given actors, without loading the entities
+    @Query("SELECT new kmdb.movies_api.repositories.projections.NamedRow(actor.id, actor.name) " +
+            "FROM Actor actor WHERE actor.id IN :ids")
+    List<NamedRow> findNamesByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Version and last change of one actor for conditional GETs, without loading it
+    @Query("SELECT new kmdb.movies_api.repositories.projections.VersionRow(actor.version, actor.updatedAt) " +
+            "FROM Actor actor WHERE actor.id = :id")
+    Optional<VersionRow> findVersionById(@Param("id") Long id);
+
+    // Summary of all actors behind the ETag of the full list, cached until the actor table changes
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "query.list-versions")
+    })
+    @Query("SELECT new kmdb.movies_api.repositories.projections.VersionSummaryRow(" +
+            "COUNT(actor), COALESCE(SUM(actor.id), 0), COALESCE(SUM(actor.version), 0), COALESCE(MAX(actor.updatedAt), 0)) FROM Actor actor")
+    VersionSummaryRow findVersionSummary();
 }
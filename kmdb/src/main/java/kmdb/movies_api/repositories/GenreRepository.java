@@ -1,17 +1,33 @@
 package kmdb.movies_api.repositories;
 
+import jakarta.persistence.QueryHint;
 import kmdb.movies_api.entities.Genre;
+import kmdb.movies_api.repositories.projections.VersionRow;
+import kmdb.movies_api.repositories.projections.VersionSummaryRow;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.lang.NonNull;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @Repository
 public interface GenreRepository extends JpaRepository<Genre, Long> {
 
+    // The whole genre list, served from the query cache until the genre table changes
+    @NonNull
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "query.genres")
+    })
+    List<Genre> findAll();
+
     // Query to find genres by name (case-insensitive, partial match)
     @Query("SELECT g FROM Genre g WHERE LOWER(g.name) LIKE LOWER(CONCAT('%', :name, '%'))")
     List<Genre> findByNameContainingIgnoreCase(@Param("name") String name);
@@ -19,4 +35,26 @@ public interface GenreRepository extends JpaRepository<Genre, Long> {
     // Query to find genres by exact name (case-insensitive)
     @Query("SELECT g FROM Genre g WHERE LOWER(g.name) = LOWER(:name)")
     Optional<Genre> findByName(@Param("name") String name);
+
+    // Which of the given ids exist, without loading the entities
+    @Query("SELECT g.id FROM Genre g WHERE g.id IN :ids")
+    Set<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    // Movies with the genre, counted on the join table's genre index
+    @Query(value = "SELECT COUNT(*) FROM genres WHERE genre_id = :genreId", nativeQuery = true)
+    long countMovies(@Param("genreId") Long genreId);
+
+    // Version and last change of one genre for conditional GETs, without loading it
+    @Query("SELECT new kmdb.movies_api.repositories.projections.VersionRow(g.version, g.updatedAt) " +
+            "FROM Genre g WHERE g.id = :id")
+    Optional<VersionRow> findVersionById(@Param("id") Long id);
+
+    // Summary of all genres behind the ETag of the genre list, cached until the genre table changes
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "query.list-versions")
+    })
+    @Query("SELECT new kmdb.movies_api.repositories.projections.VersionSummaryRow(" +
+            "COUNT(g), COALESCE(SUM(g.id), 0), COALESCE(SUM(g.version), 0), COALESCE(MAX(g.updatedAt), 0)) FROM Genre g")
+    VersionSummaryRow findVersionSummary();
 }
@@ -1,20 +1,38 @@
 package kmdb.movies_api.repositories;
 
+import jakarta.persistence.QueryHint;
 import kmdb.movies_api.entities.Actor;
 import kmdb.movies_api.entities.Genre;
 import kmdb.movies_api.entities.Movie;
+import kmdb.movies_api.repositories.projections.MovieLinkRow;
+import kmdb.movies_api.repositories.projections.MovieReferenceRow;
+import kmdb.movies_api.repositories.projections.MovieRow;
+import kmdb.movies_api.repositories.projections.MovieVersionRow;
+import kmdb.movies_api.repositories.projections.MovieYearRow;
+import kmdb.movies_api.repositories.projections.NamedRow;
+import kmdb.movies_api.repositories.projections.VersionSummaryRow;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.lang.NonNull;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.stream.Stream;
 
-public interface MovieRepository extends JpaRepository<Movie, Long> {
+public interface MovieRepository
+        extends JpaRepository<Movie, Long>, JpaSpecificationExecutor<Movie>, MovieRowQueries {
 
     // Search movies by title (case-insensitive)
     @Query("SELECT m FROM Movie m WHERE LOWER(m.title) LIKE LOWER(CONCAT('%', :title, '%'))")
@@ -32,6 +50,11 @@ public interface MovieRepository extends JpaRepository<Movie, Long> {
     @Query("SELECT m FROM Movie m WHERE :actor MEMBER OF m.actors")
     Set<Movie> findAllByActorsContains(@Param("actor") Actor actor);
 
+    // Single movie together with its actors and genres in one select
+    @NonNull
+    @EntityGraph(Movie.WITH_ACTORS_AND_GENRES)
+    Optional<Movie> findById(@NonNull Long id);
+
     // Pagination: Retrieve all movies with pageable
     @NonNull
     Page<Movie> findAll(@NonNull Pageable pageable);
@@ -46,4 +69,110 @@ public interface MovieRepository extends JpaRepository<Movie, Long> {
     "JOIN m.genres g " +
     "WHERE a.id = :actorId AND g.id = :genreId")
     List<Movie> findMoviesByActorAndGenre(@Param("actorId") Long actorId, @Param("genreId") Long genreId);
+
+    // Projection queries used by the listing endpoints, they select only the emitted columns
+    String MOVIE_ROW = "SELECT new kmdb.movies_api.repositories.projections.MovieRow(" +
+            "m.id, m.title, m.releaseYear, m.duration, m.starRating) FROM Movie m";
+
+    @Query(value = MOVIE_ROW, countQuery = "SELECT COUNT(m) FROM Movie m")
+    Page<MovieRow> findAllRows(Pageable pageable);
+
+    // Cached until the movie table changes, together with the reference lookups below
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "query.movies-by-year")
+    })
+    @Query(MOVIE_ROW + " WHERE m.releaseYear = :releaseYear")
+    List<MovieRow> findRowsByReleaseYear(@Param("releaseYear") int releaseYear);
+
+    @Query(MOVIE_ROW + " JOIN m.actors a WHERE a.id = :actorId")
+    List<MovieRow> findRowsByActorId(@Param("actorId") Long actorId);
+
+    @Query(MOVIE_ROW + " JOIN m.genres g WHERE g.id = :genreId")
+    List<MovieRow> findRowsByGenreId(@Param("genreId") Long genreId);
+
+    // Actor and genre id/name pairs for a set of movies
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "query.movie-references")
+    })
+    @Query("SELECT new kmdb.movies_api.repositories.projections.MovieReferenceRow(m.id, a.id, a.name) " +
+            "FROM Movie m JOIN m.actors a WHERE m.id IN :movieIds")
+    List<MovieReferenceRow> findActorReferences(@Param("movieIds") Collection<Long> movieIds);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "query.movie-references")
+    })
+    @Query("SELECT new kmdb.movies_api.repositories.projections.MovieReferenceRow(m.id, g.id, g.name) " +
+            "FROM Movie m JOIN m.genres g WHERE m.id IN :movieIds")
+    List<MovieReferenceRow> findGenreReferences(@Param("movieIds") Collection<Long> movieIds);
+
+    // Ids of a movie's actors and genres, read from the join tables only
+    @Query("SELECT a.id FROM Movie m JOIN m.actors a WHERE m.id = :movieId")
+    Set<Long> findActorIds(@Param("movieId") Long movieId);
+
+    @Query("SELECT g.id FROM Movie m JOIN m.genres g WHERE m.id = :movieId")
+    Set<Long> findGenreIds(@Param("movieId") Long movieId);
+
+    // Page without the COUNT(*) query, Spring Data reads one extra row to know if there is a next slice
+    @Query(MOVIE_ROW)
+    Slice<MovieRow> findRowSlice(Pageable pageable);
+
+    // Keyset pages: seek past the last row instead of skipping OFFSET rows
+    @Query(MOVIE_ROW + " WHERE m.id > :afterId ORDER BY m.id")
+    List<MovieRow> findRowsAfterId(@Param("afterId") long afterId, Limit limit);
+
+    @Query(MOVIE_ROW + " WHERE m.title > :afterTitle OR (m.title = :afterTitle AND m.id > :afterId) ORDER BY m.title, m.id")
+    List<MovieRow> findRowsAfterTitle(@Param("afterTitle") String afterTitle, @Param("afterId") long afterId, Limit limit);
+
+    // Ids of movies whose title matches an FTS5 expression, best bm25 rank first
+    @Query(value = "SELECT rowid FROM movie_fts WHERE movie_fts MATCH :query ORDER BY rank LIMIT :limit", nativeQuery = true)
+    List<Long> findIdsByTitleMatch(@Param("query") String query, @Param("limit") int limit);
+
+    @Query(MOVIE_ROW + " WHERE m.id IN :ids")
+    List<MovieRow> findRowsByIdIn(@Param("ids") Collection<Long> ids);
+
+    // All ids and titles as a cursor over the result set, must be consumed inside a transaction
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT new kmdb.movies_api.repositories.projections.NamedRow(m.id, m.title) FROM Movie m")
+    Stream<NamedRow> streamTitles();
+
+    // Titles of the given movies, without loading the entities
+    @Query("SELECT new kmdb.movies_api.repositories.projections.NamedRow(m.id, m.title) FROM Movie m WHERE m.id IN :ids")
+    List<NamedRow> findTitlesByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Release years and actor and genre links of all movies for the browse facets, as cursors that
+    // must be consumed inside a transaction
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT new kmdb.movies_api.repositories.projections.MovieYearRow(m.id, m.releaseYear) FROM Movie m")
+    Stream<MovieYearRow> streamReleaseYears();
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT new kmdb.movies_api.repositories.projections.MovieLinkRow(m.id, a.id) FROM Movie m JOIN m.actors a")
+    Stream<MovieLinkRow> streamActorLinks();
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT new kmdb.movies_api.repositories.projections.MovieLinkRow(m.id, g.id) FROM Movie m JOIN m.genres g")
+    Stream<MovieLinkRow> streamGenreLinks();
+
+    // Version, star rating and last change of one movie for conditional GETs, without loading it or its graph
+    @Query("SELECT new kmdb.movies_api.repositories.projections.MovieVersionRow(m.version, m.starRating, m.updatedAt) " +
+            "FROM Movie m WHERE m.id = :id")
+    Optional<MovieVersionRow> findVersionById(@Param("id") Long id);
+
+    // Summary of all movies behind the ETag of the movie lists, cached until the movie table changes
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "query.list-versions")
+    })
+    @Query("SELECT new kmdb.movies_api.repositories.projections.VersionSummaryRow(" +
+            "COUNT(m), COALESCE(SUM(m.id), 0), COALESCE(SUM(m.version), 0), COALESCE(MAX(m.updatedAt), 0)) FROM Movie m")
+    VersionSummaryRow findVersionSummary();
+
+    // Marks the movies an actor plays in as changed, since their representations include the actor
+    @Modifying
+    @Query("UPDATE Movie m SET m.version = m.version + 1, m.updatedAt = :now " +
+            "WHERE m.id IN (SELECT m2.id FROM Movie m2 JOIN m2.actors a WHERE a.id = :actorId)")
+    int touchMoviesWithActor(@Param("actorId") Long actorId, @Param("now") long now);
 }
@@ -0,0 +1,15 @@
+package kmdb.movies_api.repositories;
+
+import kmdb.movies_api.entities.Movie;
+import kmdb.movies_api.repositories.projections.MovieRow;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+// Specification queries that select MovieRow projections instead of Movie entities
+public interface MovieRowQueries {
+
+    // One page of the matching rows ordered by id, without the count query
+    List<MovieRow> findRows(Specification<Movie> spec, Pageable pageable);
+}
@@ -0,0 +1,38 @@
+package kmdb.movies_api.repositories;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import kmdb.movies_api.entities.Movie;
+import kmdb.movies_api.repositories.projections.MovieRow;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+class MovieRowQueriesImpl implements MovieRowQueries {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<MovieRow> findRows(Specification<Movie> spec, Pageable pageable) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<MovieRow> query = cb.createQuery(MovieRow.class);
+        Root<Movie> movie = query.from(Movie.class);
+        query.select(cb.construct(MovieRow.class, movie.get("id"), movie.get("title"),
+                movie.get("releaseYear"), movie.get("duration"), movie.get("starRating")));
+        Predicate where = spec.toPredicate(movie, query, cb);
+        if (where != null) {
+            query.where(where);
+        }
+        query.orderBy(cb.asc(movie.get("id")));
+        return entityManager.createQuery(query)
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize())
+                .getResultList();
+    }
+}
@@ -0,0 +1,66 @@
+package kmdb.movies_api.repositories;
+
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+import kmdb.movies_api.entities.Movie;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+// Building blocks of the combined movie filter. Each one is a plain WHERE condition on the movie
+// row, so any combination is still a single statement that SQLite can drive from the most selective index.
+public final class MovieSpecifications {
+
+    private MovieSpecifications() {
+    }
+
+    // Both bounds are inclusive, either may be null
+    public static Specification<Movie> releasedBetween(Integer from, Integer to) {
+        return between("releaseYear", from, to);
+    }
+
+    public static Specification<Movie> durationBetween(Integer min, Integer max) {
+        return between("duration", min, max);
+    }
+
+    public static Specification<Movie> ratedAtLeast(int stars) {
+        return (movie, query, cb) -> cb.ge(movie.get("starRating"), stars);
+    }
+
+    // Movies featuring every one of the actors
+    public static Specification<Movie> withAllActors(Collection<Long> actorIds) {
+        return linkedToAll("actors", actorIds);
+    }
+
+    public static Specification<Movie> inAllGenres(Collection<Long> genreIds) {
+        return linkedToAll("genres", genreIds);
+    }
+
+    private static Specification<Movie> between(String attribute, Integer min, Integer max) {
+        return (movie, query, cb) -> {
+            if (min == null) {
+                return max == null ? null : cb.le(movie.get(attribute), max);
+            }
+            return max == null ? cb.ge(movie.get(attribute), min) : cb.between(movie.get(attribute), min, max);
+        };
+    }
+
+    // movie.id IN (ids of the movies linked to all of the given ids), read from the join table's
+    // (target id, movie_id) index instead of joining the movie row once per id
+    private static Specification<Movie> linkedToAll(String association, Collection<Long> ids) {
+        Set<Long> distinct = new LinkedHashSet<>(ids);
+        return (movie, query, cb) -> {
+            Subquery<Long> linked = query.subquery(Long.class);
+            Root<Movie> owner = linked.from(Movie.class);
+            Join<Movie, ?> target = owner.join(association);
+            linked.select(owner.get("id"))
+                    .where(target.get("id").in(distinct))
+                    .groupBy(owner.get("id"))
+                    .having(cb.equal(cb.count(target), (long) distinct.size()));
+            return movie.get("id").in(linked);
+        };
+    }
+}
@@ -0,0 +1,5 @@
+package kmdb.movies_api.repositories.projections;
+
+// Id of one actor or genre linked to a movie
+public record MovieLinkRow(Long movieId, Long id) {
+}
@@ -0,0 +1,5 @@
+package kmdb.movies_api.repositories.projections;
+
+// One actor or genre linked to a movie, read straight from the join table
+public record MovieReferenceRow(Long movieId, Long id, String name) {
+}
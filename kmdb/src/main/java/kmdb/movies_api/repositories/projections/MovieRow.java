@@ -0,0 +1,5 @@
+package kmdb.movies_api.repositories.projections;
+
+// Scalar movie columns read by the listing queries, without hydrating a Movie entity
+public record MovieRow(Long id, String title, int releaseYear, int duration, int starRating) {
+}
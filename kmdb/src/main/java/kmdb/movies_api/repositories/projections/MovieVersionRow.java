@@ -0,0 +1,12 @@
+package kmdb.movies_api.repositories.projections;
+
+// Version, star rating and last change (epoch millis) of one movie. Rating flushes change the star
+// rating without a new version, so a movie's representation is identified by both.
+public record MovieVersionRow(long version, int starRating, long updatedAt) {
+
+    // The movie's strong ETag, "<version>.<stars>", with a suffix for a body in a content coding
+    // (null when it is not encoded)
+    public String etag(String coding) {
+        return "\"" + version + "." + starRating + (coding == null ? "" : "-" + coding) + "\"";
+    }
+}
@@ -0,0 +1,5 @@
+package kmdb.movies_api.repositories.projections;
+
+// Id and release year of a movie
+public record MovieYearRow(Long id, int releaseYear) {
+}
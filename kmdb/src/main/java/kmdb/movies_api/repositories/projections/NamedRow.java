@@ -0,0 +1,5 @@
+package kmdb.movies_api.repositories.projections;
+
+// Id with the title of a movie or the name of an actor
+public record NamedRow(Long id, String name) {
+}
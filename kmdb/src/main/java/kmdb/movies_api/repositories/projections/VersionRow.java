@@ -0,0 +1,5 @@
+package kmdb.movies_api.repositories.projections;
+
+// Version and last change (epoch millis) of one entity, read without loading it
+public record VersionRow(long version, long updatedAt) {
+}
@@ -0,0 +1,7 @@
+package kmdb.movies_api.repositories.projections;
+
+// Row count, the sums of ids and versions and the latest change of a whole table. Inserts and
+// deletes move the count or the id sum, updates the version sum; a row imported under the id of a
+// deleted one leaves those as they were, but it was written later than any row before it.
+public record VersionSummaryRow(long count, long idSum, long versionSum, long lastUpdatedAt) {
+}
@@ -0,0 +1,432 @@
+package kmdb.movies_api.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Actors and the movies they play in as a bipartite graph, for co-stars and degrees of separation.
+// Actors and movies live in dense int slots, and each side keeps its links in CSR form: one offsets
+// array and one array with the ascending neighbour slots of every row, laid out by a bulk build.
+// A single change copies the rows it touches out of the shared array, so an edit costs the degree
+// of one actor and one movie; a side is laid out again once its copied rows hold a quarter of its
+// links. Removing a movie or an actor only empties its rows, the slots stay.
+public class CoStarGraph {
+
+    private static final int[] NO_SLOTS = new int[0];
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int MIN_COPIED_TO_COMPACT = 4096;
+    private static final int ROOT = -1;
+    // most shared movies first, then by id
+    private static final Comparator<CoStar> BY_SHARED =
+            Comparator.comparingInt(CoStar::sharedMovies).reversed().thenComparingLong(CoStar::actorId);
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // rows of actors list movie slots, rows of movies list actor slots
+    private final Side actors;
+    private final Side movies;
+
+    public record CoStar(long actorId, int sharedMovies) {
+    }
+
+    // total counts every co-star, first only the leading ones
+    public record CoStars(int total, List<CoStar> first) {
+    }
+
+    // movieIds[i] links actorIds[i] and actorIds[i + 1], so the degrees of separation are movieIds.length
+    public record Path(long[] actorIds, long[] movieIds) {
+    }
+
+    public CoStarGraph() {
+        this(new Side(INITIAL_CAPACITY), new Side(INITIAL_CAPACITY));
+    }
+
+    private CoStarGraph(Side actors, Side movies) {
+        this.actors = actors;
+        this.movies = movies;
+    }
+
+    // Lays out the first count links (movieIds[i] plays actorIds[i]) in one pass: two counting sorts
+    // instead of one insert per link; duplicates are dropped
+    public static CoStarGraph build(long[] movieIds, long[] actorIds, int count) {
+        Side actors = new Side(INITIAL_CAPACITY);
+        Side movies = new Side(INITIAL_CAPACITY);
+        int[] movieSlots = new int[count];
+        int[] actorSlots = new int[count];
+        for (int i = 0; i < count; i++) {
+            movieSlots[i] = movies.slot(movieIds[i]);
+            actorSlots[i] = actors.slot(actorIds[i]);
+        }
+        actors.layOut(actorSlots, movieSlots, count);
+        movies.layOut(movieSlots, actorSlots, count);
+        return new CoStarGraph(actors, movies);
+    }
+
+    public void addActor(long movieId, long actorId) {
+        lock.writeLock().lock();
+        try {
+            int movie = movies.slot(movieId);
+            int actor = actors.slot(actorId);
+            if (actors.insert(actor, movie)) {
+                movies.insert(movie, actor);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeActor(long movieId, long actorId) {
+        lock.writeLock().lock();
+        try {
+            int movie = movies.find(movieId);
+            int actor = actors.find(actorId);
+            if (movie >= 0 && actor >= 0 && actors.delete(actor, movie)) {
+                movies.delete(movie, actor);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeMovie(long movieId) {
+        lock.writeLock().lock();
+        try {
+            unlinkAll(movies, actors, movies.find(movieId));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Unlinks a deleted actor from all of its movies
+    public void dropActor(long actorId) {
+        lock.writeLock().lock();
+        try {
+            unlinkAll(actors, movies, actors.find(actorId));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public long links() {
+        lock.readLock().lock();
+        try {
+            return actors.links;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Actors who played with the actor, most shared movies first. Every co-star slot reached through
+    // the actor's movies is collected and sorted, so equal slots end up next to each other and are
+    // counted without a map; the work is the sum of the cast sizes of the actor's movies.
+    public CoStars coStars(long actorId, int limit) {
+        lock.readLock().lock();
+        try {
+            int actor = actors.find(actorId);
+            if (actor < 0) {
+                return new CoStars(0, List.of());
+            }
+            int reached = 0;
+            for (int i = 0, movieCount = actors.degree(actor); i < movieCount; i++) {
+                reached += movies.degree(actors.neighbour(actor, i)) - 1;
+            }
+            int[] slots = new int[Math.max(reached, 0)];
+            int size = 0;
+            for (int i = 0, movieCount = actors.degree(actor); i < movieCount; i++) {
+                int movie = actors.neighbour(actor, i);
+                for (int j = 0, castSize = movies.degree(movie); j < castSize; j++) {
+                    int coStar = movies.neighbour(movie, j);
+                    if (coStar != actor) {
+                        slots[size++] = coStar;
+                    }
+                }
+            }
+            Arrays.sort(slots, 0, size);
+
+            // bounded heap over the runs, the weakest of the current top on top
+            PriorityQueue<CoStar> top = new PriorityQueue<>(Math.min(limit, size) + 1, BY_SHARED.reversed());
+            int total = 0;
+            for (int start = 0, end; start < size; start = end) {
+                end = start + 1;
+                while (end < size && slots[end] == slots[start]) {
+                    end++;
+                }
+                total++;
+                top.add(new CoStar(actors.ids[slots[start]], end - start));
+                if (top.size() > limit) {
+                    top.poll();
+                }
+            }
+            List<CoStar> first = new ArrayList<>(top);
+            first.sort(BY_SHARED);
+            return new CoStars(total, first);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // A shortest chain of movies from one actor to another, or null when there is none within
+    // maxDegrees movies or the search would visit more than maxVisited actors and movies.
+    // Breadth-first from both ends, always widening the smaller frontier by one whole level: the
+    // first node reached from both sides lies on a shortest path, and two searches of half the
+    // depth visit far fewer nodes than one of the full depth in a graph this well connected.
+    public Path path(long fromActorId, long toActorId, int maxDegrees, int maxVisited) {
+        lock.readLock().lock();
+        try {
+            int from = actors.find(fromActorId);
+            int to = actors.find(toActorId);
+            if (from < 0 || to < 0) {
+                return null;
+            }
+            if (from == to) {
+                return new Path(new long[]{fromActorId}, new long[0]);
+            }
+            // nodes are coded as slot * 2, plus one for movies; both maps point to the parent
+            LongIntMap parentsFrom = new LongIntMap(64);
+            LongIntMap parentsTo = new LongIntMap(64);
+            parentsFrom.put(code(from, false), ROOT);
+            parentsTo.put(code(to, false), ROOT);
+            int[] frontierFrom = {code(from, false)};
+            int[] frontierTo = {code(to, false)};
+            int depth = 0;
+
+            while (depth < 2 * maxDegrees && frontierFrom.length > 0 && frontierTo.length > 0) {
+                boolean forward = frontierFrom.length <= frontierTo.length;
+                LongIntMap parents = forward ? parentsFrom : parentsTo;
+                LongIntMap others = forward ? parentsTo : parentsFrom;
+                int[] frontier = forward ? frontierFrom : frontierTo;
+
+                int[] next = new int[Math.max(16, frontier.length)];
+                int size = 0;
+                for (int node : frontier) {
+                    Side side = isMovie(node) ? movies : actors;
+                    int slot = node >>> 1;
+                    for (int i = 0, degree = side.degree(slot); i < degree; i++) {
+                        int neighbour = code(side.neighbour(slot, i), !isMovie(node));
+                        if (parents.get(neighbour) != LongIntMap.MISSING) {
+                            continue;
+                        }
+                        parents.put(neighbour, node);
+                        if (others.get(neighbour) != LongIntMap.MISSING) {
+                            return path(neighbour, parentsFrom, parentsTo);
+                        }
+                        if (size == next.length) {
+                            next = Arrays.copyOf(next, size * 2);
+                        }
+                        next[size++] = neighbour;
+                    }
+                    if (parentsFrom.size() + parentsTo.size() > maxVisited) {
+                        return null;
+                    }
+                }
+                if (forward) {
+                    frontierFrom = Arrays.copyOf(next, size);
+                } else {
+                    frontierTo = Arrays.copyOf(next, size);
+                }
+                depth++;
+            }
+            return null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Path path(int meeting, LongIntMap parentsFrom, LongIntMap parentsTo) {
+        List<Integer> nodes = new ArrayList<>();
+        for (int node = meeting; node != ROOT; node = parentsFrom.get(node)) {
+            nodes.add(0, node);
+        }
+        for (int node = parentsTo.get(meeting); node != ROOT; node = parentsTo.get(node)) {
+            nodes.add(node);
+        }
+        long[] actorIds = new long[nodes.size() / 2 + 1];
+        long[] movieIds = new long[nodes.size() / 2];
+        for (int i = 0; i < nodes.size(); i++) {
+            int node = nodes.get(i);
+            if (isMovie(node)) {
+                movieIds[i / 2] = movies.ids[node >>> 1];
+            } else {
+                actorIds[i / 2] = actors.ids[node >>> 1];
+            }
+        }
+        return new Path(actorIds, movieIds);
+    }
+
+    private static int code(int slot, boolean movie) {
+        return slot << 1 | (movie ? 1 : 0);
+    }
+
+    private static boolean isMovie(int node) {
+        return (node & 1) == 1;
+    }
+
+    // empties the row of a node and takes the node out of the rows of its neighbours
+    private static void unlinkAll(Side side, Side otherSide, int slot) {
+        if (slot < 0) {
+            return;
+        }
+        for (int neighbour : side.row(slot)) {
+            otherSide.delete(neighbour, slot);
+        }
+        side.replace(slot, NO_SLOTS);
+    }
+
+    // One side of the graph: ids by slot and the rows of every slot, in the shared CSR arrays or,
+    // once changed or for slots added after the last layout, copied out into rows of their own
+    private static final class Side {
+        long[] ids;
+        private final LongIntMap slots;
+        private int count;
+
+        // the row of slot s is targets[offsets[s]] .. targets[offsets[s + 1] - 1] unless copied[s]
+        // is set, which it always is for slots added since the last layout
+        private int[] offsets = {0};
+        private int[] targets = NO_SLOTS;
+        private int[][] copied;
+        private long copiedLinks;
+        long links;
+
+        Side(int capacity) {
+            ids = new long[capacity];
+            copied = new int[capacity][];
+            slots = new LongIntMap(capacity);
+        }
+
+        // the slot of an id, or -1
+        int find(long id) {
+            int slot = slots.get(id);
+            return slot == LongIntMap.MISSING ? -1 : slot;
+        }
+
+        // the slot of an id, a new one with an empty row if it has none yet
+        int slot(long id) {
+            int slot = slots.get(id);
+            if (slot != LongIntMap.MISSING) {
+                return slot;
+            }
+            if (count == ids.length) {
+                ids = Arrays.copyOf(ids, count * 2);
+                copied = Arrays.copyOf(copied, count * 2);
+            }
+            ids[count] = id;
+            copied[count] = NO_SLOTS;
+            slots.put(id, count);
+            return count++;
+        }
+
+        int degree(int slot) {
+            int[] row = copied[slot];
+            return row != null ? row.length : offsets[slot + 1] - offsets[slot];
+        }
+
+        int neighbour(int slot, int i) {
+            int[] row = copied[slot];
+            return row != null ? row[i] : targets[offsets[slot] + i];
+        }
+
+        int[] row(int slot) {
+            int[] row = copied[slot];
+            return row != null ? row : Arrays.copyOfRange(targets, offsets[slot], offsets[slot + 1]);
+        }
+
+        // adds a neighbour to the row, false when it is already there
+        boolean insert(int slot, int neighbour) {
+            int[] row = row(slot);
+            int i = Arrays.binarySearch(row, neighbour);
+            if (i >= 0) {
+                return false;
+            }
+            i = -i - 1;
+            int[] updated = new int[row.length + 1];
+            System.arraycopy(row, 0, updated, 0, i);
+            updated[i] = neighbour;
+            System.arraycopy(row, i, updated, i + 1, row.length - i);
+            replace(slot, updated);
+            return true;
+        }
+
+        // removes a neighbour from the row, false when it is not there
+        boolean delete(int slot, int neighbour) {
+            int[] row = row(slot);
+            int i = Arrays.binarySearch(row, neighbour);
+            if (i < 0) {
+                return false;
+            }
+            int[] updated = row.length == 1 ? NO_SLOTS : new int[row.length - 1];
+            System.arraycopy(row, 0, updated, 0, i);
+            System.arraycopy(row, i + 1, updated, i, row.length - i - 1);
+            replace(slot, updated);
+            return true;
+        }
+
+        void replace(int slot, int[] row) {
+            int[] previous = copied[slot];
+            links += row.length - degree(slot);
+            if (previous != null) {
+                copiedLinks -= previous.length;
+            }
+            copied[slot] = row;
+            copiedLinks += row.length;
+            if (copiedLinks >= MIN_COPIED_TO_COMPACT && copiedLinks * 4 > links) {
+                compact();
+            }
+        }
+
+        // lays the current rows out again as one CSR block
+        private void compact() {
+            int[] newOffsets = new int[count + 1];
+            for (int s = 0; s < count; s++) {
+                newOffsets[s + 1] = newOffsets[s] + degree(s);
+            }
+            int[] newTargets = new int[newOffsets[count]];
+            for (int s = 0; s < count; s++) {
+                int[] row = copied[s];
+                if (row != null) {
+                    System.arraycopy(row, 0, newTargets, newOffsets[s], row.length);
+                } else {
+                    System.arraycopy(targets, offsets[s], newTargets, newOffsets[s], offsets[s + 1] - offsets[s]);
+                }
+            }
+            offsets = newOffsets;
+            targets = newTargets;
+            Arrays.fill(copied, 0, count, null);
+            copiedLinks = 0;
+        }
+
+        // fills the rows from scratch with the first count links from[i] -> to[i]
+        void layOut(int[] from, int[] to, int linkCount) {
+            int[] starts = new int[count + 1];
+            for (int i = 0; i < linkCount; i++) {
+                starts[from[i] + 1]++;
+            }
+            for (int s = 0; s < count; s++) {
+                starts[s + 1] += starts[s];
+            }
+            int[] filled = Arrays.copyOf(starts, count);
+            int[] unsorted = new int[linkCount];
+            for (int i = 0; i < linkCount; i++) {
+                unsorted[filled[from[i]]++] = to[i];
+            }
+            // sort every row and squeeze out duplicate links
+            offsets = new int[count + 1];
+            int size = 0;
+            for (int s = 0; s < count; s++) {
+                Arrays.sort(unsorted, starts[s], starts[s + 1]);
+                for (int i = starts[s]; i < starts[s + 1]; i++) {
+                    if (i == starts[s] || unsorted[i] != unsorted[i - 1]) {
+                        unsorted[size++] = unsorted[i];
+                    }
+                }
+                offsets[s + 1] = size;
+            }
+            targets = size == linkCount ? unsorted : Arrays.copyOf(unsorted, size);
+            Arrays.fill(copied, 0, count, null);
+            copiedLinks = 0;
+            links = size;
+        }
+    }
+}
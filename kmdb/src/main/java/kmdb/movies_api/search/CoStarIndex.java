@@ -0,0 +1,94 @@
+package kmdb.movies_api.search;
+
+import kmdb.movies_api.events.ActorDeleted;
+import kmdb.movies_api.events.MovieActorsChanged;
+import kmdb.movies_api.events.MovieDeleted;
+import kmdb.movies_api.repositories.MovieRepository;
+import kmdb.movies_api.repositories.projections.MovieLinkRow;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+// Co-stars and degrees of separation between actors, answered from an in-memory graph of the
+// actors join table. Like FacetIndex, the graph is built by one streaming scan once the application
+// is ready and then follows the service events after commit. Path searches stop after
+// kmdb.costars.max-visited actors and movies, so a far or missing connection costs a bounded search.
+@Slf4j
+@Component
+public class CoStarIndex {
+
+    private final MovieRepository movieRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final int maxVisited;
+
+    private final ReloadableSnapshot<CoStarGraph> graph = new ReloadableSnapshot<>(new CoStarGraph(), this::load);
+
+    public CoStarIndex(MovieRepository movieRepository, PlatformTransactionManager transactionManager,
+                       Environment env) {
+        this.movieRepository = movieRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.maxVisited = env.getProperty("kmdb.costars.max-visited", Integer.class, 1_000_000);
+    }
+
+    public CoStarGraph.CoStars coStars(long actorId, int limit) {
+        return graph.get().coStars(actorId, limit);
+    }
+
+    public CoStarGraph.Path path(long fromActorId, long toActorId, int maxDegrees) {
+        return graph.get().path(fromActorId, toActorId, maxDegrees, maxVisited);
+    }
+
+    // Builds a new graph from the join table and swaps it in, for startup and for bulk writes that
+    // do not publish an event per row
+    @EventListener(ApplicationReadyEvent.class)
+    public void reload() {
+        long start = System.nanoTime();
+        CoStarGraph loaded = graph.reload();
+        log.info("Linked {} actor roles in {} ms", loaded.links(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private CoStarGraph load() {
+        return readOnlyTransaction.execute(status -> {
+            long[][] links = {new long[1024], new long[1024]};
+            int[] count = {0};
+            try (Stream<MovieLinkRow> rows = movieRepository.streamActorLinks()) {
+                rows.forEach(row -> {
+                    if (count[0] == links[0].length) {
+                        links[0] = Arrays.copyOf(links[0], count[0] * 2);
+                        links[1] = Arrays.copyOf(links[1], count[0] * 2);
+                    }
+                    links[0][count[0]] = row.movieId();
+                    links[1][count[0]++] = row.id();
+                });
+            }
+            return CoStarGraph.build(links[0], links[1], count[0]);
+        });
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMovieActorsChanged(MovieActorsChanged event) {
+        graph.apply(graph -> {
+            event.added().forEach(actorId -> graph.addActor(event.movieId(), actorId));
+            event.removed().forEach(actorId -> graph.removeActor(event.movieId(), actorId));
+        });
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMovieDeleted(MovieDeleted event) {
+        graph.apply(graph -> graph.removeMovie(event.id()));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onActorDeleted(ActorDeleted event) {
+        graph.apply(graph -> graph.dropActor(event.id()));
+    }
+}
@@ -0,0 +1,387 @@
+package kmdb.movies_api.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Movie counts per genre, actor and release year, kept current one change at a time so browsing
+// never runs GROUP BY over the join tables. Every genre, actor and year maps to the ascending ids of
+// its movies, whose length is the counter; every movie keeps its own year, actors and genres, so the
+// counts of a filtered result are tallied in memory from the smallest matching id list.
+// Links to movies that are not in the counts are ignored.
+public class FacetCounts {
+
+    private static final long[] NONE = new long[0];
+    // most movies first, then by id
+    private static final Comparator<Count> BY_COUNT =
+            Comparator.comparingInt(Count::count).reversed().thenComparingLong(Count::key);
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<Long, MovieFacets> movies = new HashMap<>();
+    private final IdList allMovies = new IdList();
+    private final Map<Long, IdList> moviesByGenre = new HashMap<>();
+    private final Map<Long, IdList> moviesByActor = new HashMap<>();
+    private final TreeMap<Integer, IdList> moviesByYear = new TreeMap<>();
+
+    // bumped by every write; the unfiltered top actors are recomputed only when it moved
+    private long version;
+    private volatile TopActors topActors;
+
+    // sorted actor and genre ids of a movie
+    private record MovieFacets(int year, long[] actors, long[] genres) {
+    }
+
+    private record TopActors(long version, int limit, List<Count> counts) {
+    }
+
+    // key is a genre or actor id, a release year or the first year of a decade
+    public record Count(long key, int count) {
+    }
+
+    // total counts every match, movieIds only the first ones by id
+    public record Result(int total, long[] movieIds, List<Count> genres, List<Count> actors,
+                         List<Count> decades, List<Count> years) {
+    }
+
+    // Adds the movie or moves it to another release year
+    public void putMovie(long id, int year) {
+        lock.writeLock().lock();
+        try {
+            MovieFacets facets = movies.get(id);
+            if (facets == null) {
+                movies.put(id, new MovieFacets(year, NONE, NONE));
+                allMovies.add(id);
+                moviesByYear.computeIfAbsent(year, y -> new IdList()).add(id);
+            } else if (facets.year() != year) {
+                unlink(moviesByYear, facets.year(), id);
+                moviesByYear.computeIfAbsent(year, y -> new IdList()).add(id);
+                movies.put(id, new MovieFacets(year, facets.actors(), facets.genres()));
+            }
+            version++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeMovie(long id) {
+        lock.writeLock().lock();
+        try {
+            MovieFacets facets = movies.remove(id);
+            if (facets == null) {
+                return;
+            }
+            allMovies.remove(id);
+            unlink(moviesByYear, facets.year(), id);
+            for (long actorId : facets.actors()) {
+                unlink(moviesByActor, actorId, id);
+            }
+            for (long genreId : facets.genres()) {
+                unlink(moviesByGenre, genreId, id);
+            }
+            version++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void addActor(long movieId, long actorId) {
+        link(movieId, actorId, true, true);
+    }
+
+    public void removeActor(long movieId, long actorId) {
+        link(movieId, actorId, true, false);
+    }
+
+    public void addGenre(long movieId, long genreId) {
+        link(movieId, genreId, false, true);
+    }
+
+    public void removeGenre(long movieId, long genreId) {
+        link(movieId, genreId, false, false);
+    }
+
+    // Unlinks a deleted actor from all of its movies
+    public void dropActor(long actorId) {
+        drop(actorId, true);
+    }
+
+    public void dropGenre(long genreId) {
+        drop(genreId, false);
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return movies.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Movies matching every given filter (null filters are ignored) with their counts per facet.
+    // A decade is given by its first year, e.g. 1990. Without any filter the stored counters are
+    // returned as they are; otherwise only the movies of the shortest matching id list are visited.
+    public Result query(Long genreId, Long actorId, Integer year, Integer decade, int idLimit, int actorLimit) {
+        lock.readLock().lock();
+        try {
+            if (genreId == null && actorId == null && year == null && decade == null) {
+                return new Result(movies.size(), allMovies.first(idLimit), counts(moviesByGenre),
+                        unfilteredTopActors(actorLimit), decades(yearCounts()), yearCounts());
+            }
+            return filtered(genreId, actorId, year, decade, idLimit, actorLimit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Result filtered(Long genreId, Long actorId, Integer year, Integer decade, int idLimit, int actorLimit) {
+        // the shortest list among the filters drives the scan, the others are checked per movie
+        List<IdList> lists = new ArrayList<>(3);
+        if (genreId != null) {
+            lists.add(moviesByGenre.getOrDefault(genreId, IdList.EMPTY));
+        }
+        if (actorId != null) {
+            lists.add(moviesByActor.getOrDefault(actorId, IdList.EMPTY));
+        }
+        if (year != null) {
+            lists.add(moviesByYear.getOrDefault(year, IdList.EMPTY));
+        }
+        long[] candidates;
+        int candidateCount;
+        if (lists.isEmpty()) {
+            // only a decade: its years hold ascending ids each, merged by one sort
+            IdList merged = new IdList();
+            for (IdList ids : moviesByYear.subMap(decade, decade + 10).values()) {
+                merged.addAll(ids);
+            }
+            Arrays.sort(merged.ids, 0, merged.size);
+            candidates = merged.ids;
+            candidateCount = merged.size;
+        } else {
+            IdList shortest = lists.stream().min(Comparator.comparingInt(ids -> ids.size)).orElseThrow();
+            candidates = shortest.ids;
+            candidateCount = shortest.size;
+        }
+
+        IdList matches = new IdList();
+        Map<Long, int[]> genres = new HashMap<>();
+        Map<Long, int[]> actors = new HashMap<>();
+        TreeMap<Integer, int[]> years = new TreeMap<>();
+        for (int i = 0; i < candidateCount; i++) {
+            long movieId = candidates[i];
+            MovieFacets facets = movies.get(movieId);
+            if ((year != null && facets.year() != year)
+                    || (decade != null && Math.floorDiv(facets.year(), 10) * 10 != decade)
+                    || (genreId != null && Arrays.binarySearch(facets.genres(), genreId) < 0)
+                    || (actorId != null && Arrays.binarySearch(facets.actors(), actorId) < 0)) {
+                continue;
+            }
+            matches.add(movieId);
+            for (long id : facets.genres()) {
+                genres.computeIfAbsent(id, k -> new int[1])[0]++;
+            }
+            for (long id : facets.actors()) {
+                actors.computeIfAbsent(id, k -> new int[1])[0]++;
+            }
+            years.computeIfAbsent(facets.year(), k -> new int[1])[0]++;
+        }
+
+        List<Count> yearCounts = new ArrayList<>(years.size());
+        years.forEach((y, count) -> yearCounts.add(new Count(y, count[0])));
+        return new Result(matches.size, matches.first(idLimit), byCount(genres, Integer.MAX_VALUE),
+                byCount(actors, actorLimit), decades(yearCounts), yearCounts);
+    }
+
+    private List<Count> unfilteredTopActors(int limit) {
+        TopActors cached = topActors;
+        if (cached != null && cached.version() == version && cached.limit() >= limit) {
+            return cached.counts().subList(0, Math.min(limit, cached.counts().size()));
+        }
+        // bounded heap over the counters, the weakest of the current top on top
+        PriorityQueue<Count> top = new PriorityQueue<>(limit + 1, BY_COUNT.reversed());
+        moviesByActor.forEach((id, ids) -> {
+            top.add(new Count(id, ids.size));
+            if (top.size() > limit) {
+                top.poll();
+            }
+        });
+        List<Count> counts = new ArrayList<>(top);
+        counts.sort(BY_COUNT);
+        topActors = new TopActors(version, limit, counts);
+        return counts;
+    }
+
+    private static List<Count> counts(Map<Long, IdList> lists) {
+        List<Count> counts = new ArrayList<>(lists.size());
+        lists.forEach((id, ids) -> counts.add(new Count(id, ids.size)));
+        counts.sort(BY_COUNT);
+        return counts;
+    }
+
+    private static List<Count> byCount(Map<Long, int[]> tally, int limit) {
+        List<Count> counts = new ArrayList<>(tally.size());
+        tally.forEach((id, count) -> counts.add(new Count(id, count[0])));
+        counts.sort(BY_COUNT);
+        return counts.size() > limit ? new ArrayList<>(counts.subList(0, limit)) : counts;
+    }
+
+    private List<Count> yearCounts() {
+        List<Count> counts = new ArrayList<>(moviesByYear.size());
+        moviesByYear.forEach((year, ids) -> counts.add(new Count(year, ids.size)));
+        return counts;
+    }
+
+    // year counts in ascending year order folded into decades
+    private static List<Count> decades(List<Count> years) {
+        List<Count> decades = new ArrayList<>();
+        for (Count year : years) {
+            long decade = Math.floorDiv(year.key(), 10) * 10;
+            int last = decades.size() - 1;
+            if (last >= 0 && decades.get(last).key() == decade) {
+                decades.set(last, new Count(decade, decades.get(last).count() + year.count()));
+            } else {
+                decades.add(new Count(decade, year.count()));
+            }
+        }
+        return decades;
+    }
+
+    private void link(long movieId, long id, boolean actor, boolean add) {
+        lock.writeLock().lock();
+        try {
+            MovieFacets facets = movies.get(movieId);
+            if (facets == null) {
+                return;
+            }
+            long[] current = actor ? facets.actors() : facets.genres();
+            long[] updated = add ? with(current, id) : without(current, id);
+            if (updated == current) {
+                return;
+            }
+            movies.put(movieId, actor
+                    ? new MovieFacets(facets.year(), updated, facets.genres())
+                    : new MovieFacets(facets.year(), facets.actors(), updated));
+            Map<Long, IdList> lists = actor ? moviesByActor : moviesByGenre;
+            if (add) {
+                lists.computeIfAbsent(id, k -> new IdList()).add(movieId);
+            } else {
+                unlink(lists, id, movieId);
+            }
+            version++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void drop(long id, boolean actor) {
+        lock.writeLock().lock();
+        try {
+            IdList linked = (actor ? moviesByActor : moviesByGenre).remove(id);
+            if (linked == null) {
+                return;
+            }
+            for (int i = 0; i < linked.size; i++) {
+                long movieId = linked.ids[i];
+                MovieFacets facets = movies.get(movieId);
+                movies.put(movieId, actor
+                        ? new MovieFacets(facets.year(), without(facets.actors(), id), facets.genres())
+                        : new MovieFacets(facets.year(), facets.actors(), without(facets.genres(), id)));
+            }
+            version++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static <K> void unlink(Map<K, IdList> lists, K key, long movieId) {
+        IdList ids = lists.get(key);
+        if (ids != null && ids.remove(movieId) && ids.size == 0) {
+            lists.remove(key);
+        }
+    }
+
+    // copy of a sorted array with the id added, or the same array when it is already there
+    private static long[] with(long[] sorted, long id) {
+        int i = Arrays.binarySearch(sorted, id);
+        if (i >= 0) {
+            return sorted;
+        }
+        i = -i - 1;
+        long[] copy = new long[sorted.length + 1];
+        System.arraycopy(sorted, 0, copy, 0, i);
+        copy[i] = id;
+        System.arraycopy(sorted, i, copy, i + 1, sorted.length - i);
+        return copy;
+    }
+
+    private static long[] without(long[] sorted, long id) {
+        int i = Arrays.binarySearch(sorted, id);
+        if (i < 0) {
+            return sorted;
+        }
+        if (sorted.length == 1) {
+            return NONE;
+        }
+        long[] copy = new long[sorted.length - 1];
+        System.arraycopy(sorted, 0, copy, 0, i);
+        System.arraycopy(sorted, i + 1, copy, i, sorted.length - i - 1);
+        return copy;
+    }
+
+    // Ascending movie ids in a growable array; ids mostly arrive in order, so adds are mostly appends
+    private static final class IdList {
+
+        static final IdList EMPTY = new IdList();
+
+        long[] ids = NONE;
+        int size;
+
+        boolean add(long id) {
+            int i = size;
+            if (size > 0 && ids[size - 1] >= id) {
+                i = Arrays.binarySearch(ids, 0, size, id);
+                if (i >= 0) {
+                    return false;
+                }
+                i = -i - 1;
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, Math.max(4, size + (size >> 1)));
+            }
+            System.arraycopy(ids, i, ids, i + 1, size - i);
+            ids[i] = id;
+            size++;
+            return true;
+        }
+
+        // appends without keeping the order, the caller sorts
+        void addAll(IdList other) {
+            if (size + other.size > ids.length) {
+                ids = Arrays.copyOf(ids, Math.max(size + other.size, size + (size >> 1)));
+            }
+            System.arraycopy(other.ids, 0, ids, size, other.size);
+            size += other.size;
+        }
+
+        boolean remove(long id) {
+            int i = Arrays.binarySearch(ids, 0, size, id);
+            if (i < 0) {
+                return false;
+            }
+            System.arraycopy(ids, i + 1, ids, i, size - i - 1);
+            size--;
+            return true;
+        }
+
+        long[] first(int limit) {
+            return Arrays.copyOf(ids, Math.min(limit, size));
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package kmdb.movies_api.search;
+
+import kmdb.movies_api.events.ActorDeleted;
+import kmdb.movies_api.events.GenreDeleted;
+import kmdb.movies_api.events.MovieActorsChanged;
+import kmdb.movies_api.events.MovieDeleted;
+import kmdb.movies_api.events.MovieGenresChanged;
+import kmdb.movies_api.events.MovieSaved;
+import kmdb.movies_api.repositories.MovieRepository;
+import kmdb.movies_api.repositories.projections.MovieLinkRow;
+import kmdb.movies_api.repositories.projections.MovieYearRow;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.stream.Stream;
+
+// Browse facets (movie counts per genre, actor and release year) answered from memory. The counts
+// are filled by one streaming scan once the application is ready and then follow the service events
+// after commit, so they are never recounted with GROUP BY.
+@Slf4j
+@Component
+public class FacetIndex {
+
+    private final MovieRepository movieRepository;
+    private final TransactionTemplate readOnlyTransaction;
+
+    private final ReloadableSnapshot<FacetCounts> counts = new ReloadableSnapshot<>(new FacetCounts(), this::load);
+
+    public FacetIndex(MovieRepository movieRepository, PlatformTransactionManager transactionManager) {
+        this.movieRepository = movieRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    public FacetCounts.Result query(Long genreId, Long actorId, Integer year, Integer decade,
+                                    int idLimit, int actorLimit) {
+        return counts.get().query(genreId, actorId, year, decade, idLimit, actorLimit);
+    }
+
+    // Recounts everything into new counts and swaps them in, for startup and for bulk writes
+    // that do not publish an event per row
+    @EventListener(ApplicationReadyEvent.class)
+    public void reload() {
+        long start = System.nanoTime();
+        FacetCounts loaded = counts.reload();
+        log.info("Counted facets of {} movies in {} ms", loaded.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private FacetCounts load() {
+        FacetCounts loaded = new FacetCounts();
+        readOnlyTransaction.executeWithoutResult(status -> {
+            try (Stream<MovieYearRow> rows = movieRepository.streamReleaseYears()) {
+                rows.forEach(row -> loaded.putMovie(row.id(), row.releaseYear()));
+            }
+            try (Stream<MovieLinkRow> rows = movieRepository.streamActorLinks()) {
+                rows.forEach(row -> loaded.addActor(row.movieId(), row.id()));
+            }
+            try (Stream<MovieLinkRow> rows = movieRepository.streamGenreLinks()) {
+                rows.forEach(row -> loaded.addGenre(row.movieId(), row.id()));
+            }
+        });
+        return loaded;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMovieSaved(MovieSaved event) {
+        counts.apply(counts -> counts.putMovie(event.id(), event.releaseYear()));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMovieDeleted(MovieDeleted event) {
+        counts.apply(counts -> counts.removeMovie(event.id()));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMovieActorsChanged(MovieActorsChanged event) {
+        counts.apply(counts -> {
+            event.added().forEach(actorId -> counts.addActor(event.movieId(), actorId));
+            event.removed().forEach(actorId -> counts.removeActor(event.movieId(), actorId));
+        });
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMovieGenresChanged(MovieGenresChanged event) {
+        counts.apply(counts -> {
+            event.added().forEach(genreId -> counts.addGenre(event.movieId(), genreId));
+            event.removed().forEach(genreId -> counts.removeGenre(event.movieId(), genreId));
+        });
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onActorDeleted(ActorDeleted event) {
+        counts.apply(counts -> counts.dropActor(event.id()));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onGenreDeleted(GenreDeleted event) {
+        counts.apply(counts -> counts.dropGenre(event.id()));
+    }
+}
@@ -0,0 +1,31 @@
+package kmdb.movies_api.search;
+
+import java.util.StringJoiner;
+
+// Turns free user input into an FTS5 MATCH expression: every word becomes a quoted prefix term,
+// and terms are ANDed, so "dark kni" matches "The Dark Knight Rises".
+public final class FullTextQuery {
+
+    private FullTextQuery() {
+    }
+
+    // Returns null when the input has no searchable characters
+    public static String prefixQuery(String input) {
+        if (input == null) {
+            return null;
+        }
+        StringJoiner query = new StringJoiner(" ");
+        StringBuilder token = new StringBuilder();
+        for (int i = 0; i <= input.length(); i++) {
+            char c = i < input.length() ? input.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                token.append(c);
+            } else if (!token.isEmpty()) {
+                // quoting keeps words like AND/OR/NEAR from being read as operators
+                query.add('"' + token.toString() + "\"*");
+                token.setLength(0);
+            }
+        }
+        return query.length() == 0 ? null : query.toString();
+    }
+}
@@ -0,0 +1,193 @@
+package kmdb.movies_api.search;
+
+import kmdb.movies_api.events.GenreDeleted;
+import kmdb.movies_api.events.MovieDeleted;
+import kmdb.movies_api.events.MovieGenresChanged;
+import kmdb.movies_api.events.MovieRatingsSaved;
+import kmdb.movies_api.events.MovieSaved;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+// Top rated, most voted and newest movies, overall, per genre and per release year, read from
+// memory. The boards are filled by one scan once the application is ready; after commit, the service
+// events put the changed movies as they are stored, and a board that has let go of movies it now
+// needs is refilled from the database. Votes arrive with each flush of MovieRatings.
+@Slf4j
+@Component
+public class LeaderboardIndex {
+
+    private static final String SELECT_LISTED =
+            "SELECT m.id, m.title, m.release_year, COALESCE(r.votes, 0), COALESCE(r.star_sum, 0), " +
+                    "(SELECT group_concat(g.genre_id) FROM genres g WHERE g.movie_id = m.id) " +
+                    "FROM movie m LEFT JOIN movie_rating r ON r.movie_id = m.id";
+    private static final String SELECT_LISTED_BY_IDS = SELECT_LISTED + " WHERE m.id IN (SELECT value FROM json_each(?))";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    // reads after the commit of an event's transaction, which is still bound to the thread
+    private final TransactionTemplate lookupTransaction;
+    private final int capacity;
+
+    private final ReloadableSnapshot<Leaderboards> boards;
+    // a change or refill reads the stored movies and puts them while holding this, so a later read
+    // is never overtaken by an earlier one
+    private final ReentrantLock updating = new ReentrantLock();
+
+    public LeaderboardIndex(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager, Environment env) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.lookupTransaction = new TransactionTemplate(transactionManager);
+        this.lookupTransaction.setReadOnly(true);
+        this.lookupTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.capacity = env.getProperty("kmdb.leaderboards.size", Integer.class, 100);
+        this.boards = new ReloadableSnapshot<>(new Leaderboards(capacity), this::load);
+    }
+
+    public List<Leaderboards.Ranked> top(Leaderboards.Order order, Long genreId, Integer year, int limit) {
+        List<Leaderboards.Ranked> first = boards.get().top(order, genreId, year, limit);
+        if (first != null) {
+            return first;
+        }
+        updating.lock();
+        try {
+            Leaderboards current = boards.get();
+            first = current.top(order, genreId, year, limit);
+            if (first != null) {
+                return first;
+            }
+            int read = Math.max(capacity, limit) + 1;
+            List<Leaderboards.Listed> movies = lookupTransaction.execute(status ->
+                    jdbcTemplate.query(refillSql(order, genreId, year), (rs, row) -> listed(rs),
+                            refillArguments(genreId, year, read)));
+            current.refill(order, genreId, year, movies, movies.size() < read);
+            first = current.top(order, genreId, year, limit);
+            // more than the boards hold, answered from the rows read
+            return first != null ? first : movies.stream().limit(limit).map(Leaderboards.Listed::ranked).toList();
+        } finally {
+            updating.unlock();
+        }
+    }
+
+    // Ranks everything again into new boards and swaps them in, for startup and for bulk writes
+    // that do not publish an event per row
+    @EventListener(ApplicationReadyEvent.class)
+    public void reload() {
+        long start = System.nanoTime();
+        Leaderboards loaded = boards.reload();
+        log.info("Ranked {} movies on the boards in {} ms", loaded.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private Leaderboards load() {
+        Leaderboards loaded = new Leaderboards(capacity);
+        readOnlyTransaction.executeWithoutResult(status -> jdbcTemplate.query(SELECT_LISTED, rs -> {
+            loaded.put(listed(rs));
+        }));
+        return loaded;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMovieSaved(MovieSaved event) {
+        refresh(List.of(event.id()));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMovieDeleted(MovieDeleted event) {
+        update(() -> boards.apply(boards -> boards.removeMovie(event.id())));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMovieGenresChanged(MovieGenresChanged event) {
+        refresh(List.of(event.movieId()));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onGenreDeleted(GenreDeleted event) {
+        update(() -> boards.apply(boards -> boards.dropGenre(event.id())));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMovieRatingsSaved(MovieRatingsSaved event) {
+        refresh(event.ratings().stream().map(MovieRatingsSaved.Totals::movieId).toList());
+    }
+
+    // Reads the movies as stored and puts them on the boards; a movie that is gone comes off them
+    private void refresh(List<Long> movieIds) {
+        update(() -> {
+            Map<Long, Leaderboards.Listed> stored = new HashMap<>();
+            lookupTransaction.executeWithoutResult(status -> jdbcTemplate.query(SELECT_LISTED_BY_IDS, rs -> {
+                Leaderboards.Listed movie = listed(rs);
+                stored.put(movie.ranked().id(), movie);
+            }, movieIds.stream().map(String::valueOf).collect(Collectors.joining(",", "[", "]"))));
+            boards.apply(boards -> movieIds.forEach(id -> {
+                Leaderboards.Listed movie = stored.get(id);
+                if (movie == null) {
+                    boards.removeMovie(id);
+                } else {
+                    boards.put(movie);
+                }
+            }));
+        });
+    }
+
+    private void update(Runnable change) {
+        updating.lock();
+        try {
+            change.run();
+        } finally {
+            updating.unlock();
+        }
+    }
+
+    private static Leaderboards.Listed listed(ResultSet rs) throws SQLException {
+        String genres = rs.getString(6);
+        long[] genreIds = genres == null ? new long[0]
+                : Arrays.stream(genres.split(",")).mapToLong(Long::parseLong).sorted().toArray();
+        return new Leaderboards.Listed(new Leaderboards.Ranked(rs.getLong(1), rs.getString(2), rs.getInt(3),
+                rs.getLong(4), rs.getLong(5)), genreIds);
+    }
+
+    // The first movies of one board, in its order
+    private static String refillSql(Leaderboards.Order order, Long genreId, Integer year) {
+        List<String> conditions = new ArrayList<>();
+        if (genreId != null) {
+            conditions.add("m.id IN (SELECT movie_id FROM genres WHERE genre_id = ?)");
+        } else if (year != null) {
+            conditions.add("m.release_year = ?");
+        }
+        if (order != Leaderboards.Order.NEWEST) {
+            conditions.add("r.votes > 0");
+        }
+        String orderBy = switch (order) {
+            case RATING -> "CAST(r.star_sum AS REAL) / r.votes DESC, r.votes DESC, m.id";
+            case VOTES -> "r.votes DESC, m.id";
+            case NEWEST -> "m.release_year DESC, m.id DESC";
+        };
+        return SELECT_LISTED + (conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions)) +
+                " ORDER BY " + orderBy + " LIMIT ?";
+    }
+
+    private static Object[] refillArguments(Long genreId, Integer year, int limit) {
+        return genreId != null ? new Object[] {genreId, limit}
+                : year != null ? new Object[] {year, limit}
+                : new Object[] {limit};
+    }
+}
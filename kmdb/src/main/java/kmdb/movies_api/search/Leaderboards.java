@@ -0,0 +1,288 @@
+package kmdb.movies_api.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Movies ranked by average rating, by vote count and by release year, overall, per genre and per
+// release year. Every board keeps only its first `capacity` movies, in order, so the first K are
+// read in O(K). A board that had to let movies go is incomplete: once a movie drops out of it, it
+// can answer fewer movies than it lists, and a longer read gets null so the caller refills the board
+// from the database (see LeaderboardIndex). Movies without votes are only on the newest boards.
+public class Leaderboards {
+
+    public enum Order {
+        // highest average first, more votes first on equal averages
+        RATING((a, b) -> {
+            int byAverage = Long.compare(b.starSum() * a.votes(), a.starSum() * b.votes());
+            return byAverage != 0 ? byAverage : Long.compare(b.votes(), a.votes());
+        }),
+        VOTES((a, b) -> Long.compare(b.votes(), a.votes())),
+        // latest release year first, then the most recently added
+        NEWEST((a, b) -> a.year() != b.year() ? Integer.compare(b.year(), a.year()) : Long.compare(b.id(), a.id()));
+
+        private final Comparator<Ranked> comparator;
+
+        Order(Comparator<Ranked> comparator) {
+            // ids make every order total, so a TreeSet never merges two movies
+            this.comparator = comparator.thenComparingLong(Ranked::id);
+        }
+
+        // only the newest boards list movies without votes
+        public boolean ranks(Ranked ranked) {
+            return this == NEWEST || ranked.votes() > 0;
+        }
+    }
+
+    private final int capacity;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // the movies on at least one board, so a change finds the boards to take them off
+    private final Map<Long, Listed> listed = new HashMap<>();
+    private final Map<Order, Boards> boards = new HashMap<>();
+
+    // a movie as ranked
+    public record Ranked(long id, String title, int year, long votes, long starSum) {
+
+        public double average() {
+            return votes == 0 ? 0 : (double) starSum / votes;
+        }
+    }
+
+    // a movie with its sorted genre ids, as read from the database
+    public record Listed(Ranked ranked, long[] genreIds) {
+    }
+
+    // the first movies of one board
+    private static final class Board {
+        final TreeSet<Ranked> first;
+        // holds every movie of its scope; false once a movie was let go or turned away
+        boolean complete = true;
+
+        Board(Comparator<Ranked> comparator) {
+            first = new TreeSet<>(comparator);
+        }
+    }
+
+    // one order overall, per genre and per year
+    private static final class Boards {
+        final Order order;
+        final Board all;
+        final Map<Long, Board> byGenre = new HashMap<>();
+        final Map<Integer, Board> byYear = new HashMap<>();
+
+        Boards(Order order) {
+            this.order = order;
+            this.all = new Board(order.comparator);
+        }
+    }
+
+    public Leaderboards(int capacity) {
+        this.capacity = capacity;
+        for (Order order : Order.values()) {
+            boards.put(order, new Boards(order));
+        }
+    }
+
+    // Sets the state of a movie, new or not; a movie only enters the boards it ranks high enough on
+    public void put(Listed movie) {
+        lock.writeLock().lock();
+        try {
+            takeOff(listed.remove(movie.ranked().id()));
+            boolean entered = false;
+            for (Boards board : boards.values()) {
+                if (!board.order.ranks(movie.ranked())) {
+                    continue;
+                }
+                entered |= offer(board.all, movie.ranked());
+                entered |= offer(board.byYear.computeIfAbsent(movie.ranked().year(), y -> new Board(board.order.comparator)),
+                        movie.ranked());
+                for (long genreId : movie.genreIds()) {
+                    entered |= offer(board.byGenre.computeIfAbsent(genreId, id -> new Board(board.order.comparator)),
+                            movie.ranked());
+                }
+            }
+            if (entered) {
+                listed.put(movie.ranked().id(), movie);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeMovie(long id) {
+        lock.writeLock().lock();
+        try {
+            takeOff(listed.remove(id));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Unlinks a deleted genre from all of its movies: its boards go as a whole
+    public void dropGenre(long genreId) {
+        lock.writeLock().lock();
+        try {
+            for (Boards board : boards.values()) {
+                board.byGenre.remove(genreId);
+            }
+            List<Long> unlinked = new ArrayList<>();
+            listed.replaceAll((id, movie) -> {
+                if (Arrays.binarySearch(movie.genreIds(), genreId) < 0) {
+                    return movie;
+                }
+                unlinked.add(id);
+                return new Listed(movie.ranked(), Arrays.stream(movie.genreIds()).filter(other -> other != genreId).toArray());
+            });
+            unlinked.forEach(this::forgetUnlisted);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // movies on at least one board
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return listed.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // The first movies of a board: overall, of one genre or of one release year (at most one of
+    // genreId and year is given). Null when the board has let go of movies it would have to list.
+    public List<Ranked> top(Order order, Long genreId, Integer year, int limit) {
+        lock.readLock().lock();
+        try {
+            Board board = board(boards.get(order), genreId, year);
+            if (board == null) {
+                return List.of();
+            }
+            if (board.first.size() < limit && !board.complete) {
+                return null;
+            }
+            List<Ranked> first = new ArrayList<>(Math.min(limit, board.first.size()));
+            Iterator<Ranked> iterator = board.first.iterator();
+            while (first.size() < limit && iterator.hasNext()) {
+                first.add(iterator.next());
+            }
+            return first;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Replaces a board with the first movies of its scope as read from the database, in any order;
+    // complete when they are all of them. The read must not overlap the changes put meanwhile.
+    public void refill(Order order, Long genreId, Integer year, List<Listed> movies, boolean complete) {
+        lock.writeLock().lock();
+        try {
+            Boards boardsOfOrder = boards.get(order);
+            Board board = genreId != null ? boardsOfOrder.byGenre.computeIfAbsent(genreId, id -> new Board(order.comparator))
+                    : year != null ? boardsOfOrder.byYear.computeIfAbsent(year, y -> new Board(order.comparator))
+                    : boardsOfOrder.all;
+            List<Ranked> previous = new ArrayList<>(board.first);
+            board.first.clear();
+            board.complete = true;
+            previous.forEach(ranked -> forgetUnlisted(ranked.id()));
+            for (Listed movie : movies) {
+                Listed known = listed.get(movie.ranked().id());
+                if (known != null && (!known.ranked().equals(movie.ranked())
+                        || !Arrays.equals(known.genreIds(), movie.genreIds()))) {
+                    // read after a change whose event has not arrived yet: moved on every board, this one included
+                    put(movie);
+                } else if (offer(board, movie.ranked())) {
+                    listed.put(movie.ranked().id(), movie);
+                }
+            }
+            board.complete = complete && board.complete;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private Board board(Boards boardsOfOrder, Long genreId, Integer year) {
+        return genreId != null ? boardsOfOrder.byGenre.get(genreId)
+                : year != null ? boardsOfOrder.byYear.get(year)
+                : boardsOfOrder.all;
+    }
+
+    // Adds the movie if it is among the first `capacity` of the board; the movie it pushes out is let go
+    private boolean offer(Board board, Ranked ranked) {
+        if (board.first.size() < capacity && board.complete) {
+            board.first.add(ranked);
+            return true;
+        }
+        if (board.first.isEmpty() || board.first.comparator().compare(ranked, board.first.last()) > 0) {
+            // ranks after every listed movie, before or after the ones let go
+            board.complete = false;
+            return false;
+        }
+        board.first.add(ranked);
+        if (board.first.size() > capacity) {
+            board.complete = false;
+            forgetUnlisted(board.first.pollLast().id());
+        }
+        return true;
+    }
+
+    // Takes a movie off every board it is on (null: on none)
+    private void takeOff(Listed movie) {
+        if (movie == null) {
+            return;
+        }
+        Ranked ranked = movie.ranked();
+        for (Boards board : boards.values()) {
+            if (!board.order.ranks(ranked)) {
+                continue;
+            }
+            board.all.first.remove(ranked);
+            takeOff(board.byYear, ranked.year(), ranked);
+            for (long genreId : movie.genreIds()) {
+                takeOff(board.byGenre, genreId, ranked);
+            }
+        }
+    }
+
+    // An emptied board that held all of its movies goes; an incomplete one stays for the refill
+    private static <K> void takeOff(Map<K, Board> scope, K key, Ranked ranked) {
+        Board board = scope.get(key);
+        if (board != null && board.first.remove(ranked) && board.complete && board.first.isEmpty()) {
+            scope.remove(key);
+        }
+    }
+
+    // drops the movie from listed once no board holds it any more
+    private void forgetUnlisted(long id) {
+        Listed movie = listed.get(id);
+        if (movie == null) {
+            return;
+        }
+        Ranked ranked = movie.ranked();
+        for (Boards board : boards.values()) {
+            if (!board.order.ranks(ranked)) {
+                continue;
+            }
+            if (board.all.first.contains(ranked) || contains(board.byYear.get(ranked.year()), ranked)) {
+                return;
+            }
+            for (long genreId : movie.genreIds()) {
+                if (contains(board.byGenre.get(genreId), ranked)) {
+                    return;
+                }
+            }
+        }
+        listed.remove(id);
+    }
+
+    private static boolean contains(Board board, Ranked ranked) {
+        return board != null && board.first.contains(ranked);
+    }
+}
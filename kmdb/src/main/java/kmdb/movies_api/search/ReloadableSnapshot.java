@@ -0,0 +1,74 @@
+package kmdb.movies_api.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+// An in-memory structure that follows changes one by one and can be loaded again from the tables
+// and swapped in whole. Changes applied while a load runs are replayed onto the loaded structure
+// before the swap, so each change has to be absolute (put, add or remove one link): replaying one the
+// load already saw must leave the same result.
+final class ReloadableSnapshot<T> {
+
+    private final Supplier<T> loader;
+    // one load at a time; a lock rather than synchronized, as a load waits on the database
+    private final ReentrantLock reloading = new ReentrantLock();
+
+    private volatile T current;
+
+    // guards current and changedWhileLoading against a concurrent reload
+    private final Object changes = new Object();
+    // changes made while a load scans the tables, replayed onto the loaded structure before the swap
+    private List<Consumer<T>> changedWhileLoading;
+
+    ReloadableSnapshot(T empty, Supplier<T> loader) {
+        this.current = empty;
+        this.loader = loader;
+    }
+
+    T get() {
+        return current;
+    }
+
+    // Loads a new structure, replays the changes made meanwhile and swaps it in. A failed load
+    // leaves the current structure in place.
+    T reload() {
+        reloading.lock();
+        try {
+            synchronized (changes) {
+                changedWhileLoading = new ArrayList<>();
+            }
+            T loaded = null;
+            try {
+                loaded = loader.get();
+            } finally {
+                swap(loaded);
+            }
+            return loaded;
+        } finally {
+            reloading.unlock();
+        }
+    }
+
+    // null after a failed load, which only stops recording changes
+    private void swap(T loaded) {
+        synchronized (changes) {
+            if (loaded != null) {
+                changedWhileLoading.forEach(change -> change.accept(loaded));
+                current = loaded;
+            }
+            changedWhileLoading = null;
+        }
+    }
+
+    void apply(Consumer<T> change) {
+        synchronized (changes) {
+            change.accept(current);
+            if (changedWhileLoading != null) {
+                changedWhileLoading.add(change);
+            }
+        }
+    }
+}
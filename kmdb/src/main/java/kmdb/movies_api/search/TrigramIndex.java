@@ -0,0 +1,459 @@
+package kmdb.movies_api.search;
+
+import kmdb.movies_api.dto.ReferenceDTO;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+// In-memory trigram index over short texts such as titles and names, used for typeahead.
+// Every word is indexed under its first one to four letters (anchored to the word start) and under
+// every trigram that reaches past them, so "leonardo" yields "l", "le", "leo", "leon", "ona", ... A query
+// word of up to four letters is answered by a single exact posting list; longer words intersect the
+// anchored prefix with their trigrams and are verified against the text.
+// Documents live in dense int slots and every gram maps to an ascending int[] posting list of slots.
+// Bulk loads and compactions lay the slots out by text length, so a scan over that sorted region can
+// stop as soon as no later candidate could enter the top k; only slots added since (the tail) are
+// always scored. Ranking reads only primitive per-slot arrays.
+// Removing a document only clears its slot; the index is rebuilt once dead slots outnumber live ones.
+public class TrigramIndex {
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int MIN_DEAD_SLOTS_TO_COMPACT = 1024;
+    private static final int PREFIX_LENGTH = 4;
+    private static final int NOT_LEADING = 1 << 24;
+    private static final int MIN_TAIL_TO_COMPACT = 4096;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private long[] ids;
+    private String[] texts;
+    // normalized text with a leading space, e.g. " the dark knight"
+    private String[] normalized;
+    private int[] lengths;
+    // first four chars of the first word, left aligned, see head()
+    private long[] heads;
+    private BitSet live;
+    private int slots;
+    // slots below this are ordered by text length
+    private int sortedSlots;
+    private int liveCount;
+    private LongIntMap slotById;
+
+    private LongIntMap postingByGram;
+    private int[][] postings;
+    private int[] postingSizes;
+    private int postingCount;
+
+    // ids put or removed while a bulk load is running, so the load does not overwrite them
+    private LongIntMap touchedWhileLoading;
+
+    public TrigramIndex() {
+        reset(INITIAL_CAPACITY);
+    }
+
+    // Adds the document or replaces its text
+    public void put(long id, String text) {
+        lock.writeLock().lock();
+        try {
+            removeSlot(id);
+            add(id, text);
+            if (touchedWhileLoading != null) {
+                touchedWhileLoading.put(id, 0);
+            }
+            int tail = slots - sortedSlots;
+            if (tail >= MIN_TAIL_TO_COMPACT && tail > liveCount / 4) {
+                compact();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            removeSlot(id);
+            if (touchedWhileLoading != null) {
+                touchedWhileLoading.put(id, 0);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Between beginLoad and endLoad, load() adds or updates documents that no put or remove has touched
+    // since beginLoad, so rows read by a slow scan cannot overwrite newer changes. Loading over a filled
+    // index refreshes it in place; documents the scan does not see are kept.
+    public void beginLoad() {
+        lock.writeLock().lock();
+        try {
+            touchedWhileLoading = new LongIntMap(INITIAL_CAPACITY);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void load(long id, String text) {
+        lock.writeLock().lock();
+        try {
+            if (touchedWhileLoading != null && touchedWhileLoading.get(id) != LongIntMap.MISSING) {
+                return;
+            }
+            int slot = slotById.get(id);
+            if (slot >= 0) {
+                if (Objects.equals(texts[slot], text)) {
+                    return;
+                }
+                removeSlot(id);
+            }
+            add(id, text);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void endLoad() {
+        lock.writeLock().lock();
+        try {
+            touchedWhileLoading = null;
+            compact();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return liveCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Up to limit documents in which every query word is a prefix of some word, best first:
+    // texts whose first word starts with the first query word, then shorter texts, then older documents
+    public List<ReferenceDTO> suggest(String query, int limit) {
+        String normalizedQuery = normalize(query);
+        if (normalizedQuery.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        String[] tokens = normalizedQuery.substring(1).split(" ");
+        boolean verify = false;
+        for (String token : tokens) {
+            verify |= token.length() > PREFIX_LENGTH;
+        }
+        lock.readLock().lock();
+        try {
+            int[] lists = postingLists(tokens);
+            if (lists == null) {
+                return List.of();
+            }
+            int[] positions = new int[lists.length];
+            String first = tokens[0];
+            long firstHead = head(first);
+            long headMask = -1L << (16 * (PREFIX_LENGTH - Math.min(first.length(), PREFIX_LENGTH)));
+            int[] best = new int[limit];
+            int[] bestScores = new int[limit];
+            int found = 0;
+            for (int slot = next(lists, positions, 0); slot >= 0; slot = next(lists, positions, slot + 1)) {
+                if (found == limit && slot < sortedSlots && lengths[slot] >= bestScores[limit - 1]) {
+                    // even a leading text this long would not make it, skip the rest of the sorted region
+                    slot = sortedSlots - 1;
+                    continue;
+                }
+                if (!live.get(slot) || (verify && !matches(normalized[slot], tokens))) {
+                    continue;
+                }
+                boolean leading = (heads[slot] & headMask) == firstHead
+                        && (first.length() <= PREFIX_LENGTH || normalized[slot].startsWith(first, 1));
+                int score = (leading ? 0 : NOT_LEADING) + Math.min(lengths[slot], NOT_LEADING - 1);
+                // insertion into the sorted top-k arrays; slots come in ascending order, so ties keep older first
+                int at = found;
+                while (at > 0 && score < bestScores[at - 1]) {
+                    at--;
+                }
+                if (at < limit) {
+                    int moved = Math.min(found, limit - 1) - at;
+                    System.arraycopy(best, at, best, at + 1, moved);
+                    System.arraycopy(bestScores, at, bestScores, at + 1, moved);
+                    best[at] = slot;
+                    bestScores[at] = score;
+                    found = Math.min(found + 1, limit);
+                }
+            }
+            List<ReferenceDTO> suggestions = new ArrayList<>(found);
+            for (int i = 0; i < found; i++) {
+                suggestions.add(new ReferenceDTO(ids[best[i]], texts[best[i]]));
+            }
+            return suggestions;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Posting lists of all query grams, shortest first; null when a gram is not indexed at all
+    private int[] postingLists(String[] tokens) {
+        int[] lists = new int[16];
+        int count = 0;
+        for (String token : tokens) {
+            if (count + token.length() >= lists.length) {
+                lists = Arrays.copyOf(lists, (count + token.length()) * 2);
+            }
+            int posting = postingByGram.get(prefixGram(token, Math.min(token.length(), PREFIX_LENGTH)));
+            if (posting == LongIntMap.MISSING || postingSizes[posting] == 0) {
+                return null;
+            }
+            lists[count++] = posting;
+            for (int i = PREFIX_LENGTH - 2; i + 3 <= token.length(); i++) {
+                posting = postingByGram.get(trigram(token, i));
+                if (posting == LongIntMap.MISSING || postingSizes[posting] == 0) {
+                    return null;
+                }
+                lists[count++] = posting;
+            }
+        }
+        lists = Arrays.copyOf(lists, count);
+        for (int i = 1; i < count; i++) {
+            for (int j = i; j > 0 && postingSizes[lists[j]] < postingSizes[lists[j - 1]]; j--) {
+                int swap = lists[j];
+                lists[j] = lists[j - 1];
+                lists[j - 1] = swap;
+            }
+        }
+        return lists;
+    }
+
+    // Smallest slot >= target present in every list, or -1. A leapfrog join: each list gallops forward
+    // to the current candidate until all of them agree, so the cost follows the slots actually visited.
+    private int next(int[] lists, int[] positions, int target) {
+        int candidate = target;
+        int agreeing = 0;
+        for (int j = 0; agreeing < lists.length; j = (j + 1) % lists.length) {
+            int size = postingSizes[lists[j]];
+            int at = gallop(postings[lists[j]], positions[j], size, candidate);
+            positions[j] = at;
+            if (at == size) {
+                return -1;
+            }
+            int slot = postings[lists[j]][at];
+            if (slot == candidate) {
+                agreeing++;
+            } else {
+                candidate = slot;
+                agreeing = 1;
+            }
+        }
+        return candidate;
+    }
+
+    // Index of the first element >= key in sorted[from, to), probing 1, 2, 4, ... ahead before a binary search
+    private static int gallop(int[] sorted, int from, int to, int key) {
+        int step = 1;
+        int low = from;
+        int high = from;
+        while (high < to && sorted[high] < key) {
+            low = high + 1;
+            high = from + step;
+            step <<= 1;
+        }
+        high = Math.min(high, to);
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static boolean matches(String text, String[] tokens) {
+        for (String token : tokens) {
+            int at = text.indexOf(token);
+            // the token has to start a word, i.e. follow a space
+            while (at > 0 && text.charAt(at - 1) != ' ') {
+                at = text.indexOf(token, at + 1);
+            }
+            if (at <= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void add(long id, String text) {
+        if (text == null) {
+            return;
+        }
+        if (slots == ids.length) {
+            int capacity = slots * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            texts = Arrays.copyOf(texts, capacity);
+            normalized = Arrays.copyOf(normalized, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            heads = Arrays.copyOf(heads, capacity);
+        }
+        int slot = slots++;
+        String normalizedText = normalize(text);
+        ids[slot] = id;
+        texts[slot] = text;
+        normalized[slot] = normalizedText;
+        lengths[slot] = normalizedText.length();
+        int firstEnd = normalizedText.indexOf(' ', 1);
+        heads[slot] = normalizedText.isEmpty() ? 0
+                : head(normalizedText.substring(1, firstEnd < 0 ? normalizedText.length() : firstEnd));
+        live.set(slot);
+        liveCount++;
+        slotById.put(id, slot);
+
+        int wordStart = 1;
+        while (wordStart < normalizedText.length()) {
+            int wordEnd = normalizedText.indexOf(' ', wordStart);
+            if (wordEnd < 0) {
+                wordEnd = normalizedText.length();
+            }
+            String word = normalizedText.substring(wordStart, wordEnd);
+            for (int length = 1; length <= Math.min(word.length(), PREFIX_LENGTH); length++) {
+                addPosting(prefixGram(word, length), slot);
+            }
+            // trigrams inside the first four letters are implied by the prefix
+            for (int i = PREFIX_LENGTH - 2; i + 3 <= word.length(); i++) {
+                addPosting(trigram(word, i), slot);
+            }
+            wordStart = wordEnd + 1;
+        }
+    }
+
+    private void addPosting(long gram, int slot) {
+        int posting = postingByGram.get(gram);
+        if (posting == LongIntMap.MISSING) {
+            if (postingCount == postings.length) {
+                postings = Arrays.copyOf(postings, postingCount * 2);
+                postingSizes = Arrays.copyOf(postingSizes, postingCount * 2);
+            }
+            posting = postingCount++;
+            postings[posting] = new int[4];
+            postingByGram.put(gram, posting);
+        }
+        int size = postingSizes[posting];
+        // slots only grow, so the list stays sorted; skip a gram repeated within the same text
+        if (size > 0 && postings[posting][size - 1] == slot) {
+            return;
+        }
+        if (size == postings[posting].length) {
+            postings[posting] = Arrays.copyOf(postings[posting], size * 2);
+        }
+        postings[posting][size] = slot;
+        postingSizes[posting] = size + 1;
+    }
+
+    private void removeSlot(long id) {
+        int slot = slotById.get(id);
+        if (slot == LongIntMap.MISSING || slot < 0) {
+            return;
+        }
+        live.clear(slot);
+        texts[slot] = null;
+        normalized[slot] = null;
+        liveCount--;
+        slotById.put(id, -1);
+        int dead = slots - liveCount;
+        if (dead >= MIN_DEAD_SLOTS_TO_COMPACT && dead > liveCount) {
+            compact();
+        }
+    }
+
+    // Re-adds the live documents into fresh structures ordered by text length (then by their old slot),
+    // dropping the dead slots from every posting list
+    private void compact() {
+        long[] oldIds = ids;
+        String[] oldTexts = texts;
+        long[] order = new long[liveCount];
+        int n = 0;
+        for (int slot = live.nextSetBit(0); slot >= 0; slot = live.nextSetBit(slot + 1)) {
+            order[n++] = ((long) lengths[slot] << 32) | slot;
+        }
+        Arrays.sort(order);
+        reset(Math.max(INITIAL_CAPACITY, liveCount * 2));
+        for (long entry : order) {
+            int slot = (int) entry;
+            add(oldIds[slot], oldTexts[slot]);
+        }
+        sortedSlots = slots;
+    }
+
+    private void reset(int capacity) {
+        ids = new long[capacity];
+        texts = new String[capacity];
+        normalized = new String[capacity];
+        lengths = new int[capacity];
+        heads = new long[capacity];
+        live = new BitSet(capacity);
+        slots = 0;
+        sortedSlots = 0;
+        liveCount = 0;
+        slotById = new LongIntMap(capacity);
+        postingByGram = new LongIntMap(capacity * 4);
+        postings = new int[capacity * 4][];
+        postingSizes = new int[capacity * 4];
+        postingCount = 0;
+    }
+
+    // Three chars packed into the low 48 bits
+    private static long trigram(String word, int i) {
+        return ((long) word.charAt(i) << 32) | ((long) word.charAt(i + 1) << 16) | word.charAt(i + 2);
+    }
+
+    // The first length chars of the word. Up to three chars are led by a space, which keeps them apart
+    // from trigrams; four chars fill all 64 bits and their top char is never zero or a space.
+    private static long prefixGram(String word, int length) {
+        long gram = length < 4 ? ' ' : 0;
+        for (int i = 0; i < length; i++) {
+            gram = (gram << 16) | word.charAt(i);
+        }
+        return gram;
+    }
+
+    // Up to the first four chars of the word packed from the top bits down, so a shorter prefix is a mask away
+    private static long head(String word) {
+        long head = 0;
+        for (int i = 0; i < PREFIX_LENGTH; i++) {
+            head = (head << 16) | (i < word.length() ? word.charAt(i) : 0);
+        }
+        return head;
+    }
+
+    // Lower case without accents, words separated by single spaces and prefixed by one, "" when blank
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String folded = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("")
+                .toLowerCase(Locale.ROOT);
+        StringBuilder out = new StringBuilder(folded.length() + 1);
+        boolean inWord = false;
+        for (int i = 0; i < folded.length(); i++) {
+            char c = folded.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                if (!inWord) {
+                    out.append(' ');
+                    inWord = true;
+                }
+                out.append(c);
+            } else {
+                inWord = false;
+            }
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,101 @@
+package kmdb.movies_api.search;
+
+import kmdb.movies_api.dto.ReferenceDTO;
+import kmdb.movies_api.events.ActorDeleted;
+import kmdb.movies_api.events.ActorSaved;
+import kmdb.movies_api.events.MovieDeleted;
+import kmdb.movies_api.events.MovieSaved;
+import kmdb.movies_api.repositories.ActorRepository;
+import kmdb.movies_api.repositories.MovieRepository;
+import kmdb.movies_api.repositories.projections.NamedRow;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+// Typeahead over movie titles and actor names answered from memory. Both indexes are filled by one
+// streaming scan once the application is ready and then follow the service events after commit.
+@Slf4j
+@Component
+public class TypeaheadIndex {
+
+    private final MovieRepository movieRepository;
+    private final ActorRepository actorRepository;
+    private final TransactionTemplate readOnlyTransaction;
+
+    private final TrigramIndex movieTitles = new TrigramIndex();
+    private final TrigramIndex actorNames = new TrigramIndex();
+
+    public TypeaheadIndex(MovieRepository movieRepository, ActorRepository actorRepository,
+                          PlatformTransactionManager transactionManager) {
+        this.movieRepository = movieRepository;
+        this.actorRepository = actorRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    public List<ReferenceDTO> suggestMovies(String query, int limit) {
+        return movieTitles.suggest(query, limit);
+    }
+
+    public List<ReferenceDTO> suggestActors(String query, int limit) {
+        return actorNames.suggest(query, limit);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        reloadMovies();
+        reloadActors();
+    }
+
+    // Re-reads all titles, for bulk writes that do not publish an event per row
+    public void reloadMovies() {
+        load("movie titles", movieTitles, movieRepository::streamTitles);
+    }
+
+    public void reloadActors() {
+        load("actor names", actorNames, actorRepository::streamNames);
+    }
+
+    private void load(String what, TrigramIndex index, Supplier<Stream<NamedRow>> scan) {
+        long start = System.nanoTime();
+        index.beginLoad();
+        try {
+            readOnlyTransaction.executeWithoutResult(status -> {
+                try (Stream<NamedRow> rows = scan.get()) {
+                    rows.forEach(row -> index.load(row.id(), row.name()));
+                }
+            });
+        } finally {
+            index.endLoad();
+        }
+        log.info("Indexed {} {} for typeahead in {} ms", index.size(), what, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMovieSaved(MovieSaved event) {
+        movieTitles.put(event.id(), event.title());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMovieDeleted(MovieDeleted event) {
+        movieTitles.remove(event.id());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onActorSaved(ActorSaved event) {
+        actorNames.put(event.id(), event.name());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onActorDeleted(ActorDeleted event) {
+        actorNames.remove(event.id());
+    }
+}
@@ -1,22 +1,46 @@
 package kmdb.movies_api.services;
 
+import kmdb.movies_api.dto.ActorPathDTO;
+import kmdb.movies_api.dto.CoStarsDTO;
+import kmdb.movies_api.dto.MovieSummaryDTO;
+import kmdb.movies_api.dto.ReferenceDTO;
 import kmdb.movies_api.entities.Actor;
-import kmdb.movies_api.entities.Movie;
+import kmdb.movies_api.events.ActorDeleted;
+import kmdb.movies_api.events.ActorSaved;
 import kmdb.movies_api.exceptions.ResourceAlreadyExistsException;
 import kmdb.movies_api.exceptions.ResourceNotFoundException;
+import kmdb.movies_api.pagination.CursorPage;
+import kmdb.movies_api.pagination.KeysetCursor;
 import kmdb.movies_api.repositories.ActorRepository;
 import kmdb.movies_api.repositories.MovieRepository;
+import kmdb.movies_api.repositories.projections.NamedRow;
+import kmdb.movies_api.repositories.projections.VersionRow;
+import kmdb.movies_api.repositories.projections.VersionSummaryRow;
+import kmdb.movies_api.search.CoStarGraph;
+import kmdb.movies_api.search.CoStarIndex;
+import kmdb.movies_api.search.FullTextQuery;
+import kmdb.movies_api.search.TypeaheadIndex;
 import lombok.AllArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 
 @Service
 @AllArgsConstructor
@@ -24,7 +48,13 @@ public class ActorService {
 
     private final ActorRepository actorRepository;
     private final MovieRepository movieRepository;
+    private final MovieSummaryAssembler movieSummaryAssembler;
+    private final MovieLinkWriter movieLinkWriter;
+    private final TypeaheadIndex typeaheadIndex;
+    private final CoStarIndex coStarIndex;
+    private final ApplicationEventPublisher eventPublisher;
 
+    @Transactional(readOnly = true)
     public Optional<List<Actor>> getAllActors() {
         List<Actor> actorsList = actorRepository.findAll();
         if (actorsList.isEmpty()) {
@@ -33,10 +63,12 @@ public class ActorService {
         return Optional.of(actorsList);
     }
 
+    @Transactional(readOnly = true)
     public String getActorCount() {
         return "Actors in database: " + actorRepository.count();
     }
 
+    @Transactional(readOnly = true)
     public Optional<List<Actor>> getActorsByPage(int page, int size) {
         PageRequest pageable = PageRequest.of(page, size);
         Page<Actor> actorsPage = actorRepository.findAll(pageable);
@@ -47,6 +79,39 @@ public class ActorService {
         return Optional.of(actorsList);
     }
 
+    // Same as getActorsByPage but without the COUNT(*) query
+    @Transactional(readOnly = true)
+    public Slice<Actor> getActorSlice(int page, int size) {
+        return actorRepository.findSlice(PageRequest.of(page, size));
+    }
+
+    // Keyset pagination ordered by id or by (name, id), cost does not grow with the page depth
+    @Transactional(readOnly = true)
+    public CursorPage<Actor> scrollActors(String cursorToken, String sort, int size) {
+        KeysetCursor cursor = KeysetCursor.decode(cursorToken, sort);
+        Limit limit = Limit.of(size + 1);
+        List<Actor> actors = switch (cursor.sort()) {
+            case "id" -> actorRepository.findAfterId(cursor.id(), limit);
+            case "name" -> actorRepository.findAfterName(cursor.value(), cursor.id(), limit);
+            default -> throw new IllegalArgumentException("Unsupported sort '" + cursor.sort() + "', use id or name");
+        };
+        return CursorPage.of(actors, size,
+                last -> new KeysetCursor(cursor.sort(), last.getId(), "name".equals(cursor.sort()) ? last.getName() : ""),
+                page -> page);
+    }
+
+    // Versions for conditional GETs of the actor list and of one actor (empty when there is no such actor)
+    @Transactional(readOnly = true)
+    public VersionSummaryRow getActorListVersion() {
+        return actorRepository.findVersionSummary();
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<VersionRow> getActorVersion(Long actorId) {
+        return actorRepository.findVersionById(actorId);
+    }
+
+    @Transactional(readOnly = true)
     public Optional<Actor> getActorById(Long actorId) {
         Optional<Actor> actor = actorRepository.findById(actorId);
         if (actor.isPresent()) {
@@ -56,23 +121,42 @@ public class ActorService {
         }
     }
 
-    public Optional<List<Actor>> findActorsByName(String name) {
+    @Transactional(readOnly = true)
+    public Optional<List<Actor>> findActorsByName(String name, int limit) {
         if (name == null || name.isEmpty()) {
             return getAllActors(); // Return all actors if no name provided
         }
 
-        List<Actor> actorsList = actorRepository.findByNameContainingIgnoreCase(name);
+        // Ranked token/prefix search on the FTS5 index instead of a LIKE '%name%' table scan
+        String query = FullTextQuery.prefixQuery(name);
+        List<Long> rankedIds = query == null ? List.of() : actorRepository.findIdsByNameMatch(query, limit);
+        Map<Long, Actor> actors = new HashMap<>(rankedIds.size() * 2);
+        for (Actor actor : actorRepository.findAllById(rankedIds)) {
+            actors.put(actor.getId(), actor);
+        }
+        List<Actor> actorsList = new ArrayList<>(rankedIds.size());
+        for (Long id : rankedIds) {
+            if (actors.containsKey(id)) {
+                actorsList.add(actors.get(id));
+            }
+        }
         if (actorsList.isEmpty()) {
             throw new ResourceNotFoundException("Actor with name containing '" + name + "' does not exist");
         }
         return Optional.of(actorsList);
     }
 
-    public Optional<List<Movie>> getMoviesByActor(Long actorId) {
+    // Typeahead on names, answered from the in-memory index without a database round trip
+    public List<ReferenceDTO> suggestNames(String query, int limit) {
+        return typeaheadIndex.suggestActors(query, limit);
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<List<MovieSummaryDTO>> getMoviesByActor(Long actorId) {
         Actor actor = actorRepository.findById(actorId)
                 .orElseThrow(() -> new ResourceNotFoundException("Actor with ID " + actorId + " does not exist"));
 
-        List<Movie> moviesList = new ArrayList<>(movieRepository.findAllByActorsContains(actor));
+        List<MovieSummaryDTO> moviesList = movieSummaryAssembler.toSummaries(movieRepository.findRowsByActorId(actorId));
 
         if (moviesList.isEmpty()) {
             throw new ResourceNotFoundException("No movies found starring actor '" + actor.getName() + "'");
@@ -80,12 +164,65 @@ public class ActorService {
         return Optional.of(moviesList);
     }
 
+    // Actors who played with the actor, most shared movies first. They are counted on the in-memory
+    // graph; only the names of the listed co-stars are read.
+    @Transactional(readOnly = true)
+    public CoStarsDTO getCoStars(Long actorId, int limit) {
+        requireActors(Set.of(actorId));
+        CoStarGraph.CoStars coStars = coStarIndex.coStars(actorId, limit);
+        Map<Long, String> names = names(actorRepository::findNamesByIdIn,
+                coStars.first().stream().map(CoStarGraph.CoStar::actorId).toList());
+        return new CoStarsDTO(coStars.total(), coStars.first().stream()
+                .map(coStar -> new CoStarsDTO.CoStar(coStar.actorId(), names.get(coStar.actorId()), coStar.sharedMovies()))
+                .toList());
+    }
+
+    // Degrees of separation: a shortest chain of shared movies between two actors, searched on the
+    // in-memory graph up to maxDegrees movies
+    @Transactional(readOnly = true)
+    public ActorPathDTO getPath(Long fromActorId, Long toActorId, int maxDegrees) {
+        requireActors(Set.of(fromActorId, toActorId));
+        CoStarGraph.Path path = coStarIndex.path(fromActorId, toActorId, maxDegrees);
+        if (path == null) {
+            throw new ResourceNotFoundException("No connection between actors " + fromActorId + " and " + toActorId
+                    + " within " + maxDegrees + " degrees");
+        }
+        List<Long> actorIds = Arrays.stream(path.actorIds()).boxed().toList();
+        List<Long> movieIds = Arrays.stream(path.movieIds()).boxed().toList();
+        Map<Long, String> actorNames = names(actorRepository::findNamesByIdIn, actorIds);
+        Map<Long, String> movieTitles = names(movieRepository::findTitlesByIdIn, movieIds);
+        return new ActorPathDTO(movieIds.size(),
+                actorIds.stream().map(id -> new ReferenceDTO(id, actorNames.get(id))).toList(),
+                movieIds.stream().map(id -> new ReferenceDTO(id, movieTitles.get(id))).toList());
+    }
+
+    private void requireActors(Set<Long> actorIds) {
+        Set<Long> existing = actorRepository.findExistingIds(actorIds);
+        for (Long actorId : actorIds) {
+            if (!existing.contains(actorId)) {
+                throw new ResourceNotFoundException("Actor with ID " + actorId + " does not exist");
+            }
+        }
+    }
+
+    private static Map<Long, String> names(Function<Collection<Long>, List<NamedRow>> lookup,
+                                           List<Long> ids) {
+        Map<Long, String> names = new HashMap<>();
+        if (!ids.isEmpty()) {
+            for (NamedRow row : lookup.apply(ids)) {
+                names.put(row.id(), row.name());
+            }
+        }
+        return names;
+    }
+
     public ResponseEntity<String> addActor(Actor actor) {
         Optional<Actor> actorOptional = actorRepository.findByName(actor.getName());
         if (actorOptional.isPresent()) {
             throw new ResourceAlreadyExistsException("Actor '" + actor.getName() + "' already exists");
         }
-        actorRepository.save(actor);
+        Actor saved = actorRepository.save(actor);
+        eventPublisher.publishEvent(new ActorSaved(saved.getId(), saved.getName()));
         return new ResponseEntity<>("Actor '" + actor.getName() + "' added successfully", HttpStatus.CREATED);
     }
 
@@ -94,31 +231,47 @@ public class ActorService {
         Actor actor = actorRepository.findById(actorId)
                 .orElseThrow(() -> new ResourceNotFoundException("Actor with ID " + actorId + " does not exist"));
 
-        int numOfMovies = actor.getMovies().size();
+        // counted and unlinked on the join table, the movies themselves are never loaded
+        long numOfMovies = actorRepository.countMovies(actorId);
 
-        if (force) {
-            actorRepository.deleteById(actorId); // Delete regardless of relationships
-            return;
-        }
-
-        if (numOfMovies > 0) {
+        if (!force && numOfMovies > 0) {
             throw new IllegalStateException(
                     "Cannot delete actor '" + actor.getName() + "' because they are associated with " + numOfMovies + " movie(s)");
         }
-        actorRepository.deleteById(actorId);
+        // With force, delete regardless of relationships; the writer also drops the cached casts of
+        // those movies, which would otherwise still list the deleted actor
+        if (numOfMovies > 0) {
+            movieLinkWriter.unlinkActor(actorId);
+        }
+        actorRepository.delete(actor);
+        eventPublisher.publishEvent(new ActorDeleted(actorId));
     }
 
     @Transactional
     public void updateActor(Long actorId, String name, String birthDate) {
         Actor actor = actorRepository.findById(actorId)
                 .orElseThrow(() -> new ResourceNotFoundException("Actor with ID " + actorId + " does not exist"));
+        String previousName = actor.getName();
+        String previousBirthDate = actor.getBirthDate();
 
         if (name != null && !name.isEmpty()) {
+            // names are unique (ux_actor_name)
+            actorRepository.findByName(name)
+                    .filter(other -> !other.getId().equals(actorId))
+                    .ifPresent(other -> {
+                        throw new ResourceAlreadyExistsException("Actor '" + name + "' already exists");
+                    });
             actor.setName(name);
+            eventPublisher.publishEvent(new ActorSaved(actorId, name));
         }
 
         if (birthDate != null) {
             actor.setBirthDate(birthDate);
         }
+
+        // the movies list their actors' names and birth dates, so their ETags have to change too
+        if (!actor.getName().equals(previousName) || !Objects.equals(actor.getBirthDate(), previousBirthDate)) {
+            movieRepository.touchMoviesWithActor(actorId, System.currentTimeMillis());
+        }
     }
 }
@@ -1,16 +1,18 @@
 package kmdb.movies_api.services;
 
 import kmdb.movies_api.entities.Genre;
-import kmdb.movies_api.entities.Movie;
+import kmdb.movies_api.events.GenreDeleted;
 import kmdb.movies_api.exceptions.ResourceAlreadyExistsException;
 import kmdb.movies_api.exceptions.ResourceNotFoundException;
 import kmdb.movies_api.repositories.GenreRepository;
+import kmdb.movies_api.repositories.projections.VersionRow;
+import kmdb.movies_api.repositories.projections.VersionSummaryRow;
 import lombok.AllArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
-
-import jakarta.transaction.Transactional;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
@@ -19,30 +21,32 @@ import java.util.Optional;
 @AllArgsConstructor
 public class GenreService {
     private final GenreRepository genreRepository;
+    private final MovieLinkWriter movieLinkWriter;
+    private final ApplicationEventPublisher eventPublisher;
 
+    @Transactional(readOnly = true)
     public List<Genre> getAllGenres() {
         return genreRepository.findAll();
     }
 
     @Transactional
     public void deleteGenre(Long genreId, boolean force) {
-    Genre genre = genreRepository.findById(genreId)
-            .orElseThrow(() -> new ResourceNotFoundException("Genre with ID " + genreId + " not found"));
+        Genre genre = genreRepository.findById(genreId)
+                .orElseThrow(() -> new ResourceNotFoundException("Genre with ID " + genreId + " not found"));
 
-    if (force) {
-        // Remove associations with movies
-        for (Movie movie : genre.getMovies()) {
-            movie.getGenres().remove(genre);
-        }
-        genreRepository.delete(genre);
-    } else {
-        if (!genre.getMovies().isEmpty()) {
+        // counted and unlinked on the join table, the movies themselves are never loaded
+        long numOfMovies = genreRepository.countMovies(genreId);
+        if (!force && numOfMovies > 0) {
             throw new IllegalStateException("Cannot delete genre with associated movies. Use force=true to override.");
         }
+        if (numOfMovies > 0) {
+            movieLinkWriter.unlinkGenre(genreId);
+        }
         genreRepository.delete(genre);
+        eventPublisher.publishEvent(new GenreDeleted(genreId));
     }
-}
 
+    @Transactional(readOnly = true)
     public List<Genre> searchGenresByName(String name) {
         List<Genre> genres = genreRepository.findByNameContainingIgnoreCase(name);
         if (genres.isEmpty()) {
@@ -51,6 +55,18 @@ public class GenreService {
         return genres;
     }
 
+    // Versions for conditional GETs of the genre list and of one genre (empty when there is no such genre)
+    @Transactional(readOnly = true)
+    public VersionSummaryRow getGenreListVersion() {
+        return genreRepository.findVersionSummary();
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<VersionRow> getGenreVersion(Long id) {
+        return genreRepository.findVersionById(id);
+    }
+
+    @Transactional(readOnly = true)
     public Genre getGenreById(Long id) {
         return genreRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Genre with ID " + id + " not found"));
@@ -0,0 +1,105 @@
+package kmdb.movies_api.services;
+
+import jakarta.persistence.EntityManager;
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.cache.spi.access.CollectionDataAccess;
+import org.hibernate.cache.spi.access.EntityDataAccess;
+import org.hibernate.cache.spi.access.SoftLock;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.persister.collection.CollectionPersister;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+// Keeps the second-level cache right around writes made with plain JDBC inside a JPA transaction,
+// the way Hibernate does for its own: call it before the writes. The update timestamps of the tables
+// are pre-invalidated, so cached query results on them are not used until the transaction ends, and
+// invalidated again when it does, so results a reader cached from a snapshot older than the commit
+// are never used either. Cached entities and collections are soft-locked the same way: no load puts
+// them back while the transaction runs, and after it only loads that began later may.
+@Component
+public class JdbcCacheInvalidator {
+
+    private final EntityManager entityManager;
+
+    public JdbcCacheInvalidator(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    // Tables as named in SQL, which are also Hibernate's query spaces
+    public void tablesWritten(String... tables) {
+        SharedSessionContractImplementor session = session();
+        session.getFactory().getCache().getTimestampsCache().preInvalidate(tables, session);
+        afterCompletion(session, (success, completed) ->
+                completed.getFactory().getCache().getTimestampsCache().invalidate(tables, completed));
+    }
+
+    public void entitiesWritten(Class<?> entityClass, Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        SharedSessionContractImplementor session = session();
+        SessionFactoryImplementor factory = session.getFactory();
+        EntityPersister persister = factory.getMappingMetamodel().getEntityDescriptor(entityClass);
+        if (!persister.canWriteToCache()) {
+            return;
+        }
+        EntityDataAccess access = persister.getCacheAccessStrategy();
+        List<Object> keys = new ArrayList<>(ids.size());
+        List<SoftLock> locks = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Object key = access.generateCacheKey(id, persister, factory, session.getTenantIdentifier());
+            keys.add(key);
+            // no version: only loads started after the unlock may cache the row again
+            locks.add(access.lockItem(session, key, null));
+        }
+        afterCompletion(session, (success, completed) -> {
+            for (int i = 0; i < keys.size(); i++) {
+                access.unlockItem(completed, keys.get(i), locks.get(i));
+            }
+        });
+    }
+
+    // role is the owner's entity name and the collection property, e.g. kmdb.movies_api.entities.Movie.actors
+    public void collectionsWritten(String role, Collection<Long> ownerIds) {
+        if (ownerIds.isEmpty()) {
+            return;
+        }
+        SharedSessionContractImplementor session = session();
+        SessionFactoryImplementor factory = session.getFactory();
+        CollectionPersister persister = factory.getMappingMetamodel().getCollectionDescriptor(role);
+        if (!persister.hasCache()) {
+            return;
+        }
+        CollectionDataAccess access = persister.getCacheAccessStrategy();
+        List<Object> keys = new ArrayList<>(ownerIds.size());
+        List<SoftLock> locks = new ArrayList<>(ownerIds.size());
+        for (Long id : ownerIds) {
+            Object key = access.generateCacheKey(id, persister, factory, session.getTenantIdentifier());
+            keys.add(key);
+            locks.add(access.lockItem(session, key, null));
+        }
+        afterCompletion(session, (success, completed) -> {
+            for (int i = 0; i < keys.size(); i++) {
+                access.unlockItem(completed, keys.get(i), locks.get(i));
+            }
+        });
+    }
+
+    // the session of the caller's transaction, whose completion releases the locks
+    private SharedSessionContractImplementor session() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Cached data can only be invalidated inside a transaction");
+        }
+        return entityManager.unwrap(SharedSessionContractImplementor.class);
+    }
+
+    private static void afterCompletion(SharedSessionContractImplementor session, AfterTransactionCompletionProcess process) {
+        session.asEventSource().getActionQueue().registerProcess(process);
+    }
+}
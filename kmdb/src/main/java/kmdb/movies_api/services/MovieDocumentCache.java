@@ -0,0 +1,175 @@
+package kmdb.movies_api.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import kmdb.movies_api.entities.Movie;
+import kmdb.movies_api.events.MovieActorsChanged;
+import kmdb.movies_api.events.MovieDeleted;
+import kmdb.movies_api.events.MovieGenresChanged;
+import kmdb.movies_api.events.MovieSaved;
+import kmdb.movies_api.repositories.projections.MovieVersionRow;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+// The JSON of recently requested movies, serialized once and kept both plain and gzipped, so a hit
+// is written out without Jackson or compression work. A document is only served for the version
+// and star rating it was made from, which also covers changes made outside MovieService (actor
+// renames, CSV imports, rating flushes); MovieService's events evict documents as soon as their movie changes.
+// The documents are kept in least recently used order within kmdb.movie-documents.budget-bytes
+// (0 disables).
+@Component
+public class MovieDocumentCache {
+
+    // map entry, record and array headers of one document
+    private static final int ENTRY_OVERHEAD = 128;
+
+    private final ObjectMapper objectMapper;
+    private final long budgetBytes;
+    private final Counter hits;
+    private final Counter misses;
+
+    // access ordered, so iteration starts at the least recently used document
+    private final LinkedHashMap<Long, MovieDocument> documents = new LinkedHashMap<>(256, 0.75f, true);
+    private long bytes;
+
+    public record MovieDocument(MovieVersionRow version, byte[] json, byte[] gzip) {
+
+        long size() {
+            return json.length + gzip.length + ENTRY_OVERHEAD;
+        }
+    }
+
+    public MovieDocumentCache(ObjectMapper objectMapper, MeterRegistry registry, Environment env) {
+        this.objectMapper = objectMapper;
+        this.budgetBytes = env.getProperty("kmdb.movie-documents.budget-bytes", Long.class, 16L * 1024 * 1024);
+        this.hits = Counter.builder("kmdb.movie.documents").tag("result", "hit").register(registry);
+        this.misses = Counter.builder("kmdb.movie.documents").tag("result", "miss").register(registry);
+        Gauge.builder("kmdb.movie.documents.bytes", this, MovieDocumentCache::bytes).register(registry);
+    }
+
+    // The document of this version of the movie, null if it has to be made from the entity
+    public MovieDocument get(long movieId, MovieVersionRow version) {
+        MovieDocument document;
+        synchronized (this) {
+            document = documents.get(movieId);
+        }
+        if (document == null || document.version().version() != version.version()
+                || document.version().starRating() != version.starRating()) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return document;
+    }
+
+    // Serializes and compresses a loaded movie and keeps the result if it fits the budget
+    public MovieDocument put(Movie movie) {
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(movie);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize movie " + movie.getId(), e);
+        }
+        MovieDocument document = new MovieDocument(
+                new MovieVersionRow(movie.getVersion(), movie.getStarRating(), movie.getUpdatedAt()), json, gzip(json));
+        if (document.size() <= budgetBytes) {
+            synchronized (this) {
+                MovieDocument previous = documents.get(movie.getId());
+                if (previous != null && (previous.version().version() > document.version().version()
+                        || previous.version().version() == document.version().version()
+                        && previous.version().updatedAt() > document.version().updatedAt())) {
+                    // a request that loaded the movie later already stored a newer version or rating
+                    return document;
+                }
+                documents.put(movie.getId(), document);
+                bytes += document.size() - (previous == null ? 0 : previous.size());
+                Iterator<Map.Entry<Long, MovieDocument>> leastRecentlyUsed = documents.entrySet().iterator();
+                while (bytes > budgetBytes) {
+                    bytes -= leastRecentlyUsed.next().getValue().size();
+                    leastRecentlyUsed.remove();
+                }
+            }
+        }
+        return document;
+    }
+
+    public synchronized void evict(long movieId) {
+        MovieDocument document = documents.remove(movieId);
+        if (document != null) {
+            bytes -= document.size();
+        }
+    }
+
+    private synchronized long bytes() {
+        return bytes;
+    }
+
+    // True unless the Accept-Encoding header leaves out gzip or refuses it with q=0
+    public static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            String name = parts[0].trim();
+            if (name.equalsIgnoreCase("gzip") || name.equals("*")) {
+                for (int i = 1; i < parts.length; i++) {
+                    String parameter = parts[i].trim().replace(" ", "");
+                    if (parameter.matches("q=0(\\.0*)?")) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static byte[] gzip(byte[] json) {
+        // compressed once per version, so the slowest level is worth it
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(json.length / 3 + 32);
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed) {
+            {
+                def.setLevel(Deflater.BEST_COMPRESSION);
+            }
+        }) {
+            out.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return compressed.toByteArray();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMovieSaved(MovieSaved event) {
+        evict(event.id());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMovieDeleted(MovieDeleted event) {
+        evict(event.id());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMovieActorsChanged(MovieActorsChanged event) {
+        evict(event.movieId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMovieGenresChanged(MovieGenresChanged event) {
+        evict(event.movieId());
+    }
+}
@@ -0,0 +1,294 @@
+package kmdb.movies_api.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import kmdb.movies_api.config.DatabaseConfig;
+import kmdb.movies_api.dto.BulkIngestResultDTO;
+import kmdb.movies_api.dto.MovieDTO;
+import kmdb.movies_api.entities.Actor;
+import kmdb.movies_api.entities.Genre;
+import kmdb.movies_api.entities.Movie;
+import kmdb.movies_api.events.MovieActorsChanged;
+import kmdb.movies_api.events.MovieGenresChanged;
+import kmdb.movies_api.events.MovieSaved;
+import kmdb.movies_api.repositories.ActorRepository;
+import kmdb.movies_api.repositories.GenreRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Cache;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// Bulk movie upload. Items are streamed from the request body and handled in chunks: the actor and
+// genre ids of a chunk are checked with one id-only query each, then its movies and join rows are
+// inserted with batched JDBC statements in one transaction. Movie ids are assigned up front from the
+// current maximum, which is only safe while all writes share the single writer connection, so startup
+// fails without it unless kmdb.ingest.enabled=false. An invalid item is reported and skipped; earlier
+// chunks stay committed if a later one fails.
+@Slf4j
+@Service
+public class MovieIngestService {
+
+    private static final String INSERT_MOVIE =
+            "INSERT INTO movie (id, title, release_year, duration, star_rating, updated_at) " +
+                    "VALUES (?, ?, ?, ?, 0, CAST(unixepoch('subsec') * 1000 AS INTEGER))";
+    private static final String INSERT_MOVIE_ACTOR = "INSERT INTO actors (movie_id, actor_id) VALUES (?, ?)";
+    private static final String INSERT_MOVIE_GENRE = "INSERT INTO genres (movie_id, genre_id) VALUES (?, ?)";
+    private static final String LAST_MOVIE_ID = "SELECT COALESCE(MAX(id), 0) FROM movie";
+    // an AUTOINCREMENT table never reuses the ids of deleted rows, its counter lives in sqlite_sequence
+    // (which only exists once some table is declared AUTOINCREMENT)
+    private static final String LAST_MOVIE_SEQUENCE = "SELECT COALESCE(MAX(seq), 0) FROM sqlite_sequence WHERE name = 'movie'";
+    private static final String HAS_SEQUENCE_TABLE = "SELECT COUNT(*) FROM sqlite_master WHERE name = 'sqlite_sequence'";
+
+    private final ActorRepository actorRepository;
+    private final GenreRepository genreRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transaction;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final ApplicationEventPublisher eventPublisher;
+    private final EntityManagerFactory entityManagerFactory;
+    private final int chunkSize;
+    private final int batchSize;
+    private final int maxReportedErrors;
+    private final boolean enabled;
+
+    public MovieIngestService(ActorRepository actorRepository, GenreRepository genreRepository,
+                              JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                              ObjectMapper objectMapper, Validator validator,
+                              ApplicationEventPublisher eventPublisher, EntityManagerFactory entityManagerFactory,
+                              Environment env) {
+        this.actorRepository = actorRepository;
+        this.genreRepository = genreRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.eventPublisher = eventPublisher;
+        this.entityManagerFactory = entityManagerFactory;
+        this.chunkSize = env.getProperty("kmdb.ingest.chunk-size", Integer.class, 5000);
+        this.batchSize = env.getProperty("kmdb.ingest.batch-size", Integer.class, 1000);
+        this.maxReportedErrors = env.getProperty("kmdb.ingest.max-reported-errors", Integer.class, 1000);
+        this.enabled = env.getProperty("kmdb.ingest.enabled", Boolean.class, true);
+        if (enabled && !DatabaseConfig.hasSingleWriter(env)) {
+            throw new IllegalStateException("The bulk upload takes movie ids from MAX(id) and needs the single" +
+                    " writer connection (kmdb.datasource.pooled=true and kmdb.datasource.read-write-split=true)," +
+                    " set kmdb.ingest.enabled=false otherwise");
+        }
+    }
+
+    // Reads a JSON array or a stream of whitespace/newline separated JSON objects (NDJSON)
+    public BulkIngestResultDTO ingest(InputStream body) throws IOException {
+        if (!enabled) {
+            throw new IllegalStateException("Bulk upload is disabled (kmdb.ingest.enabled=false)");
+        }
+        Report report = new Report();
+        List<MovieDTO> chunk = new ArrayList<>(chunkSize);
+        String malformed = null;
+        // MappingIterator unwraps a root-level array, so both formats read the same way
+        try (MappingIterator<MovieDTO> items = objectMapper.readerFor(MovieDTO.class).readValues(body)) {
+            while (items.hasNextValue()) {
+                chunk.add(items.nextValue());
+                if (chunk.size() == chunkSize) {
+                    insertChunk(chunk, report);
+                    chunk.clear();
+                }
+            }
+        } catch (JsonProcessingException e) {
+            // the parser cannot reliably resync after malformed input, so everything after it is dropped
+            malformed = "Malformed movie: " + e.getOriginalMessage();
+        } finally {
+            if (!chunk.isEmpty()) {
+                insertChunk(chunk, report);
+            }
+            if (report.inserted > 0) {
+                evictCachedQueries();
+            }
+        }
+        if (malformed != null) {
+            report.error(report.received++, malformed);
+        }
+        report.errors.sort(Comparator.comparingInt(BulkIngestResultDTO.ItemError::index));
+        log.info("Bulk upload: {} received, {} inserted, {} failed", report.received, report.inserted, report.failed);
+        return new BulkIngestResultDTO(report.received, report.inserted, report.failed, report.errors);
+    }
+
+    private void insertChunk(List<MovieDTO> chunk, Report report) {
+        int firstIndex = report.received;
+        report.received += chunk.size();
+
+        List<Integer> valid = new ArrayList<>(chunk.size());
+        Set<Long> actorIds = new HashSet<>();
+        Set<Long> genreIds = new HashSet<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            String violation = violation(chunk.get(i));
+            if (violation != null) {
+                report.error(firstIndex + i, violation);
+                continue;
+            }
+            valid.add(i);
+            actorIds.addAll(chunk.get(i).getActors());
+            genreIds.addAll(chunk.get(i).getGenres());
+        }
+        Set<Long> knownActors = actorIds.isEmpty() ? Set.of() : actorRepository.findExistingIds(actorIds);
+        Set<Long> knownGenres = genreIds.isEmpty() ? Set.of() : genreRepository.findExistingIds(genreIds);
+
+        List<MovieDTO> rows = new ArrayList<>(valid.size());
+        // chunk indexes of the rows, so a failed batch reports only the items it actually held
+        List<Integer> sent = new ArrayList<>(valid.size());
+        for (int i : valid) {
+            MovieDTO movie = chunk.get(i);
+            String missing = missingReference(movie, knownActors, knownGenres);
+            if (missing != null) {
+                report.error(firstIndex + i, missing);
+            } else {
+                rows.add(movie);
+                sent.add(i);
+            }
+        }
+        if (rows.isEmpty()) {
+            return;
+        }
+
+        long firstId;
+        try {
+            firstId = transaction.execute(status -> insertRows(rows));
+        } catch (RuntimeException e) {
+            log.warn("Bulk upload chunk starting at item {} failed", firstIndex, e);
+            for (int i : sent) {
+                report.error(firstIndex + i, "Not inserted, the batch failed: " + e.getMessage());
+            }
+            return;
+        }
+        report.inserted += rows.size();
+        for (int i = 0; i < rows.size(); i++) {
+            MovieDTO row = rows.get(i);
+            eventPublisher.publishEvent(new MovieSaved(firstId + i, row.getTitle(), row.getReleaseYear()));
+            eventPublisher.publishEvent(new MovieActorsChanged(firstId + i, row.getActors(), List.of()));
+            eventPublisher.publishEvent(new MovieGenresChanged(firstId + i, row.getGenres(), List.of()));
+        }
+    }
+
+    // Inserts the rows with consecutive ids and returns the first one
+    private long insertRows(List<MovieDTO> rows) {
+        long lastId = jdbcTemplate.queryForObject(LAST_MOVIE_ID, Long.class);
+        if (jdbcTemplate.queryForObject(HAS_SEQUENCE_TABLE, Integer.class) > 0) {
+            lastId = Math.max(lastId, jdbcTemplate.queryForObject(LAST_MOVIE_SEQUENCE, Long.class));
+        }
+        long firstId = lastId + 1;
+
+        List<long[]> actorLinks = new ArrayList<>();
+        List<long[]> genreLinks = new ArrayList<>();
+        for (int i = 0; i < rows.size(); i++) {
+            long movieId = firstId + i;
+            for (Long actorId : new LinkedHashSet<>(rows.get(i).getActors())) {
+                actorLinks.add(new long[]{movieId, actorId});
+            }
+            for (Long genreId : new LinkedHashSet<>(rows.get(i).getGenres())) {
+                genreLinks.add(new long[]{movieId, genreId});
+            }
+        }
+
+        jdbcTemplate.batchUpdate(INSERT_MOVIE, indexes(rows.size()), batchSize, (ps, i) -> {
+            MovieDTO movie = rows.get(i);
+            ps.setLong(1, firstId + i);
+            ps.setString(2, movie.getTitle());
+            ps.setInt(3, movie.getReleaseYear());
+            ps.setInt(4, movie.getDuration());
+        });
+        jdbcTemplate.batchUpdate(INSERT_MOVIE_ACTOR, actorLinks, batchSize, (ps, link) -> {
+            ps.setLong(1, link[0]);
+            ps.setLong(2, link[1]);
+        });
+        jdbcTemplate.batchUpdate(INSERT_MOVIE_GENRE, genreLinks, batchSize, (ps, link) -> {
+            ps.setLong(1, link[0]);
+            ps.setLong(2, link[1]);
+        });
+        return firstId;
+    }
+
+    // Same rules as POST /api/movies: the DTO constraints plus the ones on the Movie entity
+    private String violation(MovieDTO dto) {
+        if (dto == null) {
+            return "Movie cannot be null";
+        }
+        Set<ConstraintViolation<MovieDTO>> dtoViolations = validator.validate(dto);
+        if (!dtoViolations.isEmpty()) {
+            return dtoViolations.stream().map(ConstraintViolation::getMessage).sorted().collect(Collectors.joining("; "));
+        }
+        if (dto.getActors().contains(null) || dto.getGenres().contains(null)) {
+            return "Actor and genre IDs cannot be null";
+        }
+        Movie movie = new Movie();
+        movie.setTitle(dto.getTitle());
+        movie.setReleaseYear(dto.getReleaseYear());
+        movie.setDuration(dto.getDuration());
+        Set<ConstraintViolation<Movie>> movieViolations = validator.validate(movie);
+        if (!movieViolations.isEmpty()) {
+            return movieViolations.stream().map(ConstraintViolation::getMessage).sorted().collect(Collectors.joining("; "));
+        }
+        return null;
+    }
+
+    private static String missingReference(MovieDTO movie, Set<Long> knownActors, Set<Long> knownGenres) {
+        for (Long actorId : movie.getActors()) {
+            if (!knownActors.contains(actorId)) {
+                return "Actor with ID " + actorId + " not found";
+            }
+        }
+        for (Long genreId : movie.getGenres()) {
+            if (!knownGenres.contains(genreId)) {
+                return "Genre with ID " + genreId + " not found";
+            }
+        }
+        return null;
+    }
+
+    // The rows were written with plain JDBC, so Hibernate did not see them: drop cached query results
+    // and the cached movie lists of actors and genres
+    private void evictCachedQueries() {
+        Cache cache = entityManagerFactory.getCache().unwrap(Cache.class);
+        cache.evictQueryRegions();
+        cache.evictCollectionData(Actor.class.getName() + ".movies");
+        cache.evictCollectionData(Genre.class.getName() + ".movies");
+    }
+
+    private static List<Integer> indexes(int size) {
+        List<Integer> indexes = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            indexes.add(i);
+        }
+        return indexes;
+    }
+
+    private final class Report {
+        private int received;
+        private int inserted;
+        private int failed;
+        private final List<BulkIngestResultDTO.ItemError> errors = new ArrayList<>();
+
+        private void error(int index, String message) {
+            failed++;
+            if (errors.size() < maxReportedErrors) {
+                errors.add(new BulkIngestResultDTO.ItemError(index, message));
+            }
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package kmdb.movies_api.services;
+
+import kmdb.movies_api.entities.Actor;
+import kmdb.movies_api.entities.Genre;
+import kmdb.movies_api.entities.Movie;
+import kmdb.movies_api.repositories.projections.MovieVersionRow;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+// Set-based writes to the actors and genres join tables, instead of loading collections and
+// writing row by row: linking and unlinking actors and genres of one movie (the ids passed as a JSON
+// array) and unlinking an actor or genre from all of its movies before it is deleted. Runs inside
+// the caller's transaction and gives the affected movies a new version. The writes bypass
+// Hibernate, so the affected entities, collections and tables are handed to JdbcCacheInvalidator
+// first.
+@Component
+public class MovieLinkWriter {
+
+    private static final String LINK_ACTORS =
+            "INSERT OR IGNORE INTO actors (movie_id, actor_id) SELECT ?, value FROM json_each(?)";
+    private static final String UNLINK_ACTORS =
+            "DELETE FROM actors WHERE movie_id = ? AND actor_id IN (SELECT value FROM json_each(?))";
+    private static final String LINK_GENRES =
+            "INSERT OR IGNORE INTO genres (movie_id, genre_id) SELECT ?, value FROM json_each(?)";
+    private static final String UNLINK_GENRES =
+            "DELETE FROM genres WHERE movie_id = ? AND genre_id IN (SELECT value FROM json_each(?))";
+    private static final String TOUCH_MOVIE =
+            "UPDATE movie SET version = version + 1, updated_at = ? WHERE id = ? RETURNING version, star_rating, updated_at";
+    private static final String TOUCH_MOVIES = "UPDATE movie SET version = version + 1, updated_at = ? " +
+            "WHERE id IN (SELECT value FROM json_each(?))";
+    private static final String MOVIES_WITH_ACTOR = "SELECT movie_id FROM actors WHERE actor_id = ?";
+    private static final String UNLINK_ACTOR = "DELETE FROM actors WHERE actor_id = ?";
+    private static final String MOVIES_WITH_GENRE = "SELECT movie_id FROM genres WHERE genre_id = ?";
+    private static final String UNLINK_GENRE = "DELETE FROM genres WHERE genre_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcCacheInvalidator cacheInvalidator;
+
+    public MovieLinkWriter(JdbcTemplate jdbcTemplate, JdbcCacheInvalidator cacheInvalidator) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.cacheInvalidator = cacheInvalidator;
+    }
+
+    // Applies the changes (ids that are known to change) and returns the movie's new version row
+    public MovieVersionRow write(long movieId, List<Long> actorsAdded, List<Long> actorsRemoved,
+                                 List<Long> genresAdded, List<Long> genresRemoved) {
+        boolean actorsChanged = !actorsAdded.isEmpty() || !actorsRemoved.isEmpty();
+        boolean genresChanged = !genresAdded.isEmpty() || !genresRemoved.isEmpty();
+        List<String> tables = new ArrayList<>(List.of("movie"));
+        if (actorsChanged) {
+            tables.add("actors");
+            cacheInvalidator.collectionsWritten(Movie.class.getName() + ".actors", List.of(movieId));
+            cacheInvalidator.collectionsWritten(Actor.class.getName() + ".movies", concat(actorsAdded, actorsRemoved));
+        }
+        if (genresChanged) {
+            tables.add("genres");
+            cacheInvalidator.collectionsWritten(Movie.class.getName() + ".genres", List.of(movieId));
+            cacheInvalidator.collectionsWritten(Genre.class.getName() + ".movies", concat(genresAdded, genresRemoved));
+        }
+        cacheInvalidator.entitiesWritten(Movie.class, List.of(movieId));
+        cacheInvalidator.tablesWritten(tables.toArray(String[]::new));
+
+        update(LINK_ACTORS, movieId, actorsAdded);
+        update(UNLINK_ACTORS, movieId, actorsRemoved);
+        update(LINK_GENRES, movieId, genresAdded);
+        update(UNLINK_GENRES, movieId, genresRemoved);
+        return jdbcTemplate.queryForObject(TOUCH_MOVIE,
+                (rs, row) -> new MovieVersionRow(rs.getLong(1), rs.getInt(2), rs.getLong(3)),
+                System.currentTimeMillis(), movieId);
+    }
+
+    // Unlinks the actor from every movie, returns how many movies that were
+    public int unlinkActor(long actorId) {
+        return unlinkEverywhere(MOVIES_WITH_ACTOR, UNLINK_ACTOR, actorId, Actor.class, "actors");
+    }
+
+    public int unlinkGenre(long genreId) {
+        return unlinkEverywhere(MOVIES_WITH_GENRE, UNLINK_GENRE, genreId, Genre.class, "genres");
+    }
+
+    // The linked movies are selected first, in the same write transaction, so only they and their
+    // collections are locked in the cache and given a new version
+    private int unlinkEverywhere(String selectSql, String unlinkSql, long id, Class<?> owner, String joinTable) {
+        List<Long> movieIds = jdbcTemplate.queryForList(selectSql, Long.class, id);
+        if (movieIds.isEmpty()) {
+            return 0;
+        }
+        cacheInvalidator.entitiesWritten(Movie.class, movieIds);
+        cacheInvalidator.collectionsWritten(Movie.class.getName() + "." + joinTable, movieIds);
+        cacheInvalidator.collectionsWritten(owner.getName() + ".movies", List.of(id));
+        cacheInvalidator.tablesWritten("movie", joinTable);
+
+        jdbcTemplate.update(TOUCH_MOVIES, System.currentTimeMillis(), json(movieIds));
+        jdbcTemplate.update(unlinkSql, id);
+        return movieIds.size();
+    }
+
+    private void update(String sql, long movieId, Collection<Long> ids) {
+        if (!ids.isEmpty()) {
+            jdbcTemplate.update(sql, movieId, json(ids));
+        }
+    }
+
+    private static String json(Collection<Long> ids) {
+        return ids.stream().map(String::valueOf).collect(Collectors.joining(",", "[", "]"));
+    }
+
+    private static List<Long> concat(List<Long> added, List<Long> removed) {
+        List<Long> ids = new ArrayList<>(added.size() + removed.size());
+        ids.addAll(added);
+        ids.addAll(removed);
+        return ids;
+    }
+}
@@ -0,0 +1,318 @@
+package kmdb.movies_api.services;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import kmdb.movies_api.dto.MovieRatingDTO;
+import kmdb.movies_api.entities.Movie;
+import kmdb.movies_api.events.MovieDeleted;
+import kmdb.movies_api.events.MovieRatingsSaved;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+// Vote counts per movie and star count. Votes are counted in memory and added to movie_rating and
+// movie.star_rating every kmdb.ratings.flush-ms, without a new movie version; reads add the votes
+// their snapshot lacks, told apart by the flush_id each flush writes to the rows it adds to.
+@Slf4j
+@Component
+public class MovieRatings {
+
+    private static final String ADD_VOTES =
+            "INSERT INTO movie_rating (movie_id, flush_id, votes, star_sum, one_star, two_stars, three_stars, four_stars, five_stars) " +
+                    "SELECT ?, ?, ?, ?, ?, ?, ?, ?, ? WHERE EXISTS (SELECT 1 FROM movie WHERE id = ?) " +
+                    "ON CONFLICT (movie_id) DO UPDATE SET flush_id = excluded.flush_id, votes = votes + excluded.votes, " +
+                    "star_sum = star_sum + excluded.star_sum, one_star = one_star + excluded.one_star, " +
+                    "two_stars = two_stars + excluded.two_stars, three_stars = three_stars + excluded.three_stars, " +
+                    "four_stars = four_stars + excluded.four_stars, five_stars = five_stars + excluded.five_stars";
+    private static final String SELECT_NEW_STAR_RATINGS =
+            "SELECT m.id FROM movie m JOIN movie_rating r ON r.movie_id = m.id " +
+                    "WHERE m.id IN (SELECT value FROM json_each(?)) AND r.votes > 0 " +
+                    "AND m.star_rating IS NOT CAST(round(CAST(r.star_sum AS REAL) / r.votes) AS INTEGER)";
+    private static final String UPDATE_STAR_RATING =
+            "UPDATE movie SET star_rating = r.rounded, " +
+                    "updated_at = CAST(unixepoch('subsec') * 1000 AS INTEGER) " +
+                    "FROM (SELECT movie_id, CAST(round(CAST(star_sum AS REAL) / votes) AS INTEGER) AS rounded " +
+                    "FROM movie_rating WHERE movie_id = ? AND votes > 0) r " +
+                    "WHERE movie.id = r.movie_id AND movie.star_rating IS NOT r.rounded";
+    private static final String SELECT_TOTALS = "SELECT votes, star_sum FROM movie_rating WHERE movie_id = ?";
+    private static final String SELECT_VOTES =
+            "SELECT r.one_star, r.two_stars, r.three_stars, r.four_stars, r.five_stars, r.flush_id " +
+                    "FROM movie m LEFT JOIN movie_rating r ON r.movie_id = m.id WHERE m.id = ?";
+    private static final String LAST_FLUSH_ID = "SELECT COALESCE(MAX(flush_id), 0) FROM movie_rating";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transaction;
+    private final TransactionTemplate readOnlyTransaction;
+    private final JdbcCacheInvalidator cacheInvalidator;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int batchSize;
+
+    // at most one entry per movie. Votes, flushes and drops all replace or change an entry through its
+    // bin, so no vote lands in an entry a flush has already taken the counts of
+    private final ConcurrentHashMap<Long, PendingVotes> pending = new ConcurrentHashMap<>();
+    // id of the latest flush, taken before it touches pending; ids go on from the stored ones
+    private final AtomicLong lastFlushId = new AtomicLong();
+    // one flush at a time, the scheduler's or the one at shutdown
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    public MovieRatings(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                        JdbcCacheInvalidator cacheInvalidator, ApplicationEventPublisher eventPublisher,
+                        Environment env) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.cacheInvalidator = cacheInvalidator;
+        this.eventPublisher = eventPublisher;
+        this.batchSize = env.getProperty("kmdb.ratings.batch-size", Integer.class, 500);
+    }
+
+    @PostConstruct
+    void loadLastFlushId() {
+        lastFlushId.set(jdbcTemplate.queryForObject(LAST_FLUSH_ID, Long.class));
+    }
+
+    // Counts a vote of 1 to 5 stars for an existing movie
+    public void vote(long movieId, int stars) {
+        pending.compute(movieId, (id, votes) -> {
+            PendingVotes counted = votes == null ? new PendingVotes(lastFlushId.get()) : votes;
+            counted.add(stars);
+            return counted;
+        });
+    }
+
+    // Stored plus pending votes, empty for an unknown movie. The entry is read before the row: a flush
+    // that takes its counts afterwards writes a flush id above the entry's, and the row shows whether
+    // that flush had committed when the snapshot was taken.
+    public Optional<MovieRatingDTO> rating(long movieId) {
+        PendingVotes votes = pending.get(movieId);
+        long[] unsaved = votes == null ? null : votes.counts();
+        long[] counts = readOnlyTransaction.execute(status -> jdbcTemplate.query(SELECT_VOTES, rs -> {
+            if (!rs.next()) {
+                return null;
+            }
+            long[] stored = new long[6];
+            for (int i = 0; i < 6; i++) {
+                stored[i] = rs.getLong(i + 1);
+            }
+            return stored;
+        }, movieId));
+        if (counts == null) {
+            return Optional.empty();
+        }
+        if (votes != null) {
+            long storedFlushId = counts[5];
+            for (int i = 0; i < 5; i++) {
+                if (votes.flushing != null && storedFlushId < votes.since) {
+                    counts[i] += votes.flushing[i];
+                }
+                if (storedFlushId <= votes.since) {
+                    counts[i] += unsaved[i];
+                }
+            }
+        }
+
+        long total = 0;
+        long starSum = 0;
+        Map<Integer, Long> distribution = new LinkedHashMap<>();
+        for (int i = 0; i < 5; i++) {
+            total += counts[i];
+            starSum += (i + 1) * counts[i];
+            distribution.put(i + 1, counts[i]);
+        }
+        double average = total == 0 ? 0 : (double) starSum / total;
+        return Optional.of(new MovieRatingDTO(movieId, total, Math.round(average * 100) / 100.0, distribution,
+                Movie.starRatingRepresentation((int) Math.round(average))));
+    }
+
+    // Writes the pending votes of every movie in one transaction
+    @Scheduled(fixedDelayString = "${kmdb.ratings.flush-ms:1000}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            flushPending();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void flushPending() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        long flushId = lastFlushId.incrementAndGet();
+        List<Map.Entry<Long, long[]>> flushed = new ArrayList<>();
+        List<MovieRatingsSaved.Totals> saved = new ArrayList<>();
+        List<Long> changed = transaction.execute(status -> {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int completion) {
+                    // stored now, or back to pending for the next flush
+                    for (Map.Entry<Long, long[]> entry : flushed) {
+                        pending.computeIfPresent(entry.getKey(), (id, votes) -> completion == STATUS_COMMITTED
+                                ? votes.flushed() : votes.notFlushed());
+                    }
+                }
+            });
+            // entries created after this flush started are left to the next one, see PendingVotes.since
+            for (Long movieId : pending.keySet()) {
+                pending.computeIfPresent(movieId, (id, votes) -> {
+                    if (votes.since >= flushId) {
+                        return votes;
+                    }
+                    long[] counts = votes.counts();
+                    if (PendingVotes.isEmpty(counts)) {
+                        return null;
+                    }
+                    flushed.add(Map.entry(id, counts));
+                    return votes.flushing(counts, flushId);
+                });
+            }
+            if (flushed.isEmpty()) {
+                return List.<Long>of();
+            }
+            jdbcTemplate.batchUpdate(ADD_VOTES, flushed, batchSize, (ps, entry) -> {
+                long[] counts = entry.getValue();
+                long total = 0;
+                long starSum = 0;
+                for (int i = 0; i < 5; i++) {
+                    total += counts[i];
+                    starSum += (i + 1) * counts[i];
+                    ps.setLong(i + 5, counts[i]);
+                }
+                ps.setLong(1, entry.getKey());
+                ps.setLong(2, flushId);
+                ps.setLong(3, total);
+                ps.setLong(4, starSum);
+                ps.setLong(10, entry.getKey());
+            });
+            // the movies whose rounded rating changes, so only those (and the query results on the
+            // movie table, as listings show the rating) are taken out of the second-level cache
+            List<Long> rated = jdbcTemplate.queryForList(SELECT_NEW_STAR_RATINGS, Long.class,
+                    flushed.stream().map(entry -> String.valueOf(entry.getKey())).collect(Collectors.joining(",", "[", "]")));
+            if (!rated.isEmpty()) {
+                cacheInvalidator.entitiesWritten(Movie.class, rated);
+                cacheInvalidator.tablesWritten("movie");
+                jdbcTemplate.batchUpdate(UPDATE_STAR_RATING, rated, batchSize, (ps, movieId) -> ps.setLong(1, movieId));
+            }
+            for (Map.Entry<Long, long[]> entry : flushed) {
+                jdbcTemplate.query(SELECT_TOTALS, rs -> {
+                    saved.add(new MovieRatingsSaved.Totals(entry.getKey(), rs.getLong(1), rs.getLong(2)));
+                }, entry.getKey());
+            }
+            return rated;
+        });
+        if (flushed.isEmpty()) {
+            return;
+        }
+
+        eventPublisher.publishEvent(new MovieRatingsSaved(saved));
+        log.debug("Flushed votes of {} movies, {} new star ratings", flushed.size(), changed.size());
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMovieDeleted(MovieDeleted event) {
+        pending.remove(event.id());
+    }
+
+    // movies with votes not yet flushed
+    int pendingMovies() {
+        return pending.size();
+    }
+
+    // The unsaved votes of a movie: one striped counter per star count, and the counts a flush has
+    // taken but not yet committed. A flush replaces the entry instead of changing its counters, so a
+    // read that got the entry before still adds the same votes.
+    private static final class PendingVotes {
+
+        private final LongAdder[] stars;
+        // taken by flush `since`, null once it completed or when no flush took any
+        private final long[] flushing;
+        // the stars are written by a flush with a higher id, and flushing by this one
+        private final long since;
+
+        PendingVotes(long since) {
+            this(newCounters(), null, since);
+        }
+
+        private PendingVotes(LongAdder[] stars, long[] flushing, long since) {
+            this.stars = stars;
+            this.flushing = flushing;
+            this.since = since;
+        }
+
+        void add(int starCount) {
+            stars[starCount - 1].increment();
+        }
+
+        // counts taken by flush flushId, new votes go to fresh counters
+        PendingVotes flushing(long[] counts, long flushId) {
+            return new PendingVotes(newCounters(), counts, flushId);
+        }
+
+        // the flush committed; empty entries go
+        PendingVotes flushed() {
+            if (flushing == null) {
+                return this;
+            }
+            return isEmpty(counts()) ? null : new PendingVotes(stars, null, since);
+        }
+
+        // the flush rolled back, its counts are pending again
+        PendingVotes notFlushed() {
+            if (flushing == null) {
+                return this;
+            }
+            LongAdder[] merged = newCounters();
+            for (int i = 0; i < 5; i++) {
+                merged[i].add(stars[i].sum() + flushing[i]);
+            }
+            return new PendingVotes(merged, null, since);
+        }
+
+        private static LongAdder[] newCounters() {
+            return new LongAdder[] {new LongAdder(), new LongAdder(), new LongAdder(), new LongAdder(), new LongAdder()};
+        }
+
+        static boolean isEmpty(long[] counts) {
+            for (long count : counts) {
+                if (count != 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        long[] counts() {
+            long[] counts = new long[5];
+            for (int i = 0; i < 5; i++) {
+                counts[i] = stars[i].sum();
+            }
+            return counts;
+        }
+    }
+}
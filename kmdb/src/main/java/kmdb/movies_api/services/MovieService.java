@@ -2,30 +2,131 @@ package kmdb.movies_api.services;
 
 import kmdb.movies_api.entities.Movie;
 import kmdb.movies_api.dto.MovieDTO;
+import kmdb.movies_api.dto.MovieFacetsDTO;
+import kmdb.movies_api.dto.MovieLinksDTO;
+import kmdb.movies_api.dto.MovieLinksDiffDTO;
+import kmdb.movies_api.dto.MovieRatingDTO;
+import kmdb.movies_api.dto.MovieSummaryDTO;
+import kmdb.movies_api.dto.RankedMovieDTO;
+import kmdb.movies_api.dto.ReferenceDTO;
 import kmdb.movies_api.entities.Actor;
 import kmdb.movies_api.entities.Genre;
+import kmdb.movies_api.events.MovieActorsChanged;
+import kmdb.movies_api.events.MovieDeleted;
+import kmdb.movies_api.events.MovieGenresChanged;
+import kmdb.movies_api.events.MovieSaved;
 import kmdb.movies_api.exceptions.ResourceNotFoundException;
+import kmdb.movies_api.pagination.CursorPage;
+import kmdb.movies_api.pagination.KeysetCursor;
 import kmdb.movies_api.repositories.MovieRepository;
+import kmdb.movies_api.repositories.MovieSpecifications;
 import kmdb.movies_api.repositories.ActorRepository;
 import kmdb.movies_api.repositories.GenreRepository;
+import kmdb.movies_api.repositories.projections.MovieRow;
+import kmdb.movies_api.repositories.projections.MovieVersionRow;
+import kmdb.movies_api.repositories.projections.NamedRow;
+import kmdb.movies_api.repositories.projections.VersionSummaryRow;
+import kmdb.movies_api.search.FacetCounts;
+import kmdb.movies_api.search.FacetIndex;
+import kmdb.movies_api.search.FullTextQuery;
+import kmdb.movies_api.search.LeaderboardIndex;
+import kmdb.movies_api.search.Leaderboards;
+import kmdb.movies_api.search.TypeaheadIndex;
 import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Hibernate;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
+@Slf4j
 @Service
 @AllArgsConstructor
 public class MovieService {
     private final MovieRepository movieRepository;
     private final ActorRepository actorRepository;
     private final GenreRepository genreRepository;
-        public Page<Movie> getAllMovies(Pageable pageable) {
-            return movieRepository.findAll(pageable);
+    private final MovieSummaryAssembler movieSummaryAssembler;
+    private final TypeaheadIndex typeaheadIndex;
+    private final FacetIndex facetIndex;
+    private final LeaderboardIndex leaderboardIndex;
+    private final ApplicationEventPublisher eventPublisher;
+    private final MovieRatings movieRatings;
+    private final MovieLinkWriter movieLinkWriter;
+        @Transactional(readOnly = true)
+        public Page<MovieSummaryDTO> getAllMovies(Pageable pageable) {
+            return movieSummaryAssembler.toSummaries(movieRepository.findAllRows(pageable));
+        }
+
+        // Same as getAllMovies but without the COUNT(*) query
+        @Transactional(readOnly = true)
+        public Slice<MovieSummaryDTO> getMovieSlice(Pageable pageable) {
+            Slice<MovieRow> slice = movieRepository.findRowSlice(pageable);
+            return new SliceImpl<>(movieSummaryAssembler.toSummaries(slice.getContent()), slice.getPageable(), slice.hasNext());
+        }
+
+        // Combined filter: every given criterion must hold. The page is one statement that selects only
+        // the listed columns, the total one COUNT with the same conditions (skipped on a short first page).
+        @Transactional(readOnly = true)
+        public Page<MovieSummaryDTO> filterMovies(Integer yearFrom, Integer yearTo, Integer minDuration, Integer maxDuration,
+                                                  Integer minRating, List<Long> actorIds, List<Long> genreIds,
+                                                  Pageable pageable) {
+            if (yearFrom != null && yearTo != null && yearFrom > yearTo) {
+                throw new IllegalArgumentException("yearFrom must not be after yearTo");
+            }
+            if (minDuration != null && maxDuration != null && minDuration > maxDuration) {
+                throw new IllegalArgumentException("minDuration must not be greater than maxDuration");
+            }
+            List<Specification<Movie>> criteria = new ArrayList<>();
+            if (yearFrom != null || yearTo != null) {
+                criteria.add(MovieSpecifications.releasedBetween(yearFrom, yearTo));
+            }
+            if (minDuration != null || maxDuration != null) {
+                criteria.add(MovieSpecifications.durationBetween(minDuration, maxDuration));
+            }
+            if (minRating != null) {
+                criteria.add(MovieSpecifications.ratedAtLeast(minRating));
+            }
+            if (actorIds != null && !actorIds.isEmpty()) {
+                criteria.add(MovieSpecifications.withAllActors(actorIds));
+            }
+            if (genreIds != null && !genreIds.isEmpty()) {
+                criteria.add(MovieSpecifications.inAllGenres(genreIds));
+            }
+            Specification<Movie> spec = Specification.allOf(criteria);
+
+            List<MovieRow> rows = movieRepository.findRows(spec, pageable);
+            return movieSummaryAssembler.toSummaries(
+                    PageableExecutionUtils.getPage(rows, pageable, () -> movieRepository.count(spec)));
+        }
+
+        // Keyset pagination ordered by id or by (title, id), cost does not grow with the page depth
+        @Transactional(readOnly = true)
+        public CursorPage<MovieSummaryDTO> scrollMovies(String cursorToken, String sort, int size) {
+            KeysetCursor cursor = KeysetCursor.decode(cursorToken, sort);
+            Limit limit = Limit.of(size + 1);
+            List<MovieRow> rows = switch (cursor.sort()) {
+                case "id" -> movieRepository.findRowsAfterId(cursor.id(), limit);
+                case "title" -> movieRepository.findRowsAfterTitle(cursor.value(), cursor.id(), limit);
+                default -> throw new IllegalArgumentException("Unsupported sort '" + cursor.sort() + "', use id or title");
+            };
+            return CursorPage.of(rows, size,
+                    last -> new KeysetCursor(cursor.sort(), last.id(), "title".equals(cursor.sort()) ? last.title() : ""),
+                    movieSummaryAssembler::toSummaries);
         }
     
+        @Transactional
         public Movie addMovie(MovieDTO movieDTO) {
             Movie movie = new Movie();
             movie.setTitle(movieDTO.getTitle());
@@ -46,34 +147,43 @@ public class MovieService {
                     .collect(Collectors.toSet());
             movie.setGenres(genres);
     
-            return movieRepository.save(movie);
+            Movie saved = movieRepository.save(movie);
+            eventPublisher.publishEvent(new MovieSaved(saved.getId(), saved.getTitle(), saved.getReleaseYear()));
+            eventPublisher.publishEvent(new MovieActorsChanged(saved.getId(), movieDTO.getActors(), List.of()));
+            eventPublisher.publishEvent(new MovieGenresChanged(saved.getId(), movieDTO.getGenres(), List.of()));
+            return saved;
         }
     
+        @Transactional
         public Movie assignActorToMovie(Long movieId, Long actorId) {
-            Movie movie = movieRepository.findById(movieId)
+            Movie movie = findMovie(movieId)
                     .orElseThrow(() -> new ResourceNotFoundException("Movie with ID " + movieId + " not found"));
     
             Actor actor = actorRepository.findById(actorId)
                     .orElseThrow(() -> new ResourceNotFoundException("Actor with ID " + actorId + " not found"));
     
             movie.getActors().add(actor);
+            eventPublisher.publishEvent(new MovieActorsChanged(movieId, List.of(actorId), List.of()));
             return movieRepository.save(movie);
         }
     
+        @Transactional
         public Movie assignGenreToMovie(Long movieId, Long genreId) {
-            Movie movie = movieRepository.findById(movieId)
+            Movie movie = findMovie(movieId)
                     .orElseThrow(() -> new ResourceNotFoundException("Movie with ID " + movieId + " not found"));
     
             Genre genre = genreRepository.findById(genreId)
                     .orElseThrow(() -> new ResourceNotFoundException("Genre with ID " + genreId + " not found"));
     
             movie.getGenres().add(genre);
+            eventPublisher.publishEvent(new MovieGenresChanged(movieId, List.of(genreId), List.of()));
             return movieRepository.save(movie);
         }
     
+        @Transactional
         public Movie removeActorFromMovie(Long movieId, Long actorId) {
             // Fetch the movie by ID
-            Movie movie = movieRepository.findById(movieId)
+            Movie movie = findMovie(movieId)
                     .orElseThrow(() -> new ResourceNotFoundException("Movie with ID " + movieId + " not found"));
         
             // Fetch the actor by ID
@@ -82,85 +192,283 @@ public class MovieService {
         
             // Debugging: Check if the actor is in the set
             if (!movie.getActors().contains(actor)) {
-                System.out.println("Actors in the movie before removal: " + movie.getActors());
+                log.debug("Actor {} is not in movie {}, which has actors {}", actorId, movieId,
+                        movie.getActors().stream().map(Actor::getId).toList());
                 throw new ResourceNotFoundException("Actor with ID " + actorId + " is not associated with Movie ID " + movieId);
             }
         
             // Remove the actor
             movie.getActors().remove(actor);
+            eventPublisher.publishEvent(new MovieActorsChanged(movieId, List.of(), List.of(actorId)));
         
             // Save and return the updated movie
             return movieRepository.save(movie);
         }
     
+        @Transactional
         public Movie removeGenreFromMovie(Long movieId, Long genreId) {
-            Movie movie = movieRepository.findById(movieId)
+            Movie movie = findMovie(movieId)
                     .orElseThrow(() -> new ResourceNotFoundException("Movie with ID " + movieId + " not found"));
     
             Genre genre = genreRepository.findById(genreId)
                     .orElseThrow(() -> new ResourceNotFoundException("Genre with ID " + genreId + " not found"));
     
             movie.getGenres().remove(genre);
+            eventPublisher.publishEvent(new MovieGenresChanged(movieId, List.of(), List.of(genreId)));
             return movieRepository.save(movie);
         }
     
-        public List<Movie> getMoviesByReleaseYear(int releaseYear) {
-            return movieRepository.findByReleaseYear(releaseYear);
+        // Links and unlinks many actors and genres at once: one existence check per type, one read of
+        // the current links and set-based writes to the join tables, answered with what changed
+        @Transactional
+        public MovieLinksDiffDTO updateLinks(Long movieId, MovieLinksDTO links) {
+            if (movieRepository.findVersionById(movieId).isEmpty()) {
+                throw new ResourceNotFoundException("Movie with ID " + movieId + " not found");
+            }
+            requireDisjoint("Actor", links.addActors(), links.removeActors());
+            requireDisjoint("Genre", links.addGenres(), links.removeGenres());
+            requireExisting("Actor", union(links.addActors(), links.removeActors()), actorRepository::findExistingIds);
+            requireExisting("Genre", union(links.addGenres(), links.removeGenres()), genreRepository::findExistingIds);
+
+            Set<Long> actors = links.addActors().isEmpty() && links.removeActors().isEmpty()
+                    ? Set.of() : movieRepository.findActorIds(movieId);
+            Set<Long> genres = links.addGenres().isEmpty() && links.removeGenres().isEmpty()
+                    ? Set.of() : movieRepository.findGenreIds(movieId);
+            List<Long> actorsAdded = links.addActors().stream().filter(id -> !actors.contains(id)).sorted().toList();
+            List<Long> actorsRemoved = links.removeActors().stream().filter(actors::contains).sorted().toList();
+            List<Long> genresAdded = links.addGenres().stream().filter(id -> !genres.contains(id)).sorted().toList();
+            List<Long> genresRemoved = links.removeGenres().stream().filter(genres::contains).sorted().toList();
+
+            if (actorsAdded.isEmpty() && actorsRemoved.isEmpty() && genresAdded.isEmpty() && genresRemoved.isEmpty()) {
+                MovieVersionRow version = movieRepository.findVersionById(movieId).orElseThrow();
+                return new MovieLinksDiffDTO(movieId, actorsAdded, actorsRemoved, genresAdded, genresRemoved,
+                        version.etag(null));
+            }
+            MovieVersionRow version = movieLinkWriter.write(movieId, actorsAdded, actorsRemoved, genresAdded, genresRemoved);
+            if (!actorsAdded.isEmpty() || !actorsRemoved.isEmpty()) {
+                eventPublisher.publishEvent(new MovieActorsChanged(movieId, actorsAdded, actorsRemoved));
+            }
+            if (!genresAdded.isEmpty() || !genresRemoved.isEmpty()) {
+                eventPublisher.publishEvent(new MovieGenresChanged(movieId, genresAdded, genresRemoved));
+            }
+            return new MovieLinksDiffDTO(movieId, actorsAdded, actorsRemoved, genresAdded, genresRemoved,
+                    version.etag(null));
+        }
+
+        private static void requireDisjoint(String type, Set<Long> added, Set<Long> removed) {
+            for (Long id : added) {
+                if (removed.contains(id)) {
+                    throw new IllegalArgumentException(type + " with ID " + id + " cannot be both added and removed");
+                }
+            }
+        }
+
+        private static void requireExisting(String type, Set<Long> ids, Function<Set<Long>, Set<Long>> findExisting) {
+            if (ids.isEmpty()) {
+                return;
+            }
+            Set<Long> existing = findExisting.apply(ids);
+            List<Long> missing = ids.stream().filter(id -> !existing.contains(id)).sorted().toList();
+            if (!missing.isEmpty()) {
+                throw new ResourceNotFoundException(type + (missing.size() == 1 ? " with ID " : "s with IDs ")
+                        + missing.stream().map(String::valueOf).collect(Collectors.joining(", ")) + " not found");
+            }
+        }
+
+        private static Set<Long> union(Set<Long> first, Set<Long> second) {
+            Set<Long> union = new HashSet<>(first);
+            union.addAll(second);
+            return union;
+        }
+
+        @Transactional(readOnly = true)
+        public List<MovieSummaryDTO> getMoviesByReleaseYear(int releaseYear) {
+            return movieSummaryAssembler.toSummaries(movieRepository.findRowsByReleaseYear(releaseYear));
         }
     
-        public List<Movie> getMoviesByActor(Long actorId) {
-            Actor actor = actorRepository.findById(actorId)
-                    .orElseThrow(() -> new ResourceNotFoundException("Actor not found"));
+        @Transactional(readOnly = true)
+        public List<MovieSummaryDTO> getMoviesByActor(Long actorId) {
+            if (!actorRepository.existsById(actorId)) {
+                throw new ResourceNotFoundException("Actor not found");
+            }
     
-            return new ArrayList<>(movieRepository.findAllByActorsContains(actor));
+            return movieSummaryAssembler.toSummaries(movieRepository.findRowsByActorId(actorId));
         }
     
-        public List<Movie> getMoviesByGenre(Long genreId) {
-            Genre genre = genreRepository.findById(genreId)
-                    .orElseThrow(() -> new ResourceNotFoundException("Genre not found"));
+        @Transactional(readOnly = true)
+        public List<MovieSummaryDTO> getMoviesByGenre(Long genreId) {
+            if (!genreRepository.existsById(genreId)) {
+                throw new ResourceNotFoundException("Genre not found");
+            }
     
-            return new ArrayList<>(movieRepository.findAllByGenresContains(genre));
+            return movieSummaryAssembler.toSummaries(movieRepository.findRowsByGenreId(genreId));
         }
     
+        // Versions of the movie, actor and genre tables for conditional GETs of the movie lists, whose
+        // summaries carry actor and genre names
+        @Transactional(readOnly = true)
+        public List<VersionSummaryRow> getMovieListVersion() {
+            return List.of(movieRepository.findVersionSummary(), actorRepository.findVersionSummary(),
+                    genreRepository.findVersionSummary());
+        }
+
+        // Version of a movie for conditional GETs, empty when there is no such movie
+        @Transactional(readOnly = true)
+        public Optional<MovieVersionRow> getMovieVersion(Long id) {
+            return movieRepository.findVersionById(id);
+        }
+
+        @Transactional(readOnly = true)
         public Optional<Movie> getMovieById(Long id) {
-            return Optional.of(movieRepository.findById(id)
+            return Optional.of(findMovie(id)
                     .orElseThrow(() -> new ResourceNotFoundException("Movie with ID " + id + " not found")));
         }
         
     
+        @Transactional(readOnly = true)
         public Optional<Set<Actor>> getActorsInMovie(Long movieId) {
-            Movie movie = movieRepository.findById(movieId)
+            Movie movie = findMovie(movieId)
                     .orElseThrow(() -> new ResourceNotFoundException("Movie not found"));
     
             return Optional.of(movie.getActors());
         }
     
-        public List<Movie> searchMoviesByTitle(String title) {
-            return movieRepository.findByTitleContainingIgnoreCase(title);
+        @Transactional(readOnly = true)
+        public List<MovieSummaryDTO> searchMoviesByTitle(String title, int limit) {
+            // Ranked token/prefix search on the FTS5 index instead of a LIKE '%title%' table scan
+            String query = FullTextQuery.prefixQuery(title);
+            if (query == null) {
+                return List.of();
+            }
+            List<Long> rankedIds = movieRepository.findIdsByTitleMatch(query, limit);
+            if (rankedIds.isEmpty()) {
+                return List.of();
+            }
+            Map<Long, MovieRow> rows = new HashMap<>(rankedIds.size() * 2);
+            for (MovieRow row : movieRepository.findRowsByIdIn(rankedIds)) {
+                rows.put(row.id(), row);
+            }
+            List<MovieRow> ranked = new ArrayList<>(rankedIds.size());
+            for (Long id : rankedIds) {
+                MovieRow row = rows.get(id);
+                if (row != null) {
+                    ranked.add(row);
+                }
+            }
+            return movieSummaryAssembler.toSummaries(ranked);
+        }
+
+        // Typeahead on titles, answered from the in-memory index without a database round trip
+        public List<ReferenceDTO> suggestTitles(String query, int limit) {
+            return typeaheadIndex.suggestMovies(query, limit);
+        }
+
+        // Top rated, most voted or newest movies, overall or of one genre or release year, answered
+        // from the in-memory boards; the database is only read to refill a board that ran short
+        public List<RankedMovieDTO> getTopMovies(String by, Long genreId, Integer releaseYear, int limit) {
+            if (genreId != null && releaseYear != null) {
+                throw new IllegalArgumentException("Rank by genre or by release year, not both");
+            }
+            Leaderboards.Order order = switch (by) {
+                case "rating" -> Leaderboards.Order.RATING;
+                case "votes" -> Leaderboards.Order.VOTES;
+                case "newest" -> Leaderboards.Order.NEWEST;
+                default -> throw new IllegalArgumentException("Unsupported ranking '" + by + "', use rating, votes or newest");
+            };
+            return leaderboardIndex.top(order, genreId, releaseYear, limit).stream()
+                    .map(movie -> new RankedMovieDTO(movie.id(), movie.title(), movie.year(), movie.votes(),
+                            Math.round(movie.average() * 100) / 100.0,
+                            Movie.starRatingRepresentation((int) Math.round(movie.average()))))
+                    .toList();
+        }
+    
+        // Browse facets: matching movie ids plus counts per genre, top actor, decade and release year.
+        // The counts come from memory; only the names of the listed genres and actors are read.
+        @Transactional(readOnly = true)
+        public MovieFacetsDTO getFacets(Long genreId, Long actorId, Integer releaseYear, Integer decade,
+                                        int limit, int topActors) {
+            if (decade != null && decade % 10 != 0) {
+                throw new IllegalArgumentException("Decade must be given by its first year, e.g. 1990");
+            }
+            FacetCounts.Result result = facetIndex.query(genreId, actorId, releaseYear, decade, limit, topActors);
+
+            Map<Long, String> genreNames = new HashMap<>();
+            for (Genre genre : genreRepository.findAll()) {
+                genreNames.put(genre.getId(), genre.getName());
+            }
+            Map<Long, String> actorNames = new HashMap<>();
+            List<Long> actorIds = result.actors().stream().map(FacetCounts.Count::key).toList();
+            if (!actorIds.isEmpty()) {
+                for (NamedRow row : actorRepository.findNamesByIdIn(actorIds)) {
+                    actorNames.put(row.id(), row.name());
+                }
+            }
+            return new MovieFacetsDTO(result.total(),
+                    Arrays.stream(result.movieIds()).boxed().toList(),
+                    namedCounts(result.genres(), genreNames),
+                    namedCounts(result.actors(), actorNames),
+                    yearCounts(result.decades()),
+                    yearCounts(result.years()));
+        }
+
+        private static List<MovieFacetsDTO.NamedCount> namedCounts(List<FacetCounts.Count> counts, Map<Long, String> names) {
+            return counts.stream()
+                    .map(count -> new MovieFacetsDTO.NamedCount(count.key(), names.get(count.key()), count.count()))
+                    .toList();
+        }
+
+        private static List<MovieFacetsDTO.YearCount> yearCounts(List<FacetCounts.Count> counts) {
+            return counts.stream()
+                    .map(count -> new MovieFacetsDTO.YearCount((int) count.key(), count.count()))
+                    .toList();
         }
     
         public void setStarRating(int starRating) {
     }
 
+    // Counts a vote; it reaches movie_rating and the stored star rating with the next flush. The movie
+    // is read on the reader pool and answers with the rating including the vote, as before the votes
+    // were counted in memory.
+    @Transactional(readOnly = true)
     public Movie rateMovie(Long id, int stars) {
         if (stars < 1 || stars > 5) {
             throw new IllegalArgumentException("Rating must be between 1 and 5 stars");
         }
-    
-        Movie movie = movieRepository.findById(id)
+        Movie movie = findMovie(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Movie with ID " + id + " not found"));
+        movieRatings.vote(id, stars);
+        // star_rating is not updatable, so this only changes the response
+        movieRatings.rating(id).filter(rating -> rating.votes() > 0).ifPresent(rating -> {
+            long starSum = rating.distribution().entrySet().stream()
+                    .mapToLong(count -> count.getKey() * count.getValue()).sum();
+            movie.setStarRating((int) Math.round((double) starSum / rating.votes()));
+        });
+        return movie;
+    }
+
+    @Transactional(readOnly = true)
+    public MovieRatingDTO getRating(Long id) {
+        return movieRatings.rating(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Movie with ID " + id + " not found"));
-    
-        // Set the star rating
-        movie.setStarRating(stars);
-    
-        return movieRepository.save(movie);
     }
-    
 
+    @Transactional
     public void deleteMovie(Long id) {
-        Movie movie = movieRepository.findById(id)
+        Movie movie = findMovie(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Movie not found"));
 
         movieRepository.delete(movie);
+        eventPublisher.publishEvent(new MovieDeleted(id));
+    }
+
+    // Movie with its actors and genres loaded. A movie served from the second-level cache skips the
+    // findById entity graph, so the collections are initialized here, from their own cache regions.
+    private Optional<Movie> findMovie(Long id) {
+        Optional<Movie> movie = movieRepository.findById(id);
+        movie.ifPresent(found -> {
+            Hibernate.initialize(found.getActors());
+            Hibernate.initialize(found.getGenres());
+        });
+        return movie;
     }
 }
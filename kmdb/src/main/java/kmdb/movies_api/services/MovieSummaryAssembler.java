@@ -0,0 +1,71 @@
+package kmdb.movies_api.services;
+
+import kmdb.movies_api.dto.MovieSummaryDTO;
+import kmdb.movies_api.dto.ReferenceDTO;
+import kmdb.movies_api.entities.Movie;
+import kmdb.movies_api.repositories.MovieRepository;
+import kmdb.movies_api.repositories.projections.MovieReferenceRow;
+import kmdb.movies_api.repositories.projections.MovieRow;
+import lombok.AllArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Builds listing DTOs from projection rows: one query for the movie columns, then one for all
+// actor names and one for all genre names of those movies. No Movie entity is ever loaded.
+@Component
+@AllArgsConstructor
+public class MovieSummaryAssembler {
+
+    // stays well below SQLite's bound parameter limit
+    private static final int IN_CLAUSE_CHUNK = 500;
+
+    private final MovieRepository movieRepository;
+
+    public Page<MovieSummaryDTO> toSummaries(Page<MovieRow> page) {
+        return new PageImpl<>(toSummaries(page.getContent()), page.getPageable(), page.getTotalElements());
+    }
+
+    public List<MovieSummaryDTO> toSummaries(List<MovieRow> rows) {
+        if (rows.isEmpty()) {
+            return List.of();
+        }
+        List<Long> movieIds = new ArrayList<>(rows.size());
+        for (MovieRow row : rows) {
+            movieIds.add(row.id());
+        }
+
+        Map<Long, List<ReferenceDTO>> actors = new HashMap<>(rows.size() * 2);
+        Map<Long, List<ReferenceDTO>> genres = new HashMap<>(rows.size() * 2);
+        for (int from = 0; from < movieIds.size(); from += IN_CLAUSE_CHUNK) {
+            List<Long> chunk = movieIds.subList(from, Math.min(from + IN_CLAUSE_CHUNK, movieIds.size()));
+            group(movieRepository.findActorReferences(chunk), actors);
+            group(movieRepository.findGenreReferences(chunk), genres);
+        }
+
+        List<MovieSummaryDTO> summaries = new ArrayList<>(rows.size());
+        for (MovieRow row : rows) {
+            summaries.add(new MovieSummaryDTO(
+                    row.id(),
+                    row.title(),
+                    row.releaseYear(),
+                    row.duration(),
+                    actors.getOrDefault(row.id(), List.of()),
+                    genres.getOrDefault(row.id(), List.of()),
+                    Movie.starRatingRepresentation(row.starRating())));
+        }
+        return summaries;
+    }
+
+    private static void group(List<MovieReferenceRow> references, Map<Long, List<ReferenceDTO>> byMovie) {
+        for (MovieReferenceRow reference : references) {
+            byMovie.computeIfAbsent(reference.movieId(), id -> new ArrayList<>(4))
+                    .add(new ReferenceDTO(reference.id(), reference.name()));
+        }
+    }
+}
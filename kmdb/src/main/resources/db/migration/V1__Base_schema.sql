@@ -0,0 +1,52 @@
+-- Tables as Hibernate created them with ddl-auto=update. Every statement is a no-op on a database
+-- that already has them, so existing kmdb.db files are brought under version control unchanged.
+
+CREATE TABLE IF NOT EXISTS movie (
+    id INTEGER PRIMARY KEY AUTOINCREMENT,
+    title varchar(255) not null,
+    release_year integer not null check ((release_year <= 2300) and (release_year >= 0)),
+    duration integer not null check ((duration >= 0) and (duration <= 1000)),
+    star_rating INTEGER default 0 not null
+);
+
+CREATE TABLE IF NOT EXISTS actor (
+    id bigint not null,
+    birth_date VARCHAR(10),
+    name varchar(255) not null,
+    primary key (id)
+);
+
+CREATE TABLE IF NOT EXISTS genre (
+    id bigint not null,
+    name varchar(255) not null,
+    primary key (id)
+);
+
+CREATE TABLE IF NOT EXISTS actors (
+    movie_id bigint not null,
+    actor_id bigint not null,
+    primary key (movie_id, actor_id)
+);
+
+CREATE TABLE IF NOT EXISTS genres (
+    movie_id bigint not null,
+    genre_id bigint not null,
+    primary key (movie_id, genre_id)
+);
+
+-- Hibernate table generators for actor and genre ids, one row holding the next value
+CREATE TABLE IF NOT EXISTS actor_sequence (
+    next_val bigint
+);
+
+CREATE TABLE IF NOT EXISTS genre_sequence (
+    next_val bigint
+);
+
+INSERT INTO actor_sequence (next_val)
+SELECT (SELECT COALESCE(MAX(id), 0) + 1 FROM actor)
+WHERE NOT EXISTS (SELECT 1 FROM actor_sequence);
+
+INSERT INTO genre_sequence (next_val)
+SELECT (SELECT COALESCE(MAX(id), 0) + 1 FROM genre)
+WHERE NOT EXISTS (SELECT 1 FROM genre_sequence);
@@ -0,0 +1,35 @@
+-- Reverse lookups on the join tables, whose primary keys start with movie_id:
+-- movies of an actor or genre, and the actor/genre parts of the combined filter
+CREATE INDEX IF NOT EXISTS idx_actors_actor ON actors (actor_id, movie_id);
+CREATE INDEX IF NOT EXISTS idx_genres_genre ON genres (genre_id, movie_id);
+
+-- Year/duration ranges and minimum ratings of the combined filter
+CREATE INDEX IF NOT EXISTS idx_movie_release_year ON movie (release_year, duration);
+CREATE INDEX IF NOT EXISTS idx_movie_star_rating ON movie (star_rating, release_year);
+
+-- Exact title lookups and keyset pages ordered by (title, id)
+CREATE INDEX IF NOT EXISTS idx_movie_title ON movie (title);
+
+-- Duplicate names written before the unique indexes below are merged into the lowest id of each
+-- name first: it takes over the movie links of the others, which are then deleted
+INSERT OR IGNORE INTO actors (movie_id, actor_id)
+    SELECT l.movie_id, (SELECT MIN(k.id) FROM actor k WHERE k.name = a.name)
+    FROM actors l JOIN actor a ON a.id = l.actor_id
+    WHERE a.id NOT IN (SELECT MIN(id) FROM actor GROUP BY name);
+DELETE FROM actors WHERE actor_id IN (SELECT id FROM actor WHERE id NOT IN (SELECT MIN(id) FROM actor GROUP BY name));
+DELETE FROM actor WHERE id NOT IN (SELECT MIN(id) FROM actor GROUP BY name);
+
+INSERT OR IGNORE INTO genres (movie_id, genre_id)
+    SELECT l.movie_id, (SELECT MIN(k.id) FROM genre k WHERE lower(k.name) = lower(g.name))
+    FROM genres l JOIN genre g ON g.id = l.genre_id
+    WHERE g.id NOT IN (SELECT MIN(id) FROM genre GROUP BY lower(name));
+DELETE FROM genres WHERE genre_id IN (SELECT id FROM genre WHERE id NOT IN (SELECT MIN(id) FROM genre GROUP BY lower(name)));
+DELETE FROM genre WHERE id NOT IN (SELECT MIN(id) FROM genre GROUP BY lower(name));
+
+-- Actor names are unique (exact match) and genre names are unique ignoring case, as the services
+-- check before inserting; the genre index also serves the LOWER(name) = LOWER(?) lookup
+CREATE UNIQUE INDEX IF NOT EXISTS ux_actor_name ON actor (name);
+CREATE UNIQUE INDEX IF NOT EXISTS ux_genre_name ON genre (lower(name));
+
+-- Statistics for the query planner, so it can tell a selective index from a broad one
+ANALYZE;
@@ -0,0 +1,12 @@
+-- Optimistic-lock version and time of the last change (epoch millis) of every movie, actor and genre,
+-- behind the ETag and Last-Modified of the catalogue reads. Existing rows start at version 0, changed now.
+ALTER TABLE movie ADD COLUMN version bigint not null default 0;
+ALTER TABLE movie ADD COLUMN updated_at bigint not null default 0;
+ALTER TABLE actor ADD COLUMN version bigint not null default 0;
+ALTER TABLE actor ADD COLUMN updated_at bigint not null default 0;
+ALTER TABLE genre ADD COLUMN version bigint not null default 0;
+ALTER TABLE genre ADD COLUMN updated_at bigint not null default 0;
+
+UPDATE movie SET updated_at = CAST(unixepoch('subsec') * 1000 AS INTEGER);
+UPDATE actor SET updated_at = CAST(unixepoch('subsec') * 1000 AS INTEGER);
+UPDATE genre SET updated_at = CAST(unixepoch('subsec') * 1000 AS INTEGER);
@@ -0,0 +1,23 @@
+-- Aggregated votes per movie: how many, their star sum and how many of each star count.
+-- movie.star_rating keeps the rounded average, which the listings and the rating filter read.
+CREATE TABLE movie_rating (
+    movie_id INTEGER PRIMARY KEY,
+    votes bigint not null default 0,
+    star_sum bigint not null default 0,
+    one_star bigint not null default 0,
+    two_stars bigint not null default 0,
+    three_stars bigint not null default 0,
+    four_stars bigint not null default 0,
+    five_stars bigint not null default 0
+);
+
+-- The single rating each movie had so far counts as its first vote
+INSERT INTO movie_rating (movie_id, votes, star_sum, one_star, two_stars, three_stars, four_stars, five_stars)
+SELECT id, 1, star_rating, star_rating = 1, star_rating = 2, star_rating = 3, star_rating = 4, star_rating = 5
+FROM movie
+WHERE star_rating BETWEEN 1 AND 5;
+
+-- Foreign keys are not enforced, so a deleted movie takes its votes along here
+CREATE TRIGGER movie_rating_delete AFTER DELETE ON movie BEGIN
+    DELETE FROM movie_rating WHERE movie_id = old.id;
+END;
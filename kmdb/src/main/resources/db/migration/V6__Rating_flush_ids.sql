@@ -0,0 +1,3 @@
+-- Id of the vote flush that last wrote each row, so a rating read can tell which of the votes
+-- still held in memory its snapshot already contains
+ALTER TABLE movie_rating ADD COLUMN flush_id bigint not null default 0;
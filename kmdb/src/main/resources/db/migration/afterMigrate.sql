@@ -0,0 +1,2 @@
+-- Runs after every migrate at startup: re-analyzes the tables whose statistics have gone stale
+PRAGMA optimize = 0x10002;
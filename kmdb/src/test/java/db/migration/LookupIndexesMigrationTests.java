@@ -0,0 +1,48 @@
+package db.migration;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.sqlite.SQLiteDataSource;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LookupIndexesMigrationTests {
+
+    @Test
+    void duplicateNamesAreMergedBeforeTheUniqueIndexes(@TempDir Path dir) {
+        SQLiteDataSource dataSource = new SQLiteDataSource();
+        dataSource.setUrl("jdbc:sqlite:" + dir.resolve("duplicates.db"));
+        migrate(dataSource, "2");
+
+        // a catalogue written while the names were not unique yet
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.update("INSERT INTO movie (id, title, release_year, duration) VALUES (1, 'First', 2000, 90), " +
+                "(2, 'Second', 2001, 95)");
+        jdbc.update("INSERT INTO actor (id, name) VALUES (1, 'Same Actor'), (2, 'Same Actor'), (3, 'Other Actor')");
+        jdbc.update("INSERT INTO genre (id, name) VALUES (1, 'Drama'), (2, 'drama'), (3, 'Comedy')");
+        jdbc.update("INSERT INTO actors (movie_id, actor_id) VALUES (1, 1), (1, 2), (2, 2), (2, 3)");
+        jdbc.update("INSERT INTO genres (movie_id, genre_id) VALUES (1, 2), (2, 1), (2, 2), (2, 3)");
+
+        migrate(dataSource, "latest");
+
+        assertEquals(List.of(1L, 3L), jdbc.queryForList("SELECT id FROM actor ORDER BY id", Long.class));
+        assertEquals(List.of(1L, 3L), jdbc.queryForList("SELECT id FROM genre ORDER BY id", Long.class));
+        assertEquals(List.of("1-1", "2-1", "2-3"), jdbc.queryForList(
+                "SELECT movie_id || '-' || actor_id FROM actors ORDER BY movie_id, actor_id", String.class));
+        assertEquals(List.of("1-1", "2-1", "2-3"), jdbc.queryForList(
+                "SELECT movie_id || '-' || genre_id FROM genres ORDER BY movie_id, genre_id", String.class));
+    }
+
+    private static void migrate(SQLiteDataSource dataSource, String target) {
+        Flyway.configure()
+                .dataSource(dataSource)
+                .target(target)
+                .load()
+                .migrate();
+    }
+}
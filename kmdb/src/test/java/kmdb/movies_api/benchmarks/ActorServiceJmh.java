@@ -0,0 +1,56 @@
+package kmdb.movies_api.benchmarks;
+
+import kmdb.movies_api.dto.MovieSummaryDTO;
+import kmdb.movies_api.entities.Actor;
+import kmdb.movies_api.exceptions.ResourceNotFoundException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// ActorService read paths against the seeded catalogue, see JmhBenchmark for how to run them
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ActorServiceJmh {
+
+    private static final int PAGE_SIZE = 20;
+
+    @Benchmark
+    public List<Actor> getActorsByPage(JmhCatalogue catalogue, JmhCatalogue.Inputs inputs) {
+        int page = inputs.random.nextInt(catalogue.actors() / PAGE_SIZE);
+        return catalogue.actorService.getActorsByPage(page, PAGE_SIZE).orElseThrow();
+    }
+
+    @Benchmark
+    public Actor getActorById(JmhCatalogue catalogue, JmhCatalogue.Inputs inputs) {
+        return catalogue.actorService.getActorById(catalogue.randomActorId(inputs.random)).orElseThrow();
+    }
+
+    @Benchmark
+    public List<Actor> findActorsByName(JmhCatalogue catalogue, JmhCatalogue.Inputs inputs) {
+        try {
+            return catalogue.actorService.findActorsByName(inputs.firstName(), 50).orElseThrow();
+        } catch (ResourceNotFoundException e) {
+            return List.of();
+        }
+    }
+
+    @Benchmark
+    public List<MovieSummaryDTO> getMoviesByActor(JmhCatalogue catalogue, JmhCatalogue.Inputs inputs) {
+        try {
+            return catalogue.actorService.getMoviesByActor(catalogue.randomActorId(inputs.random)).orElseThrow();
+        } catch (ResourceNotFoundException e) {
+            // an actor the seeder cast in no movie
+            return List.of();
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package kmdb.movies_api.benchmarks;
+
+import kmdb.movies_api.dto.BulkIngestResultDTO;
+import kmdb.movies_api.services.MovieIngestService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Uploads a generated NDJSON catalogue through POST /api/movies/bulk's service.
+// Run with: mvn test -Pbenchmark -Dtest=BulkIngestBenchmark -Dbench.ingestMovies=100000
+@Tag("benchmark")
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:sqlite:./target/kmdb-ingest-bench.db",
+        "spring.jpa.show-sql=false"
+})
+@ActiveProfiles("test")
+class BulkIngestBenchmark {
+
+    private static final int MOVIES = Integer.getInteger("bench.ingestMovies", 100_000);
+    private static final int ACTORS = 5_000;
+    private static final int GENRES = 20;
+
+    @Autowired
+    private MovieIngestService movieIngestService;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    void ingestsGeneratedCatalogue() throws Exception {
+        // a small catalogue for the uploaded movies to reference
+        new CatalogueSeeder(dataSource).seed(1, ACTORS, GENRES, 4, 2);
+
+        byte[] body = ndjson();
+        long start = System.nanoTime();
+        BulkIngestResultDTO result = movieIngestService.ingest(new ByteArrayInputStream(body));
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("%,d movies (%,d KiB NDJSON) in %.2f s, %,.0f movies/s%n",
+                MOVIES, body.length / 1024, seconds, MOVIES / seconds);
+        assertEquals(MOVIES, result.inserted(), () -> "errors: " + result.errors());
+    }
+
+    private static byte[] ndjson() {
+        SplittableRandom random = new SplittableRandom(3);
+        StringBuilder out = new StringBuilder(MOVIES * 120);
+        for (int i = 0; i < MOVIES; i++) {
+            out.append("{\"title\":\"").append(CatalogueSeeder.Names.title(random))
+                    .append("\",\"releaseYear\":").append(1920 + random.nextInt(105))
+                    .append(",\"duration\":").append(60 + random.nextInt(120))
+                    .append(",\"actors\":[");
+            for (int a = 0; a < 4; a++) {
+                out.append(a == 0 ? "" : ",").append(1 + random.nextInt(ACTORS));
+            }
+            out.append("],\"genres\":[").append(1 + random.nextInt(GENRES)).append("]}\n");
+        }
+        return out.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
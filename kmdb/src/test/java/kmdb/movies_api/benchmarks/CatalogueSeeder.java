@@ -0,0 +1,155 @@
+package kmdb.movies_api.benchmarks;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.SplittableRandom;
+
+// Fills a benchmark database with a synthetic catalogue using plain JDBC batches
+public final class CatalogueSeeder {
+
+    private static final int BATCH_SIZE = 5_000;
+
+    private final DataSource dataSource;
+
+    public CatalogueSeeder(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    // Seeds movies, actors, genres and join rows unless the catalogue already has at least `movies` rows
+    public void seed(int movies, int actors, int genres, int actorsPerMovie, int genresPerMovie) throws SQLException {
+        try (Connection con = dataSource.getConnection()) {
+            if (count(con, "movie") >= movies) {
+                return;
+            }
+            con.setAutoCommit(false);
+            try (Statement st = con.createStatement()) {
+                st.executeUpdate("DELETE FROM actors");
+                st.executeUpdate("DELETE FROM genres");
+                st.executeUpdate("DELETE FROM movie");
+                st.executeUpdate("DELETE FROM actor");
+                st.executeUpdate("DELETE FROM genre");
+            }
+            SplittableRandom random = new SplittableRandom(42);
+
+            try (PreparedStatement ps = con.prepareStatement("INSERT INTO genre (id, name) VALUES (?, ?)")) {
+                for (int id = 1; id <= genres; id++) {
+                    ps.setLong(1, id);
+                    ps.setString(2, "Genre " + id);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+            try (PreparedStatement ps = con.prepareStatement("INSERT INTO actor (id, name, birth_date) VALUES (?, ?, ?)")) {
+                for (int id = 1; id <= actors; id++) {
+                    ps.setLong(1, id);
+                    ps.setString(2, Names.actor(random, id));
+                    ps.setString(3, (1930 + random.nextInt(80)) + "-0" + (1 + random.nextInt(9)) + "-1" + random.nextInt(10));
+                    ps.addBatch();
+                    if (id % BATCH_SIZE == 0) {
+                        ps.executeBatch();
+                    }
+                }
+                ps.executeBatch();
+            }
+            try (PreparedStatement movie = con.prepareStatement(
+                         "INSERT INTO movie (id, title, release_year, duration, star_rating) VALUES (?, ?, ?, ?, ?)");
+                 PreparedStatement cast = con.prepareStatement("INSERT OR IGNORE INTO actors (movie_id, actor_id) VALUES (?, ?)");
+                 PreparedStatement tags = con.prepareStatement("INSERT OR IGNORE INTO genres (movie_id, genre_id) VALUES (?, ?)")) {
+                for (int id = 1; id <= movies; id++) {
+                    movie.setLong(1, id);
+                    movie.setString(2, Names.movie(random, id));
+                    movie.setInt(3, 1950 + random.nextInt(75));
+                    movie.setInt(4, 70 + random.nextInt(120));
+                    movie.setInt(5, random.nextInt(6));
+                    movie.addBatch();
+                    for (int i = 0; i < actorsPerMovie; i++) {
+                        cast.setLong(1, id);
+                        // skewed towards low ids so some actors have many movies, like real casts
+                        cast.setLong(2, 1 + (long) (actors * Math.pow(random.nextDouble(), 2)));
+                        cast.addBatch();
+                    }
+                    for (int i = 0; i < genresPerMovie; i++) {
+                        tags.setLong(1, id);
+                        tags.setLong(2, 1 + random.nextInt(genres));
+                        tags.addBatch();
+                    }
+                    if (id % BATCH_SIZE == 0) {
+                        movie.executeBatch();
+                        cast.executeBatch();
+                        tags.executeBatch();
+                    }
+                }
+                movie.executeBatch();
+                cast.executeBatch();
+                tags.executeBatch();
+            }
+            resetSequence(con, "actor_sequence", actors + 1L);
+            resetSequence(con, "genre_sequence", genres + 1L);
+            con.commit();
+            try (Statement st = con.createStatement()) {
+                st.execute("ANALYZE");
+            }
+        }
+    }
+
+    private static long count(Connection con, String table) throws SQLException {
+        try (Statement st = con.createStatement(); ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM " + table)) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    private static void resetSequence(Connection con, String table, long nextValue) throws SQLException {
+        try (Statement st = con.createStatement()) {
+            st.executeUpdate("DELETE FROM " + table);
+            st.executeUpdate("INSERT INTO " + table + " (next_val) VALUES (" + nextValue + ")");
+        }
+    }
+
+    // Cheap pseudo-random names that still share tokens, so searches return realistic hit counts
+    static final class Names {
+        private static final String[] FIRST = {"Anna", "John", "Maria", "Peter", "Laura", "David", "Emma", "Carlos",
+                "Sofia", "Liam", "Olivia", "Noah", "Mia", "Lucas", "Ella", "Hugo"};
+        private static final String[] LAST = {"Smith", "Tamm", "Garcia", "Kovacs", "Novak", "Rossi", "Muller",
+                "Dubois", "Silva", "Kim", "Berg", "Saar", "Ivanov", "Jensen", "Moreau", "Clark"};
+        private static final String[] WORDS = {"Night", "Return", "Shadow", "City", "Last", "Dream", "River",
+                "Storm", "Empire", "Silent", "Golden", "Lost", "Star", "Winter", "Secret", "Edge", "Heart",
+                "Iron", "Glass", "Ocean", "Fire", "Garden", "Midnight", "Wolf"};
+        private static final String[] SYLLABLES = {"ka", "lo", "mi", "ren", "tor", "va", "shi", "den", "mar", "qua",
+                "lin", "bor", "es", "tan", "gri", "pel", "nu", "zo", "fa", "ri", "dam", "ost", "hel", "cy"};
+
+        static String actor(SplittableRandom random, int id) {
+            return FIRST[random.nextInt(FIRST.length)] + " " + LAST[random.nextInt(LAST.length)] + " " + id;
+        }
+
+        static String movie(SplittableRandom random, int id) {
+            return "The " + WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)] + " " + id;
+        }
+
+        // titles of 2-4 made up words from a vocabulary of ~14k words, so terms have realistic selectivity
+        static String title(SplittableRandom random) {
+            StringBuilder title = new StringBuilder();
+            int words = 2 + random.nextInt(3);
+            for (int i = 0; i < words; i++) {
+                if (i > 0) {
+                    title.append(' ');
+                }
+                String word = word(random);
+                title.append(Character.toUpperCase(word.charAt(0))).append(word, 1, word.length());
+            }
+            return title.toString();
+        }
+
+        static String word(SplittableRandom random) {
+            StringBuilder word = new StringBuilder();
+            int syllables = 2 + random.nextInt(2);
+            for (int i = 0; i < syllables; i++) {
+                word.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            }
+            return word.toString();
+        }
+    }
+}
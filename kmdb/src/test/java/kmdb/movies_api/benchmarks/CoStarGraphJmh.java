@@ -0,0 +1,145 @@
+package kmdb.movies_api.benchmarks;
+
+import kmdb.movies_api.search.CoStarGraph;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// The in-memory graph behind CoStarIndex at a scale of several million links, see JmhBenchmark for
+// how to run it (-Dbench.jmh.include=CoStarGraphJmh). It needs no application context: the links are
+// generated in memory, ten actors per movie and a few actors cast far more often than the rest. The
+// changes run in batches on a graph built again for every iteration, so each batch meets a graph of
+// the generated size rather than one grown or emptied by the iterations before.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class CoStarGraphJmh {
+
+    private static final int CAST = 10;
+    private static final int MAX_DEGREES = 6;
+    // kmdb.costars.max-visited default
+    private static final int MAX_VISITED = 1_000_000;
+    private static final int CHANGES = 100_000;
+
+    @State(Scope.Benchmark)
+    public static class Links {
+
+        @Param("3000000")
+        public int links;
+
+        long[] movieIds;
+        long[] actorIds;
+        CoStarGraph graph;
+
+        @Setup(Level.Trial)
+        public void generate() {
+            movieIds = new long[links];
+            actorIds = new long[links];
+            SplittableRandom random = new SplittableRandom(1);
+            for (int i = 0; i < links; i++) {
+                movieIds[i] = 1 + i / CAST;
+                // cubed, so low ids are cast far more often than high ones
+                double u = random.nextDouble();
+                actorIds[i] = 1 + (long) (actors() * u * u * u);
+            }
+            graph = build();
+        }
+
+        CoStarGraph build() {
+            return CoStarGraph.build(movieIds, actorIds, links);
+        }
+
+        int movies() {
+            return links / CAST;
+        }
+
+        int actors() {
+            return links / 6;
+        }
+
+        long randomActorId(SplittableRandom random) {
+            return 1 + random.nextInt(actors());
+        }
+    }
+
+    // A graph of its own for the benchmarks that change it
+    @State(Scope.Thread)
+    public static class Changed {
+
+        CoStarGraph graph;
+        long nextMovieId;
+        final SplittableRandom random = new SplittableRandom(2);
+
+        @Setup(Level.Iteration)
+        public void rebuild(Links links) {
+            graph = links.build();
+            nextMovieId = links.movies() + 1L;
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Inputs {
+        final SplittableRandom random = new SplittableRandom(Thread.currentThread().threadId());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Measurement(iterations = 5)
+    @Warmup(iterations = 3)
+    public CoStarGraph build(Links links) {
+        return links.build();
+    }
+
+    @Benchmark
+    public CoStarGraph.CoStars coStars(Links links, Inputs inputs) {
+        return links.graph.coStars(links.randomActorId(inputs.random), 20);
+    }
+
+    @Benchmark
+    public CoStarGraph.Path path(Links links, Inputs inputs) {
+        return links.graph.path(links.randomActorId(inputs.random), links.randomActorId(inputs.random),
+                MAX_DEGREES, MAX_VISITED);
+    }
+
+    // a new movie's cast, one link at a time
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Measurement(iterations = 5)
+    @Warmup(iterations = 3)
+    @OperationsPerInvocation(CHANGES)
+    public long addActor(Links links, Changed changed) {
+        for (int i = 0; i < CHANGES; i++) {
+            changed.graph.addActor(changed.nextMovieId + i / CAST, links.randomActorId(changed.random));
+        }
+        return changed.graph.links();
+    }
+
+    // movies of the catalogue with their whole cast
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Measurement(iterations = 5)
+    @Warmup(iterations = 3)
+    @OperationsPerInvocation(CHANGES / CAST)
+    public long removeMovie(Links links, Changed changed) {
+        for (int i = 0; i < CHANGES / CAST; i++) {
+            changed.graph.removeMovie(1 + changed.random.nextInt(links.movies()));
+        }
+        return changed.graph.links();
+    }
+}
@@ -0,0 +1,90 @@
+package kmdb.movies_api.benchmarks;
+
+import kmdb.movies_api.csv.CsvExportService;
+import kmdb.movies_api.csv.CsvTable;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.sqlite.SQLiteDataSource;
+
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Streams a large movie table to CSV. The export keeps no rows in memory, so it also passes with a
+// heap far smaller than the output.
+// Run with: mvn test -Pbenchmark -Dtest=CsvExportBenchmark -Dbench.csvMovies=5000000 -DargLine=-Xmx32m
+@Tag("benchmark")
+class CsvExportBenchmark {
+
+    private static final int MOVIES = Integer.getInteger("bench.csvMovies", 2_000_000);
+
+    @Test
+    void exportStreamsRows() throws Exception {
+        SQLiteDataSource dataSource = new SQLiteDataSource();
+        dataSource.setUrl("jdbc:sqlite:./target/csv-bench.db");
+        seed(dataSource);
+        CsvExportService exportService = new CsvExportService(
+                dataSource, new DataSourceTransactionManager(dataSource), new StandardEnvironment());
+
+        CountingOutputStream out = new CountingOutputStream();
+        long start = System.nanoTime();
+        exportService.export(CsvTable.MOVIES, out);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("%,d rows (%,d MiB of CSV) in %.2f s, %,.0f rows/s, max heap %,d MiB%n",
+                MOVIES, out.bytes >> 20, seconds, MOVIES / seconds, Runtime.getRuntime().maxMemory() >> 20);
+        assertTrue(out.bytes > MOVIES * 10L);
+    }
+
+    private static void seed(SQLiteDataSource dataSource) throws SQLException {
+        try (Connection con = dataSource.getConnection(); Statement st = con.createStatement()) {
+            st.execute("CREATE TABLE IF NOT EXISTS movie (id INTEGER PRIMARY KEY, title TEXT NOT NULL, " +
+                    "release_year INTEGER NOT NULL, duration INTEGER NOT NULL)");
+            try (ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM movie")) {
+                if (rs.next() && rs.getLong(1) == MOVIES) {
+                    return;
+                }
+            }
+            st.execute("DELETE FROM movie");
+            con.setAutoCommit(false);
+            SplittableRandom random = new SplittableRandom(5);
+            try (PreparedStatement ps = con.prepareStatement(
+                    "INSERT INTO movie (id, title, release_year, duration) VALUES (?, ?, ?, ?)")) {
+                for (int id = 1; id <= MOVIES; id++) {
+                    ps.setLong(1, id);
+                    ps.setString(2, CatalogueSeeder.Names.title(random));
+                    ps.setInt(3, 1920 + random.nextInt(105));
+                    ps.setInt(4, 60 + random.nextInt(120));
+                    ps.addBatch();
+                    if (id % 10_000 == 0) {
+                        ps.executeBatch();
+                    }
+                }
+                ps.executeBatch();
+            }
+            con.commit();
+        }
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+        private long bytes;
+
+        @Override
+        public void write(int b) {
+            bytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            bytes += len;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package kmdb.movies_api.benchmarks;
+
+import db.migration.V2__Full_text_indexes;
+import kmdb.movies_api.search.FullTextQuery;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.sqlite.SQLiteDataSource;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Compares the old LOWER(title) LIKE '%q%' scan with the FTS5 index on a large movie table.
+// Run with: mvn test -Pbenchmark -Dtest=FullTextSearchBenchmark -Dbench.ftsRows=1000000
+@Tag("benchmark")
+class FullTextSearchBenchmark {
+
+    private static final int ROWS = Integer.getInteger("bench.ftsRows", 1_000_000);
+    private static final int QUERIES = Integer.getInteger("bench.queries", 200);
+
+    @Test
+    void fullTextIndexBeatsLikeScan() throws SQLException {
+        SQLiteDataSource dataSource = new SQLiteDataSource();
+        dataSource.setUrl("jdbc:sqlite:./target/fts-bench.db");
+        try (Connection con = dataSource.getConnection()) {
+            seed(con);
+
+            // the LIKE query is what /search/title ran before: unranked and unbounded
+            double like = millisPerQuery(con, "SELECT id FROM movie WHERE LOWER(title) LIKE LOWER('%' || ? || '%')", false);
+            double fts = millisPerQuery(con, "SELECT rowid FROM movie_fts WHERE movie_fts MATCH ? ORDER BY rank LIMIT 50", true);
+
+            System.out.printf("%,d rows: LIKE %.2f ms/query, FTS5 %.2f ms/query (%.0fx)%n", ROWS, like, fts, like / fts);
+            assertTrue(fts < like, "FTS5 lookup should be faster than a LIKE scan");
+        }
+    }
+
+    private static double millisPerQuery(Connection con, String sql, boolean fullText) throws SQLException {
+        long rows = 0;
+        SplittableRandom random = new SplittableRandom(11);
+        long start = System.nanoTime();
+        try (PreparedStatement ps = con.prepareStatement(sql)) {
+            for (int i = 0; i < QUERIES; i++) {
+                // whole words and 4-letter prefixes, as typed into a search box
+                String word = CatalogueSeeder.Names.word(random);
+                String term = i % 2 == 0 ? word : word.substring(0, Math.min(4, word.length()));
+                ps.setString(1, fullText ? FullTextQuery.prefixQuery(term) : term);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        rows++;
+                    }
+                }
+            }
+        }
+        assertTrue(rows > 0);
+        return (System.nanoTime() - start) / 1e6 / QUERIES;
+    }
+
+    private static void seed(Connection con) throws SQLException {
+        try (Statement st = con.createStatement()) {
+            st.execute("CREATE TABLE IF NOT EXISTS movie (id INTEGER PRIMARY KEY, title TEXT NOT NULL)");
+            try (ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM movie")) {
+                if (rs.next() && rs.getLong(1) >= ROWS) {
+                    return;
+                }
+            }
+            st.execute("DROP TABLE IF EXISTS movie_fts");
+            st.execute("DELETE FROM movie");
+            for (String ddl : V2__Full_text_indexes.MOVIE_FTS_DDL) {
+                st.execute(ddl);
+            }
+        }
+        con.setAutoCommit(false);
+        SplittableRandom random = new SplittableRandom(7);
+        try (PreparedStatement ps = con.prepareStatement("INSERT INTO movie (id, title) VALUES (?, ?)")) {
+            for (int id = 1; id <= ROWS; id++) {
+                ps.setLong(1, id);
+                ps.setString(2, CatalogueSeeder.Names.title(random));
+                ps.addBatch();
+                if (id % 10_000 == 0) {
+                    ps.executeBatch();
+                }
+            }
+            ps.executeBatch();
+        }
+        con.commit();
+        con.setAutoCommit(true);
+    }
+}
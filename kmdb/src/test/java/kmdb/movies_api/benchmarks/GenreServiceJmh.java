@@ -0,0 +1,38 @@
+package kmdb.movies_api.benchmarks;
+
+import kmdb.movies_api.entities.Genre;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// GenreService read paths against the seeded catalogue, see JmhBenchmark for how to run them
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class GenreServiceJmh {
+
+    @Benchmark
+    public List<Genre> getAllGenres(JmhCatalogue catalogue) {
+        return catalogue.genreService.getAllGenres();
+    }
+
+    @Benchmark
+    public Genre getGenreById(JmhCatalogue catalogue, JmhCatalogue.Inputs inputs) {
+        return catalogue.genreService.getGenreById(catalogue.randomGenreId(inputs.random));
+    }
+
+    @Benchmark
+    public List<Genre> searchGenresByName(JmhCatalogue catalogue, JmhCatalogue.Inputs inputs) {
+        // the seeder names genres "Genre <id>", so every search finds at least one
+        return catalogue.genreService.searchGenresByName("Genre " + catalogue.randomGenreId(inputs.random));
+    }
+}
@@ -0,0 +1,35 @@
+package kmdb.movies_api.benchmarks;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Collection;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+// Runs the JMH benchmarks (the *Jmh classes) at one or more catalogue scales and writes the results
+// as JSON, so runs on different commits can be compared (e.g. with jmh.morethan.io).
+// Run with: mvn test -Pbenchmark -Dtest=JmhBenchmark -Dbench.jmh.movies=10000,100000,1000000
+//   -Dbench.jmh.include=MovieServiceJmh  only the benchmarks matching this regex
+//   -Dbench.jmh.result=target/jmh.json   where the JSON goes (default target/jmh-result.json)
+@Tag("benchmark")
+class JmhBenchmark {
+
+    @Test
+    void runJmhBenchmarks() throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(System.getProperty("bench.jmh.include", "kmdb\\.movies_api\\.benchmarks\\..*Jmh\\."))
+                .param("movies", System.getProperty("bench.jmh.movies", "10000").split(","))
+                .resultFormat(ResultFormatType.JSON)
+                .result(System.getProperty("bench.jmh.result", "target/jmh-result.json"))
+                .build();
+        Collection<RunResult> results = new Runner(options).run();
+        assertFalse(results.isEmpty(), "no benchmark matched");
+    }
+}
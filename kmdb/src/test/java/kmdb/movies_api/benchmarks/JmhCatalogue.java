@@ -0,0 +1,112 @@
+package kmdb.movies_api.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
+import kmdb.movies_api.MoviesApiApplication;
+import kmdb.movies_api.repositories.MovieRepository;
+import kmdb.movies_api.search.TypeaheadIndex;
+import kmdb.movies_api.services.ActorService;
+import kmdb.movies_api.services.GenreService;
+import kmdb.movies_api.services.MovieService;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.SplittableRandom;
+
+// The application context over a seeded SQLite catalogue, shared by all threads of a JMH trial.
+// Each scale has its own database file (target/jmh-<movies>.db), so only the first run seeds it.
+@State(Scope.Benchmark)
+public class JmhCatalogue {
+
+    static final int GENRES = 25;
+    static final int ACTORS_PER_MOVIE = 4;
+    static final int GENRES_PER_MOVIE = 2;
+
+    @Param("10000")
+    public int movies;
+
+    ConfigurableApplicationContext context;
+    MovieService movieService;
+    ActorService actorService;
+    GenreService genreService;
+    MovieRepository movieRepository;
+    // for repository queries no service wraps, so they read on the reader pool like the services do
+    TransactionTemplate readOnlyTransaction;
+    ObjectMapper objectMapper;
+
+    @Setup(Level.Trial)
+    public void start() throws SQLException {
+        context = new SpringApplicationBuilder(MoviesApiApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("test")
+                // as arguments, so they win over application.properties and the test profile
+                .run("--spring.datasource.url=jdbc:sqlite:./target/jmh-" + movies + ".db",
+                        "--spring.jpa.show-sql=false",
+                        "--logging.level.root=WARN");
+        new CatalogueSeeder(context.getBean(DataSource.class))
+                .seed(movies, actors(), GENRES, ACTORS_PER_MOVIE, GENRES_PER_MOVIE);
+        // the seeder writes with plain JDBC, behind the back of the caches and the typeahead index
+        context.getBean(EntityManagerFactory.class).getCache().evictAll();
+        context.getBean(TypeaheadIndex.class).build();
+
+        movieService = context.getBean(MovieService.class);
+        actorService = context.getBean(ActorService.class);
+        genreService = context.getBean(GenreService.class);
+        movieRepository = context.getBean(MovieRepository.class);
+        readOnlyTransaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnlyTransaction.setReadOnly(true);
+        objectMapper = context.getBean(ObjectMapper.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    int actors() {
+        return Math.max(1_000, movies / 2);
+    }
+
+    long randomMovieId(SplittableRandom random) {
+        return 1 + random.nextInt(movies);
+    }
+
+    long randomActorId(SplittableRandom random) {
+        return 1 + random.nextInt(actors());
+    }
+
+    long randomGenreId(SplittableRandom random) {
+        return 1 + random.nextInt(GENRES);
+    }
+
+    // Per-thread source of benchmark inputs
+    @State(Scope.Thread)
+    public static class Inputs {
+        final SplittableRandom random = new SplittableRandom(Thread.currentThread().threadId());
+
+        String word() {
+            return CatalogueSeeder.Names.word(random);
+        }
+
+        String firstName() {
+            String name = CatalogueSeeder.Names.actor(random, 0);
+            return name.substring(0, name.indexOf(' '));
+        }
+
+        String prefix() {
+            String word = word();
+            return word.substring(0, Math.min(3, word.length()));
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package kmdb.movies_api.benchmarks;
+
+import kmdb.movies_api.dto.MovieSummaryDTO;
+import kmdb.movies_api.dto.ReferenceDTO;
+import kmdb.movies_api.entities.Actor;
+import kmdb.movies_api.entities.Movie;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// MovieService read paths against the seeded catalogue, see JmhBenchmark for how to run them
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class MovieServiceJmh {
+
+    private static final int PAGE_SIZE = 20;
+
+    @Benchmark
+    public Page<MovieSummaryDTO> getAllMovies(JmhCatalogue catalogue, JmhCatalogue.Inputs inputs) {
+        int page = inputs.random.nextInt(catalogue.movies / PAGE_SIZE);
+        return catalogue.movieService.getAllMovies(PageRequest.of(page, PAGE_SIZE));
+    }
+
+    @Benchmark
+    public Slice<MovieSummaryDTO> getMovieSlice(JmhCatalogue catalogue, JmhCatalogue.Inputs inputs) {
+        int page = inputs.random.nextInt(catalogue.movies / PAGE_SIZE);
+        return catalogue.movieService.getMovieSlice(PageRequest.of(page, PAGE_SIZE));
+    }
+
+    @Benchmark
+    public Movie getMovieById(JmhCatalogue catalogue, JmhCatalogue.Inputs inputs) {
+        return catalogue.movieService.getMovieById(catalogue.randomMovieId(inputs.random)).orElseThrow();
+    }
+
+    @Benchmark
+    public Set<Actor> getActorsInMovie(JmhCatalogue catalogue, JmhCatalogue.Inputs inputs) {
+        return catalogue.movieService.getActorsInMovie(catalogue.randomMovieId(inputs.random)).orElseThrow();
+    }
+
+    @Benchmark
+    public List<MovieSummaryDTO> getMoviesByReleaseYear(JmhCatalogue catalogue, JmhCatalogue.Inputs inputs) {
+        return catalogue.movieService.getMoviesByReleaseYear(1950 + inputs.random.nextInt(75));
+    }
+
+    @Benchmark
+    public List<MovieSummaryDTO> getMoviesByActor(JmhCatalogue catalogue, JmhCatalogue.Inputs inputs) {
+        return catalogue.movieService.getMoviesByActor(catalogue.randomActorId(inputs.random));
+    }
+
+    @Benchmark
+    public List<MovieSummaryDTO> getMoviesByGenre(JmhCatalogue catalogue, JmhCatalogue.Inputs inputs) {
+        return catalogue.movieService.getMoviesByGenre(catalogue.randomGenreId(inputs.random));
+    }
+
+    // The repository's actor-and-genre query, which no endpoint uses yet; about half the random pairs
+    // share a movie at the seeded 4 actors and 2 of 25 genres per movie
+    @Benchmark
+    public List<Movie> findMoviesByActorAndGenre(JmhCatalogue catalogue, JmhCatalogue.Inputs inputs) {
+        long actorId = catalogue.randomActorId(inputs.random);
+        long genreId = catalogue.randomGenreId(inputs.random);
+        return catalogue.readOnlyTransaction.execute(status ->
+                catalogue.movieRepository.findMoviesByActorAndGenre(actorId, genreId));
+    }
+
+    @Benchmark
+    public List<MovieSummaryDTO> searchMoviesByTitle(JmhCatalogue catalogue, JmhCatalogue.Inputs inputs) {
+        return catalogue.movieService.searchMoviesByTitle(inputs.word(), 50);
+    }
+
+    @Benchmark
+    public List<ReferenceDTO> suggestTitles(JmhCatalogue catalogue, JmhCatalogue.Inputs inputs) {
+        return catalogue.movieService.suggestTitles(inputs.prefix(), 10);
+    }
+}
@@ -0,0 +1,117 @@
+package kmdb.movies_api.benchmarks;
+
+import kmdb.movies_api.dto.MovieLinksDTO;
+import kmdb.movies_api.services.MovieService;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Measures GET /api/movies style reads with and without concurrent writes. A writer links an actor to
+// a movie and unlinks it again (two transactions on the writer connection), as votes only reach
+// SQLite with the periodic flush.
+// Run with: mvn test -Pbenchmark -Dtest=ReadWriteSplitBenchmark
+@Tag("benchmark")
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:sqlite:./target/kmdb-bench.db",
+        "spring.jpa.show-sql=false"
+})
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ReadWriteSplitBenchmark {
+
+    private static final int MOVIES = Integer.getInteger("bench.movies", 5_000);
+    private static final int READERS = Integer.getInteger("bench.readers", 8);
+    private static final int WRITERS = Integer.getInteger("bench.writers", 4);
+    private static final long SECONDS = Long.getLong("bench.seconds", 10);
+
+    @Autowired
+    private MovieService movieService;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @BeforeAll
+    void seed() throws Exception {
+        new CatalogueSeeder(dataSource).seed(MOVIES, MOVIES / 2, 20, 4, 2);
+    }
+
+    @Test
+    void readThroughputUnderConcurrentWrites() throws InterruptedException {
+        Result idle = run(0);
+        Result loaded = run(WRITERS);
+
+        System.out.printf("reads/s without writers: %,.0f%n", idle.readsPerSecond());
+        System.out.printf("reads/s with %d link writers: %,.0f (%.0f%% of baseline), writes/s: %,.0f%n",
+                WRITERS, loaded.readsPerSecond(), 100 * loaded.readsPerSecond() / idle.readsPerSecond(),
+                loaded.writesPerSecond());
+
+        assertEquals(0, loaded.readErrors(), "readers must never see SQLITE_BUSY");
+        assertEquals(0, loaded.writeErrors(), "writers queue on the writer connection instead of failing");
+    }
+
+    private Result run(int writers) throws InterruptedException {
+        AtomicBoolean running = new AtomicBoolean(true);
+        LongAdder reads = new LongAdder();
+        LongAdder writes = new LongAdder();
+        LongAdder readErrors = new LongAdder();
+        LongAdder writeErrors = new LongAdder();
+        List<Thread> threads = new ArrayList<>();
+
+        for (int i = 0; i < READERS; i++) {
+            threads.add(Thread.ofPlatform().start(() -> {
+                while (running.get()) {
+                    try {
+                        movieService.getAllMovies(PageRequest.of(ThreadLocalRandom.current().nextInt(MOVIES / 20), 20));
+                        reads.increment();
+                    } catch (RuntimeException e) {
+                        readErrors.increment();
+                    }
+                }
+            }));
+        }
+        for (int i = 0; i < writers; i++) {
+            threads.add(Thread.ofPlatform().start(() -> {
+                while (running.get()) {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    long movieId = 1L + random.nextInt(MOVIES);
+                    Set<Long> actor = Set.of(1L + random.nextInt(MOVIES / 2));
+                    try {
+                        movieService.updateLinks(movieId, new MovieLinksDTO(actor, Set.of(), Set.of(), Set.of()));
+                        movieService.updateLinks(movieId, new MovieLinksDTO(Set.of(), actor, Set.of(), Set.of()));
+                        writes.add(2);
+                    } catch (RuntimeException e) {
+                        writeErrors.increment();
+                    }
+                }
+            }));
+        }
+
+        long start = System.nanoTime();
+        TimeUnit.SECONDS.sleep(SECONDS);
+        running.set(false);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        return new Result(reads.sum() / seconds, writes.sum() / seconds, readErrors.sum(), writeErrors.sum());
+    }
+
+    private record Result(double readsPerSecond, double writesPerSecond, long readErrors, long writeErrors) {
+    }
+}
@@ -0,0 +1,91 @@
+package kmdb.movies_api.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import kmdb.movies_api.dto.MovieSummaryDTO;
+import kmdb.movies_api.entities.Actor;
+import kmdb.movies_api.entities.Genre;
+import kmdb.movies_api.entities.Movie;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// Jackson serialization of the controller response bodies with the application's ObjectMapper.
+// The bodies are loaded once, so only the JSON writing is measured.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ResponseBodyJmh {
+
+    @State(Scope.Benchmark)
+    public static class Bodies {
+        // GET /api/movies
+        Page<MovieSummaryDTO> moviePage;
+        // GET /api/movies/{id}
+        Movie movie;
+        // GET /api/movies?genre=
+        List<MovieSummaryDTO> moviesOfGenre;
+        // GET /api/actors?page=
+        List<Actor> actorPage;
+        // GET /api/actors/{id}
+        Actor actor;
+        // GET /api/genres
+        List<Genre> genres;
+
+        @Setup(Level.Trial)
+        public void load(JmhCatalogue catalogue) {
+            SplittableRandom random = new SplittableRandom(1);
+            moviePage = catalogue.movieService.getAllMovies(PageRequest.of(0, 20));
+            movie = catalogue.movieService.getMovieById(catalogue.randomMovieId(random)).orElseThrow();
+            moviesOfGenre = catalogue.movieService.getMoviesByGenre(catalogue.randomGenreId(random));
+            actorPage = catalogue.actorService.getActorsByPage(0, 20).orElseThrow();
+            actor = catalogue.actorService.getActorById(catalogue.randomActorId(random)).orElseThrow();
+            genres = catalogue.genreService.getAllGenres();
+        }
+    }
+
+    @Benchmark
+    public byte[] moviePage(JmhCatalogue catalogue, Bodies bodies) throws JsonProcessingException {
+        return catalogue.objectMapper.writeValueAsBytes(bodies.moviePage);
+    }
+
+    @Benchmark
+    public byte[] movie(JmhCatalogue catalogue, Bodies bodies) throws JsonProcessingException {
+        return catalogue.objectMapper.writeValueAsBytes(bodies.movie);
+    }
+
+    @Benchmark
+    public byte[] moviesOfGenre(JmhCatalogue catalogue, Bodies bodies) throws JsonProcessingException {
+        return catalogue.objectMapper.writeValueAsBytes(bodies.moviesOfGenre);
+    }
+
+    @Benchmark
+    public byte[] actorPage(JmhCatalogue catalogue, Bodies bodies) throws JsonProcessingException {
+        return catalogue.objectMapper.writeValueAsBytes(bodies.actorPage);
+    }
+
+    @Benchmark
+    public byte[] actor(JmhCatalogue catalogue, Bodies bodies) throws JsonProcessingException {
+        return catalogue.objectMapper.writeValueAsBytes(bodies.actor);
+    }
+
+    @Benchmark
+    public byte[] genres(JmhCatalogue catalogue, Bodies bodies) throws JsonProcessingException {
+        return catalogue.objectMapper.writeValueAsBytes(bodies.genres);
+    }
+}
@@ -0,0 +1,57 @@
+package kmdb.movies_api.benchmarks;
+
+import kmdb.movies_api.search.TrigramIndex;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Builds the in-memory trigram index over synthetic titles and replays typed prefixes against it.
+// Run with: mvn test -Pbenchmark -Dtest=TypeaheadBenchmark -Dbench.typeaheadRows=1000000
+@Tag("benchmark")
+class TypeaheadBenchmark {
+
+    private static final int ROWS = Integer.getInteger("bench.typeaheadRows", 1_000_000);
+    private static final int QUERIES = Integer.getInteger("bench.queries", 20_000);
+
+    @Test
+    void typeaheadAnswersWithinAMillisecond() {
+        TrigramIndex index = new TrigramIndex();
+        SplittableRandom random = new SplittableRandom(7);
+        long buildStart = System.nanoTime();
+        index.beginLoad();
+        for (int id = 1; id <= ROWS; id++) {
+            index.load(id, CatalogueSeeder.Names.title(random));
+        }
+        index.endLoad();
+        long buildMillis = (System.nanoTime() - buildStart) / 1_000_000;
+
+        // every keystroke of a word from the third letter on, then a second word
+        String[] queries = new String[QUERIES];
+        for (int i = 0; i < QUERIES; ) {
+            String first = CatalogueSeeder.Names.word(random);
+            String second = CatalogueSeeder.Names.word(random);
+            for (int length = 3; length <= first.length() && i < QUERIES; length++) {
+                queries[i++] = first.substring(0, length);
+            }
+            for (int length = 1; length <= second.length() && i < QUERIES; length++) {
+                queries[i++] = first + " " + second.substring(0, length);
+            }
+        }
+
+        long results = 0;
+        for (String query : queries) {
+            results += index.suggest(query, 10).size();
+        }
+        long start = System.nanoTime();
+        for (String query : queries) {
+            results += index.suggest(query, 10).size();
+        }
+        double micros = (System.nanoTime() - start) / 1_000.0 / QUERIES;
+
+        System.out.printf("%,d titles indexed in %,d ms, %.1f us/query (%,d results)%n", ROWS, buildMillis, micros, results);
+        assertTrue(micros < 1_000, "typeahead should answer in under a millisecond");
+    }
+}
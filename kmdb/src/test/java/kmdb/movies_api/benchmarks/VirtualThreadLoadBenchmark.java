@@ -0,0 +1,162 @@
+package kmdb.movies_api.benchmarks;
+
+import kmdb.movies_api.MoviesApiApplication;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import javax.sql.DataSource;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Runs the same closed-loop load (every client sends GET /api/movies pages back to back) against the
+// application with platform-thread and with virtual-thread request handling, at each client count.
+// Prints throughput, latency percentiles, errors, the peak platform thread count and the peak heap.
+// Run with: mvn test -Pbenchmark -Dtest=VirtualThreadLoadBenchmark -Dbench.clients=1000,10000
+// (10k clients need about 20k open files: the clients run in the same JVM as the server)
+@Tag("benchmark")
+class VirtualThreadLoadBenchmark {
+
+    private static final String CLIENTS = System.getProperty("bench.clients", "1000,5000");
+    private static final long SECONDS = Long.getLong("bench.seconds", 15);
+    private static final int MOVIES = Integer.getInteger("bench.movies", 10_000);
+
+    @Test
+    void compareThreadingModes() throws Exception {
+        List<String> report = new ArrayList<>();
+        for (String clients : CLIENTS.split(",")) {
+            for (boolean virtual : new boolean[]{false, true}) {
+                Result result = run(virtual, Integer.parseInt(clients.trim()));
+                report.add(String.format("%6s clients, %-8s threads: %,8.0f req/s, p50 %,6d ms, p99 %,6d ms, " +
+                                "%,d errors, %,d platform threads, peak heap %,d MiB",
+                        clients.trim(), virtual ? "virtual" : "platform", result.requestsPerSecond(),
+                        result.p50Millis(), result.p99Millis(), result.errors(), result.peakThreads(), result.peakHeapMiB()));
+            }
+        }
+        report.forEach(System.out::println);
+    }
+
+    private Result run(boolean virtual, int clients) throws Exception {
+        ConfigurableApplicationContext app = new SpringApplicationBuilder(MoviesApiApplication.class)
+                .profiles("test")
+                .run("--server.port=0",
+                        "--spring.datasource.url=jdbc:sqlite:./target/kmdb-load-bench.db",
+                        "--spring.jpa.show-sql=false",
+                        "--logging.level.root=WARN",
+                        "--spring.threads.virtual.enabled=" + virtual,
+                        // connections are not what is compared, so neither mode refuses any
+                        "--server.tomcat.max-connections=" + (clients + 1000),
+                        "--server.tomcat.accept-count=" + clients);
+        try {
+            new CatalogueSeeder(app.getBean(DataSource.class)).seed(MOVIES, MOVIES / 2, 20, 4, 2);
+            int port = ((ServletWebServerApplicationContext) app).getWebServer().getPort();
+            System.gc();
+            return load(port, clients);
+        } finally {
+            app.close();
+        }
+    }
+
+    private Result load(int port, int clients) throws InterruptedException {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        threads.resetPeakThreadCount();
+        resetPeakHeap();
+
+        LongAdder requests = new LongAdder();
+        LongAdder errors = new LongAdder();
+        // latency histogram with one bucket per millisecond up to a minute
+        AtomicLongArray latencies = new AtomicLongArray(60_001);
+        long deadline = System.nanoTime() + SECONDS * 1_000_000_000L;
+
+        try (ExecutorService clientThreads = Executors.newVirtualThreadPerTaskExecutor();
+             HttpClient http = HttpClient.newBuilder()
+                     .executor(clientThreads)
+                     .connectTimeout(Duration.ofSeconds(30))
+                     .build()) {
+            List<Thread> running = new ArrayList<>(clients);
+            for (int i = 0; i < clients; i++) {
+                running.add(Thread.ofVirtual().start(() -> {
+                    while (System.nanoTime() < deadline) {
+                        int page = ThreadLocalRandom.current().nextInt(MOVIES / 20);
+                        HttpRequest request = HttpRequest.newBuilder(
+                                        URI.create("http://localhost:" + port + "/api/movies?size=20&page=" + page))
+                                .timeout(Duration.ofSeconds(60))
+                                .build();
+                        long start = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = http.send(request, HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() != 200) {
+                                errors.increment();
+                                continue;
+                            }
+                        } catch (Exception e) {
+                            errors.increment();
+                            continue;
+                        }
+                        requests.increment();
+                        latencies.incrementAndGet((int) Math.min(60_000, (System.nanoTime() - start) / 1_000_000));
+                    }
+                }));
+            }
+            for (Thread thread : running) {
+                thread.join();
+            }
+        }
+        return new Result(requests.sum() / (double) SECONDS, percentile(latencies, 0.50), percentile(latencies, 0.99),
+                errors.sum(), threads.getPeakThreadCount(), peakHeap() >> 20);
+    }
+
+    private static long percentile(AtomicLongArray histogram, double quantile) {
+        long total = 0;
+        for (int i = 0; i < histogram.length(); i++) {
+            total += histogram.get(i);
+        }
+        long rank = (long) Math.ceil(total * quantile);
+        long seen = 0;
+        for (int i = 0; i < histogram.length(); i++) {
+            seen += histogram.get(i);
+            if (seen >= rank && seen > 0) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    private static void resetPeakHeap() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    private static long peakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+    private record Result(double requestsPerSecond, long p50Millis, long p99Millis, long errors,
+                          int peakThreads, long peakHeapMiB) {
+    }
+}
@@ -0,0 +1,103 @@
+package kmdb.movies_api.config;
+
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RequestConcurrencyLimiterTests {
+
+    @Test
+    void requestOverTheLimitWaitsForAPermit() throws Exception {
+        RequestConcurrencyLimiter limiter = new RequestConcurrencyLimiter(1, 10_000);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread first = holdPermit(limiter, release);
+
+        AtomicBoolean secondRan = new AtomicBoolean();
+        MockHttpServletResponse secondResponse = new MockHttpServletResponse();
+        Thread second = Thread.ofVirtual().start(() -> filter(limiter, secondResponse, (request, response) ->
+                secondRan.set(true)));
+        awaitQueueLength(limiter, 1);
+        assertFalse(secondRan.get());
+
+        release.countDown();
+        first.join();
+        second.join();
+        assertTrue(secondRan.get());
+        assertEquals(HttpStatus.OK.value(), secondResponse.getStatus());
+        assertEquals(0, limiter.queueLength());
+    }
+
+    @Test
+    void requestThatWaitsTooLongIsTurnedAway() throws Exception {
+        RequestConcurrencyLimiter limiter = new RequestConcurrencyLimiter(1, 50);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread first = holdPermit(limiter, release);
+
+        AtomicBoolean secondRan = new AtomicBoolean();
+        MockHttpServletResponse secondResponse = new MockHttpServletResponse();
+        filter(limiter, secondResponse, (request, response) -> secondRan.set(true));
+
+        assertFalse(secondRan.get());
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE.value(), secondResponse.getStatus());
+        assertEquals("1", secondResponse.getHeader(HttpHeaders.RETRY_AFTER));
+        release.countDown();
+        first.join();
+    }
+
+    @Test
+    void limitFollowsTheConnectionPools() {
+        assertEquals(9, new DatabaseConfig(new MockEnvironment(), null, null).maximumConnections());
+        assertEquals(5, new DatabaseConfig(new MockEnvironment()
+                .withProperty("kmdb.datasource.pool.maximum-size", "4"), null, null).maximumConnections());
+        // without the split all connections come from the one pool
+        assertEquals(4, new DatabaseConfig(new MockEnvironment()
+                .withProperty("kmdb.datasource.pool.maximum-size", "4")
+                .withProperty("kmdb.datasource.read-write-split", "false"), null, null).maximumConnections());
+    }
+
+    // a request that holds the only permit until release is counted down
+    private static Thread holdPermit(RequestConcurrencyLimiter limiter, CountDownLatch release)
+            throws InterruptedException {
+        CountDownLatch entered = new CountDownLatch(1);
+        FilterChain holding = (request, response) -> {
+            entered.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        Thread holder = Thread.ofVirtual().start(() -> filter(limiter, new MockHttpServletResponse(), holding));
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+        return holder;
+    }
+
+    private static void filter(RequestConcurrencyLimiter limiter, MockHttpServletResponse response,
+                               FilterChain chain) {
+        try {
+            limiter.doFilter(new MockHttpServletRequest("GET", "/api/movies"), response, chain);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void awaitQueueLength(RequestConcurrencyLimiter limiter, int length) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (limiter.queueLength() < length) {
+            assertTrue(System.nanoTime() < deadline, "no request is waiting for a permit");
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package kmdb.movies_api.controllers;
+
+import kmdb.movies_api.dto.MovieDTO;
+import kmdb.movies_api.services.MovieService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class MovieConditionalGetTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MovieService movieService;
+
+    @Test
+    void plainAndGzippedMovieHaveAnEtagEach() throws Exception {
+        long id = addMovie("Conditional Movie Encodings");
+
+        MockHttpServletResponse plain = mockMvc.perform(get("/api/movies/" + id))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.VARY, containsString(HttpHeaders.ACCEPT_ENCODING)))
+                .andReturn().getResponse();
+        MockHttpServletResponse gzipped = mockMvc.perform(get("/api/movies/" + id)
+                        .header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andReturn().getResponse();
+
+        assertNull(plain.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertEquals("\"0.0\"", plain.getHeader(HttpHeaders.ETAG));
+        assertEquals("\"0.0-gzip\"", gzipped.getHeader(HttpHeaders.ETAG));
+        try (GZIPInputStream body = new GZIPInputStream(new ByteArrayInputStream(gzipped.getContentAsByteArray()))) {
+            assertArrayEquals(plain.getContentAsByteArray(), body.readAllBytes());
+        }
+    }
+
+    @Test
+    void eitherEtagRevalidatesEitherForm() throws Exception {
+        long id = addMovie("Conditional Movie Revalidated");
+
+        // a client that cached the plain body and now accepts gzip still gets 304, and the other way round
+        mockMvc.perform(get("/api/movies/" + id)
+                        .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"0.0\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"0.0\""));
+        mockMvc.perform(get("/api/movies/" + id)
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"0.0-gzip\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"0.0-gzip\""));
+        // a rating or version the client has not seen yet
+        mockMvc.perform(get("/api/movies/" + id)
+                        .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"0.3-gzip\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"0.0-gzip\""));
+    }
+
+    private long addMovie(String title) {
+        MovieDTO movie = new MovieDTO();
+        movie.setTitle(title);
+        movie.setReleaseYear(2000);
+        movie.setDuration(100);
+        movie.setActors(List.of());
+        movie.setGenres(List.of());
+        return movieService.addMovie(movie).getId();
+    }
+}
@@ -0,0 +1,117 @@
+package kmdb.movies_api.controllers;
+
+import kmdb.movies_api.dto.MovieDTO;
+import kmdb.movies_api.entities.Actor;
+import kmdb.movies_api.entities.Genre;
+import kmdb.movies_api.repositories.ActorRepository;
+import kmdb.movies_api.repositories.GenreRepository;
+import kmdb.movies_api.services.MovieService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class MovieListConditionalGetTests {
+
+    // the movies of one year, to leave out movies of other tests
+    private static final int YEAR = 1905;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MovieService movieService;
+
+    @Autowired
+    private ActorRepository actorRepository;
+
+    @Autowired
+    private GenreRepository genreRepository;
+
+    @Test
+    void unchangedListIsAnsweredWithNotModified() throws Exception {
+        addMovie("Conditional List Unchanged");
+        String etag = etagOf("/api/movies?releaseYear=" + YEAR);
+
+        mockMvc.perform(get("/api/movies?releaseYear=" + YEAR).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        String pageEtag = etagOf("/api/movies?page=0&size=5");
+        mockMvc.perform(get("/api/movies?page=0&size=5").header(HttpHeaders.IF_NONE_MATCH, pageEtag))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void editedMovieChangesTheListEtag() throws Exception {
+        long movieId = addMovie("Conditional List Edited");
+        String etag = etagOf("/api/movies?releaseYear=" + YEAR);
+
+        long genreId = genreRepository.save(genre("Conditional List Added Genre")).getId();
+        mockMvc.perform(patch("/api/movies/" + movieId + "/assign-genre/" + genreId))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/movies?releaseYear=" + YEAR).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("Conditional List Added Genre")));
+        assertNotEquals(etag, etagOf("/api/movies?releaseYear=" + YEAR));
+    }
+
+    @Test
+    void renamedActorChangesTheListEtag() throws Exception {
+        addMovie("Conditional List Renamed");
+        long actorId = actorRepository.findByName("Conditional List Renamed Actor").orElseThrow().getId();
+        String etag = etagOf("/api/movies?releaseYear=" + YEAR);
+
+        // the summaries carry actor names, which live in the actor table
+        mockMvc.perform(patch("/api/actors/" + actorId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\": \"Conditional List Renamed Actor Two\"}"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/movies?releaseYear=" + YEAR).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG));
+    }
+
+    private String etagOf(String url) throws Exception {
+        String etag = mockMvc.perform(get(url))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotNull(etag);
+        return etag;
+    }
+
+    private long addMovie(String title) {
+        MovieDTO movie = new MovieDTO();
+        movie.setTitle(title);
+        movie.setReleaseYear(YEAR);
+        movie.setDuration(100);
+        movie.setActors(List.of(actorRepository.save(new Actor(title + " Actor")).getId()));
+        movie.setGenres(List.of(genreRepository.save(genre(title + " Genre")).getId()));
+        return movieService.addMovie(movie).getId();
+    }
+
+    private static Genre genre(String name) {
+        Genre genre = new Genre();
+        genre.setName(name);
+        return genre;
+    }
+}
@@ -0,0 +1,77 @@
+package kmdb.movies_api.csv;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CsvFormatTests {
+
+    @Test
+    void writesTheBackupFormat() throws IOException {
+        StringWriter out = new StringWriter();
+        CsvWriter writer = new CsvWriter(out);
+        writer.writeRecord(new Object[]{1L, 148L, 2010L, "Inception"});
+        writer.writeRecord(new Object[]{4L, 148L, 2021L, "Spider-Man: No Way Home"});
+        writer.writeRecord(new Object[]{5L, "Say \"Hi\",\nthen go", null});
+
+        assertEquals("1,148,2010,Inception\r\n" +
+                "4,148,2021,\"Spider-Man: No Way Home\"\r\n" +
+                "5,\"Say \"\"Hi\"\",\nthen go\",\r\n", out.toString());
+    }
+
+    @Test
+    void readsWhatItWrites() throws IOException {
+        Object[][] records = {
+                {1L, "Inception", "x"},
+                {2L, "Say \"Hi\",\r\nthen go", ""},
+                {3L, "", "last"},
+        };
+        StringWriter out = new StringWriter();
+        CsvWriter writer = new CsvWriter(out);
+        for (Object[] record : records) {
+            writer.writeRecord(record);
+        }
+
+        List<String[]> read = readAll(out.toString());
+        assertEquals(3, read.size());
+        assertArrayEquals(new String[]{"1", "Inception", "x"}, read.get(0));
+        assertArrayEquals(new String[]{"2", "Say \"Hi\",\r\nthen go", ""}, read.get(1));
+        assertArrayEquals(new String[]{"3", "", "last"}, read.get(2));
+    }
+
+    @Test
+    void skipsBlankLinesAndTracksRecordLines() throws IOException {
+        CsvReader reader = new CsvReader(new StringReader("\n1,\"a\nb\"\r\n\r\n2,c"));
+
+        assertArrayEquals(new String[]{"1", "a\nb"}, reader.next());
+        assertEquals(2, reader.recordLine());
+        assertArrayEquals(new String[]{"2", "c"}, reader.next());
+        assertEquals(5, reader.recordLine());
+        assertEquals(null, reader.next());
+    }
+
+    @Test
+    void rejectsBadRecords() throws IOException {
+        assertThrows(IllegalArgumentException.class, () -> CsvTable.MOVIES.parse(new String[]{"1", "abc", "2010", "X"}));
+        assertThrows(IllegalArgumentException.class, () -> CsvTable.MOVIES.parse(new String[]{"1", "148", "2010"}));
+        assertThrows(IllegalArgumentException.class, () -> CsvTable.GENRES.parse(new String[]{"0", "Drama"}));
+        assertThrows(IllegalArgumentException.class, () -> readAll("1,\"unclosed\n"));
+    }
+
+    private static List<String[]> readAll(String csv) throws IOException {
+        CsvReader reader = new CsvReader(new StringReader(csv));
+        List<String[]> records = new ArrayList<>();
+        for (String[] record = reader.next(); record != null; record = reader.next()) {
+            records.add(record);
+        }
+        return records;
+    }
+}
@@ -0,0 +1,69 @@
+package kmdb.movies_api.csv;
+
+import kmdb.movies_api.entities.Actor;
+import kmdb.movies_api.repositories.ActorRepository;
+import kmdb.movies_api.repositories.projections.VersionSummaryRow;
+import kmdb.movies_api.services.ActorService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// one record per batch and two per transaction, so a failure in the middle leaves committed rows behind
+@SpringBootTest(properties = {"kmdb.csv.batch-size=1", "kmdb.csv.rows-per-transaction=2"})
+@ActiveProfiles("test")
+class CsvImportServiceTests {
+
+    @Autowired
+    private CsvImportService csvImportService;
+
+    @Autowired
+    private ActorService actorService;
+
+    @Autowired
+    private ActorRepository actorRepository;
+
+    @Test
+    void failedImportStillMovesTheSequencePastCommittedIds() {
+        // claims a block of ids, the import then takes the next ones of that block
+        actorService.addActor(new Actor("Csv Import Actor Before"));
+        long before = actorRepository.findByName("Csv Import Actor Before").orElseThrow().getId();
+        String csv = (before + 1) + ",Csv Import Actor One,\n" +
+                (before + 2) + ",Csv Import Actor Two,\n" +
+                "not-an-id,Csv Import Actor Bad,\n" +
+                (before + 4) + ",Csv Import Actor Four,\n";
+
+        assertThrows(IllegalArgumentException.class, () -> csvImportService.importCsv(CsvTable.ACTORS,
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8))));
+        assertTrue(actorRepository.existsById(before + 2));
+
+        actorService.addActor(new Actor("Csv Import Actor After"));
+        assertTrue(actorRepository.findByName("Csv Import Actor After").orElseThrow().getId() > before + 2);
+    }
+
+    @Test
+    void actorImportedUnderADeletedIdChangesTheListVersion() throws Exception {
+        actorService.addActor(new Actor("Csv Import Actor Reused"));
+        long id = actorRepository.findByName("Csv Import Actor Reused").orElseThrow().getId();
+        VersionSummaryRow before = actorService.getActorListVersion();
+        actorService.deleteActor(id, false);
+
+        // same id, name and version as before the delete: only the time of the write tells them apart
+        Thread.sleep(2);
+        String csv = id + ",Csv Import Actor Reused,\n";
+        csvImportService.importCsv(CsvTable.ACTORS, new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+
+        VersionSummaryRow after = actorService.getActorListVersion();
+        assertEquals(before.count(), after.count());
+        assertEquals(before.idSum(), after.idSum());
+        assertNotEquals(before, after);
+    }
+}
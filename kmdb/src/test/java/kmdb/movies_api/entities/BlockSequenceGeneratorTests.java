@@ -0,0 +1,53 @@
+package kmdb.movies_api.entities;
+
+import kmdb.movies_api.repositories.ActorRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = "kmdb.datasource.writer.connection-timeout-ms=2000")
+@ActiveProfiles("test")
+class BlockSequenceGeneratorTests {
+
+    @Autowired
+    private ActorRepository actorRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private IdBlocks idBlocks;
+
+    @Test
+    void claimsBlocksInsideTheWriteTransaction() {
+        // a fresh block is claimed by the transaction that already holds the only writer connection
+        idBlocks.discardAll();
+        List<Long> ids = new TransactionTemplate(transactionManager).execute(status -> actorRepository.saveAll(List.of(
+                new Actor("Block Sequence Actor A"), new Actor("Block Sequence Actor B"))).stream()
+                .map(Actor::getId).toList());
+        assertEquals(ids.get(0) + 1, ids.get(1));
+    }
+
+    @Test
+    void rolledBackClaimIsNotHandedOutAgain() {
+        idBlocks.discardAll();
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        Long rolledBack = transaction.execute(status -> {
+            status.setRollbackOnly();
+            return actorRepository.save(new Actor("Block Sequence Rolled Back")).getId();
+        });
+        Long saved = transaction.execute(status -> actorRepository.save(new Actor("Block Sequence Saved")).getId());
+
+        // the claim was undone with the transaction, so the same block is claimed again from the table
+        assertEquals(rolledBack, saved);
+        assertTrue(actorRepository.existsById(saved));
+    }
+}
@@ -0,0 +1,94 @@
+package kmdb.movies_api.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import kmdb.movies_api.entities.Genre;
+import kmdb.movies_api.repositories.GenreRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.servlet.HandlerMapping;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+@ActiveProfiles("test")
+class RequestMetricsTests {
+
+    private static final String STATEMENTS = "kmdb.request.sql.statements";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Autowired
+    private GenreRepository genreRepository;
+
+    @Test
+    void requestStatementsAreRecordedByEndpointAndScraped() throws Exception {
+        Genre genre = new Genre();
+        genre.setName("Request Metrics Genre");
+        long id = genreRepository.save(genre).getId();
+
+        mockMvc.perform(get("/api/genres/" + id)).andExpect(status().isOk());
+        DistributionSummary statements = registry.get(STATEMENTS)
+                .tags("method", "GET", "uri", "/api/genres/{id}").summary();
+        long count = statements.count();
+        double total = statements.totalAmount();
+        mockMvc.perform(get("/api/genres/" + id)).andExpect(status().isOk());
+
+        // the genre's version is read on every request, it is not in the query cache
+        assertEquals(count + 1, statements.count());
+        assertTrue(statements.totalAmount() >= total + 1);
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString(
+                        "kmdb_request_sql_statements_count{method=\"GET\",uri=\"/api/genres/{id}\"")))
+                .andExpect(content().string(containsString(
+                        "kmdb_request_connection_wait_seconds_count{method=\"GET\",uri=\"/api/genres/{id}\"")));
+    }
+
+    @Test
+    void eachRequestStartsFromZero() throws Exception {
+        SimpleMeterRegistry meters = new SimpleMeterRegistry();
+        RequestMetricsFilter filter = new RequestMetricsFilter(meters);
+        // work left on the thread by something outside a request
+        RequestSqlStats.current().statements = 7;
+
+        filter.doFilter(request(), new MockHttpServletResponse(), (request, response) -> {
+            RequestSqlStats stats = RequestSqlStats.current();
+            stats.statements += 2;
+            stats.rows += 5;
+        });
+        filter.doFilter(request(), new MockHttpServletResponse(), (request, response) ->
+                RequestSqlStats.current().statements++);
+
+        DistributionSummary statements = meters.get(STATEMENTS).tags("uri", "/api/movies/{id}").summary();
+        assertEquals(2, statements.count());
+        assertEquals(3, statements.totalAmount());
+        assertEquals(2, statements.max());
+        assertEquals(5, meters.get("kmdb.request.sql.rows").summary().totalAmount());
+    }
+
+    private static MockHttpServletRequest request() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/movies/1");
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/api/movies/{id}");
+        return request;
+    }
+}
@@ -0,0 +1,94 @@
+package kmdb.movies_api.metrics;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.env.MockEnvironment;
+import org.sqlite.SQLiteDataSource;
+
+import javax.sql.DataSource;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SlowQueryRecorderTests {
+
+    // a scan of a few million generated rows, well over the threshold below
+    private static final String SLOW = "WITH RECURSIVE n(i) AS (SELECT 1 UNION ALL SELECT i + 1 FROM n WHERE i < ?) " +
+            "SELECT COUNT(*) FROM n WHERE i % 7 = ?";
+
+    @Test
+    void onlyStatementsOverTheThresholdAreRecorded(@TempDir Path dir) throws Exception {
+        SlowQueryRecorder recorder = recorder("50", "10");
+        DataSource dataSource = new SlowQueryDataSource(sqlite(dir), recorder);
+
+        try (Connection connection = dataSource.getConnection()) {
+            query(connection, "SELECT ? + 1", 1);
+            query(connection, SLOW, 3_000_000, 3);
+        }
+
+        List<SlowQuery> recent = recorder.recent();
+        assertEquals(1, recent.size());
+        SlowQuery slow = recent.get(0);
+        assertEquals(SLOW, slow.sql());
+        assertEquals(List.of("3000000", "3"), slow.parameters());
+        assertTrue(slow.millis() >= 50);
+        assertFalse(slow.plan().isEmpty());
+    }
+
+    @Test
+    void newestStatementsAreKeptFirst() {
+        SlowQueryRecorder recorder = recorder("50", "2");
+
+        recorder.record(null, "UNKNOWN 1", new Object[]{null}, 60_000_000);
+        recorder.record(null, "UNKNOWN 2", new Object[]{new byte[16]}, 70_000_000);
+        recorder.record(null, "UNKNOWN 3", new Object[]{"x".repeat(300)}, 80_000_000);
+
+        List<SlowQuery> recent = recorder.recent();
+        assertEquals(List.of("UNKNOWN 3", "UNKNOWN 2"), recent.stream().map(SlowQuery::sql).toList());
+        assertEquals(List.of(80L, 70L), recent.stream().map(SlowQuery::millis).toList());
+        assertEquals(List.of("<16 bytes>"), recent.get(1).parameters());
+        // long values are cut, and statements that cannot be explained have no plan
+        assertEquals(203, recent.get(0).parameters().get(0).length());
+        assertEquals(List.of(), recent.get(0).plan());
+
+        recorder.clear();
+        assertEquals(List.of(), recorder.recent());
+    }
+
+    @Test
+    void thresholdOfZeroSwitchesTheRecorderOff() {
+        assertFalse(recorder("0", "10").isEnabled());
+        assertTrue(recorder("1", "10").isEnabled());
+    }
+
+    private static SlowQueryRecorder recorder(String thresholdMillis, String capacity) {
+        return new SlowQueryRecorder(new MockEnvironment()
+                .withProperty("kmdb.slow-query.threshold-ms", thresholdMillis)
+                .withProperty("kmdb.slow-query.capacity", capacity));
+    }
+
+    private static DataSource sqlite(Path dir) {
+        SQLiteDataSource dataSource = new SQLiteDataSource();
+        dataSource.setUrl("jdbc:sqlite:" + dir.resolve("slow.db"));
+        return dataSource;
+    }
+
+    private static void query(Connection connection, String sql, Object... parameters) throws Exception {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (int i = 0; i < parameters.length; i++) {
+                statement.setObject(i + 1, parameters[i]);
+            }
+            try (ResultSet rows = statement.executeQuery()) {
+                while (rows.next()) {
+                    rows.getLong(1);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package kmdb.movies_api.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class CoStarGraphTests {
+
+    @Test
+    void coStarsRankBySharedMovies() {
+        CoStarGraph graph = catalogue();
+
+        CoStarGraph.CoStars coStars = graph.coStars(100, 10);
+        assertEquals(2, coStars.total());
+        assertEquals(List.of(new CoStarGraph.CoStar(101, 2), new CoStarGraph.CoStar(102, 1)), coStars.first());
+        assertEquals(List.of(new CoStarGraph.CoStar(101, 2)), graph.coStars(100, 1).first());
+
+        graph.removeActor(2, 101);
+        graph.addActor(5, 100);
+        graph.addActor(5, 102);
+        assertEquals(List.of(new CoStarGraph.CoStar(102, 2), new CoStarGraph.CoStar(101, 1)),
+                graph.coStars(100, 10).first());
+        assertEquals(0, graph.coStars(99, 10).total());
+    }
+
+    @Test
+    void pathsAreShortestAndBounded() {
+        CoStarGraph graph = catalogue();
+
+        CoStarGraph.Path path = graph.path(100, 104, 6, 1000);
+        assertArrayEquals(new long[]{100, 102, 103, 104}, path.actorIds());
+        assertArrayEquals(new long[]{3, 4, 6}, path.movieIds());
+        assertNull(graph.path(100, 104, 2, 1000));
+        assertNull(graph.path(100, 104, 6, 3));
+        assertArrayEquals(new long[]{101}, graph.path(101, 101, 6, 1000).actorIds());
+
+        // a shortcut, then the link the old path went through goes away with its movie
+        graph.addActor(7, 100);
+        graph.addActor(7, 103);
+        assertArrayEquals(new long[]{100, 103, 104}, graph.path(100, 104, 6, 1000).actorIds());
+        graph.removeMovie(6);
+        graph.dropActor(103);
+        assertNull(graph.path(100, 104, 6, 1000));
+        assertEquals(0, graph.coStars(103, 10).total());
+    }
+
+    @Test
+    void changesSurviveCompaction() {
+        CoStarGraph graph = catalogue();
+        for (long movieId = 1000; movieId < 6000; movieId++) {
+            graph.addActor(movieId, 100);
+            graph.addActor(movieId, 200);
+        }
+        assertEquals(List.of(new CoStarGraph.CoStar(200, 5000)), graph.coStars(100, 1).first());
+        assertEquals(10_010, graph.links());
+        assertArrayEquals(new long[]{200, 100, 102, 103, 104}, graph.path(200, 104, 6, 100_000).actorIds());
+    }
+
+    // movie 1: 100 101; 2: 100 101; 3: 100 102; 4: 102 103; 6: 103 104
+    private static CoStarGraph catalogue() {
+        return CoStarGraph.build(
+                new long[]{1, 1, 2, 2, 3, 3, 4, 4, 6, 6, 1},
+                new long[]{100, 101, 101, 100, 100, 102, 102, 103, 103, 104, 100}, 11);
+    }
+}
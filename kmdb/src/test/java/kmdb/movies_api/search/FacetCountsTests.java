@@ -0,0 +1,74 @@
+package kmdb.movies_api.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FacetCountsTests {
+
+    @Test
+    void countsFollowEveryChange() {
+        FacetCounts counts = catalogue();
+        FacetCounts.Result all = counts.query(null, null, null, null, 10, 10);
+
+        assertEquals(4, all.total());
+        assertArrayEquals(new long[]{1, 2, 3, 4}, all.movieIds());
+        assertEquals(List.of(new FacetCounts.Count(10, 3), new FacetCounts.Count(20, 2)), all.genres());
+        assertEquals(List.of(new FacetCounts.Count(100, 3), new FacetCounts.Count(101, 1)), all.actors());
+        assertEquals(List.of(new FacetCounts.Count(1990, 2), new FacetCounts.Count(2000, 2)), all.decades());
+        assertEquals(List.of(new FacetCounts.Count(1994, 1), new FacetCounts.Count(1999, 1),
+                new FacetCounts.Count(2008, 2)), all.years());
+
+        counts.removeActor(1, 100);
+        counts.putMovie(2, 2010);
+        counts.dropGenre(20);
+        counts.removeMovie(3);
+        all = counts.query(null, null, null, null, 10, 10);
+
+        assertEquals(3, all.total());
+        assertEquals(List.of(new FacetCounts.Count(10, 3)), all.genres());
+        assertEquals(List.of(new FacetCounts.Count(100, 1), new FacetCounts.Count(101, 1)), all.actors());
+        assertEquals(List.of(new FacetCounts.Count(1990, 1), new FacetCounts.Count(2000, 1),
+                new FacetCounts.Count(2010, 1)), all.decades());
+    }
+
+    @Test
+    void filtersCombineAndCountOnlyTheMatches() {
+        FacetCounts counts = catalogue();
+
+        FacetCounts.Result drama = counts.query(10L, null, null, null, 10, 10);
+        assertArrayEquals(new long[]{1, 2, 4}, drama.movieIds());
+        assertEquals(List.of(new FacetCounts.Count(10, 3), new FacetCounts.Count(20, 1)), drama.genres());
+
+        FacetCounts.Result nineties = counts.query(null, 100L, null, 1990, 1, 10);
+        assertEquals(2, nineties.total());
+        assertArrayEquals(new long[]{1}, nineties.movieIds());
+        assertEquals(List.of(new FacetCounts.Count(1990, 2)), nineties.decades());
+
+        assertEquals(0, counts.query(20L, null, 1994, null, 10, 10).total());
+        assertEquals(0, counts.query(99L, null, null, null, 10, 10).total());
+    }
+
+    // 1: 1994, genre 10, actors 100 101; 2: 1999, genres 10 20, actor 100;
+    // 3: 2008, genre 20, actor 100; 4: 2008, genre 10
+    private static FacetCounts catalogue() {
+        FacetCounts counts = new FacetCounts();
+        counts.putMovie(1, 1994);
+        counts.putMovie(2, 1999);
+        counts.putMovie(3, 2008);
+        counts.putMovie(4, 2008);
+        counts.addGenre(1, 10);
+        counts.addGenre(2, 10);
+        counts.addGenre(2, 20);
+        counts.addGenre(3, 20);
+        counts.addGenre(4, 10);
+        counts.addActor(1, 100);
+        counts.addActor(1, 101);
+        counts.addActor(2, 100);
+        counts.addActor(3, 100);
+        return counts;
+    }
+}
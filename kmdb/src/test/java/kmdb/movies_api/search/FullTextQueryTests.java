@@ -0,0 +1,29 @@
+package kmdb.movies_api.search;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class FullTextQueryTests {
+
+    @Test
+    void everyWordBecomesAQuotedPrefixTerm() {
+        assertEquals("\"dark\"* \"kni\"*", FullTextQuery.prefixQuery("dark kni"));
+        assertEquals("\"Am\"* \"lie\"* \"2\"*", FullTextQuery.prefixQuery("  Am-lie (2) "));
+        assertEquals("\"Amélie\"*", FullTextQuery.prefixQuery("Amélie"));
+    }
+
+    @Test
+    void operatorsAndQuotesAreSearchedAsWords() {
+        assertEquals("\"war\"* \"AND\"* \"peace\"*", FullTextQuery.prefixQuery("war AND peace"));
+        assertEquals("\"title\"* \"x\"*", FullTextQuery.prefixQuery("title:\"x*"));
+    }
+
+    @Test
+    void inputWithoutWordsHasNoQuery() {
+        assertNull(FullTextQuery.prefixQuery(null));
+        assertNull(FullTextQuery.prefixQuery(""));
+        assertNull(FullTextQuery.prefixQuery(" -*\"() "));
+    }
+}
@@ -0,0 +1,107 @@
+package kmdb.movies_api.search;
+
+import kmdb.movies_api.dto.MovieDTO;
+import kmdb.movies_api.entities.Actor;
+import kmdb.movies_api.entities.Genre;
+import kmdb.movies_api.repositories.ActorRepository;
+import kmdb.movies_api.repositories.GenreRepository;
+import kmdb.movies_api.services.MovieRatings;
+import kmdb.movies_api.services.MovieService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// boards of two movies, so a third one is let go
+@SpringBootTest(properties = "kmdb.leaderboards.size=2")
+@ActiveProfiles("test")
+class LeaderboardIndexTests {
+
+    // the boards of one year per test, to leave out movies of other tests
+    private static final int YEAR = 1902;
+    private static final int REFILL_YEAR = 1904;
+
+    @Autowired
+    private MovieService movieService;
+
+    @Autowired
+    private MovieRatings movieRatings;
+
+    @Autowired
+    private LeaderboardIndex leaderboardIndex;
+
+    @Autowired
+    private ActorRepository actorRepository;
+
+    @Autowired
+    private GenreRepository genreRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void flushedVotesReachTheBoardsAsStored() {
+        long first = addMovie("Leaderboard First", YEAR);
+        long second = addMovie("Leaderboard Second", YEAR);
+        movieService.rateMovie(first, 5);
+        movieService.rateMovie(first, 4);
+        movieService.rateMovie(second, 3);
+        movieService.rateMovie(second, 2);
+        movieService.rateMovie(second, 2);
+
+        movieRatings.flush();
+
+        List<Leaderboards.Ranked> top = leaderboardIndex.top(Leaderboards.Order.RATING, null, YEAR, 10);
+        assertEquals(List.of(first, second), top.stream().map(Leaderboards.Ranked::id).toList());
+        for (Leaderboards.Ranked ranked : top) {
+            Map<String, Object> stored = jdbcTemplate.queryForMap(
+                    "SELECT votes, star_sum FROM movie_rating WHERE movie_id = ?", ranked.id());
+            assertEquals(((Number) stored.get("votes")).longValue(), ranked.votes());
+            assertEquals(((Number) stored.get("star_sum")).longValue(), ranked.starSum());
+        }
+        assertEquals(2, top.get(0).votes());
+        assertEquals(9, top.get(0).starSum());
+        assertEquals(3, top.get(1).votes());
+        assertEquals(7, top.get(1).starSum());
+    }
+
+    @Test
+    void boardThatRunsShortIsRefilledFromTheDatabase() {
+        long first = addMovie("Leaderboard Refill First", REFILL_YEAR);
+        long second = addMovie("Leaderboard Refill Second", REFILL_YEAR);
+        long third = addMovie("Leaderboard Refill Third", REFILL_YEAR);
+        movieService.rateMovie(first, 5);
+        movieService.rateMovie(second, 4);
+        movieService.rateMovie(third, 3);
+        movieRatings.flush();
+        assertEquals(List.of(first, second), ids(leaderboardIndex.top(Leaderboards.Order.RATING, null, REFILL_YEAR, 2)));
+
+        // the board is left with one movie and has let the third go
+        movieService.deleteMovie(first);
+
+        assertEquals(List.of(second, third), ids(leaderboardIndex.top(Leaderboards.Order.RATING, null, REFILL_YEAR, 2)));
+        assertEquals(List.of(second, third), ids(leaderboardIndex.top(Leaderboards.Order.RATING, null, REFILL_YEAR, 10)));
+    }
+
+    private static List<Long> ids(List<Leaderboards.Ranked> ranked) {
+        return ranked.stream().map(Leaderboards.Ranked::id).toList();
+    }
+
+    private long addMovie(String title, int year) {
+        Genre genre = new Genre();
+        genre.setName(title + " Genre");
+        MovieDTO movie = new MovieDTO();
+        movie.setTitle(title);
+        movie.setReleaseYear(year);
+        movie.setDuration(100);
+        movie.setActors(List.of(actorRepository.save(new Actor(title + " Actor")).getId()));
+        movie.setGenres(List.of(genreRepository.save(genre).getId()));
+        return movieService.addMovie(movie).getId();
+    }
+}
@@ -0,0 +1,89 @@
+package kmdb.movies_api.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class LeaderboardsTests {
+
+    @Test
+    void boardsFollowVotesAndGenres() {
+        Leaderboards boards = catalogue();
+
+        assertEquals(List.of(2L, 1L, 3L), ids(boards.top(Leaderboards.Order.RATING, null, null, 10)));
+        assertEquals(List.of(3L, 1L, 2L), ids(boards.top(Leaderboards.Order.VOTES, null, null, 10)));
+        assertEquals(List.of(4L, 3L, 2L, 1L), ids(boards.top(Leaderboards.Order.NEWEST, null, null, 10)));
+        assertEquals(List.of(2L, 1L), ids(boards.top(Leaderboards.Order.RATING, 10L, null, 10)));
+        assertEquals(List.of(3L), ids(boards.top(Leaderboards.Order.RATING, null, 2008, 10)));
+
+        // the leader drops, a removed movie leaves room for the next one
+        boards.put(movie(2, 1999, 4, 8, 10, 20));
+        boards.removeMovie(1);
+        assertEquals(List.of(3L, 2L), ids(boards.top(Leaderboards.Order.RATING, null, null, 10)));
+        assertEquals(List.of(2L), ids(boards.top(Leaderboards.Order.RATING, 10L, null, 10)));
+
+        boards.put(movie(2, 1999, 4, 8, 20));
+        boards.put(movie(4, 2008, 0, 0, 10, 20));
+        boards.dropGenre(20);
+        assertEquals(List.of(), ids(boards.top(Leaderboards.Order.RATING, 10L, null, 10)));
+        assertEquals(List.of(4L), ids(boards.top(Leaderboards.Order.NEWEST, 10L, null, 10)));
+        assertEquals(List.of(), ids(boards.top(Leaderboards.Order.NEWEST, 20L, null, 10)));
+    }
+
+    @Test
+    void equalAveragesRankMoreVotesFirst() {
+        Leaderboards boards = new Leaderboards(10);
+        boards.put(movie(1, 2000, 1, 4));
+        boards.put(movie(2, 2000, 3, 12));
+
+        assertEquals(List.of(2L, 1L), ids(boards.top(Leaderboards.Order.RATING, null, null, 10)));
+        assertEquals(List.of(2L), ids(boards.top(Leaderboards.Order.RATING, null, null, 1)));
+        assertEquals(2, boards.size());
+    }
+
+    @Test
+    void fullBoardsLetMoviesGoAndAskForARefill() {
+        Leaderboards boards = new Leaderboards(2);
+        boards.put(movie(1, 2000, 1, 5));
+        boards.put(movie(2, 2000, 1, 4));
+        boards.put(movie(3, 2000, 1, 3));
+
+        assertEquals(List.of(1L, 2L), ids(boards.top(Leaderboards.Order.RATING, null, null, 2)));
+        // the third was let go
+        assertNull(boards.top(Leaderboards.Order.RATING, null, null, 3));
+
+        boards.removeMovie(1);
+        assertEquals(List.of(2L), ids(boards.top(Leaderboards.Order.RATING, null, null, 1)));
+        assertNull(boards.top(Leaderboards.Order.RATING, null, null, 2));
+
+        boards.refill(Leaderboards.Order.RATING, null, null, List.of(movie(2, 2000, 1, 4), movie(3, 2000, 1, 3)), true);
+        assertEquals(List.of(2L, 3L), ids(boards.top(Leaderboards.Order.RATING, null, null, 3)));
+
+        // a better movie pushes the last one out again
+        boards.put(movie(4, 2000, 1, 5));
+        assertEquals(List.of(4L, 2L), ids(boards.top(Leaderboards.Order.RATING, null, null, 2)));
+        assertNull(boards.top(Leaderboards.Order.RATING, null, null, 3));
+    }
+
+    // 1: 1994, genre 10, 2 votes avg 4; 2: 1999, genres 10 20, 1 vote avg 5;
+    // 3: 2008, genre 20, 5 votes avg 3; 4: 2008, genre 20, no votes
+    private static Leaderboards catalogue() {
+        Leaderboards boards = new Leaderboards(10);
+        boards.put(movie(1, 1994, 2, 8, 10));
+        boards.put(movie(2, 1999, 1, 5, 10, 20));
+        boards.put(movie(3, 2008, 5, 15, 20));
+        boards.put(movie(4, 2008, 0, 0, 20));
+        return boards;
+    }
+
+    private static Leaderboards.Listed movie(long id, int year, long votes, long starSum, long... genreIds) {
+        return new Leaderboards.Listed(new Leaderboards.Ranked(id, "Movie " + id, year, votes, starSum), genreIds);
+    }
+
+    private static List<Long> ids(List<Leaderboards.Ranked> ranked) {
+        return ranked.stream().map(Leaderboards.Ranked::id).toList();
+    }
+}
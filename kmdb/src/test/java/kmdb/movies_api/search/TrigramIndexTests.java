@@ -0,0 +1,115 @@
+package kmdb.movies_api.search;
+
+import kmdb.movies_api.dto.ReferenceDTO;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TrigramIndexTests {
+
+    @Test
+    void matchesEveryQueryWordAsWordPrefix() {
+        TrigramIndex index = new TrigramIndex();
+        index.put(1, "The Dark Knight");
+        index.put(2, "The Dark Knight Rises");
+        index.put(3, "Darkman");
+        index.put(4, "Knives Out");
+
+        assertEquals(List.of(1L, 2L), ids(index.suggest("dark kni", 10)));
+        assertEquals(List.of(4L, 1L, 2L), ids(index.suggest("kn", 10)));
+        assertEquals(List.of(3L, 1L, 2L), ids(index.suggest("D", 10)));
+        // infixes do not match
+        assertTrue(index.suggest("ark", 10).isEmpty());
+    }
+
+    @Test
+    void ranksWholeTextPrefixFirstThenShorterTexts() {
+        TrigramIndex index = new TrigramIndex();
+        index.put(1, "Leon the Professional");
+        index.put(2, "Leonardo DiCaprio");
+        index.put(3, "Leo");
+        index.put(4, "Young Leo");
+
+        assertEquals(List.of(3L, 2L), ids(index.suggest("leo", 2)));
+        assertEquals(List.of(3L, 2L, 1L, 4L), ids(index.suggest("leo", 10)));
+    }
+
+    @Test
+    void foldsCaseAndAccents() {
+        TrigramIndex index = new TrigramIndex();
+        index.put(1, "Amélie");
+
+        assertEquals(List.of(1L), ids(index.suggest("AME", 5)));
+        assertEquals("Amélie", index.suggest("amelie", 5).get(0).name());
+    }
+
+    @Test
+    void followsUpdatesAndRemovals() {
+        TrigramIndex index = new TrigramIndex();
+        index.put(1, "Old Name");
+        index.put(1, "New Name");
+        index.put(2, "Other");
+        index.remove(2);
+
+        assertTrue(index.suggest("old", 5).isEmpty());
+        assertEquals(List.of(1L), ids(index.suggest("new", 5)));
+        assertTrue(index.suggest("oth", 5).isEmpty());
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void keepsAnswersAcrossCompaction() {
+        TrigramIndex index = new TrigramIndex();
+        for (int id = 1; id <= 5000; id++) {
+            index.put(id, "Movie " + id);
+        }
+        for (int id = 1; id <= 4990; id++) {
+            index.remove(id);
+        }
+
+        assertEquals(10, index.size());
+        assertEquals(List.of(4991L), ids(index.suggest("movie 4991", 5)));
+        assertEquals(5, index.suggest("movie", 5).size());
+    }
+
+    @Test
+    void loadDoesNotOverrideChangesMadeDuringTheScan() {
+        TrigramIndex index = new TrigramIndex();
+        index.beginLoad();
+        index.put(1, "Renamed");
+        index.remove(2);
+        index.load(1, "Stale");
+        index.load(2, "Deleted");
+        index.load(3, "Loaded");
+        index.endLoad();
+
+        assertEquals(List.of(1L), ids(index.suggest("ren", 5)));
+        assertTrue(index.suggest("stale", 5).isEmpty());
+        assertTrue(index.suggest("deleted", 5).isEmpty());
+        assertEquals(List.of(3L), ids(index.suggest("loa", 5)));
+    }
+
+    @Test
+    void loadOverAFilledIndexUpdatesChangedTexts() {
+        TrigramIndex index = new TrigramIndex();
+        index.put(1, "Old Title");
+        index.put(2, "Kept");
+        index.beginLoad();
+        index.load(1, "New Title");
+        index.load(2, "Kept");
+        index.load(3, "Added");
+        index.endLoad();
+
+        assertTrue(index.suggest("old", 5).isEmpty());
+        assertEquals(List.of(1L), ids(index.suggest("new", 5)));
+        assertEquals(List.of(2L), ids(index.suggest("kept", 5)));
+        assertEquals(3, index.size());
+    }
+
+    private static List<Long> ids(List<ReferenceDTO> suggestions) {
+        return suggestions.stream().map(ReferenceDTO::id).toList();
+    }
+}
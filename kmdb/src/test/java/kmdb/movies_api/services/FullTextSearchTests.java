@@ -0,0 +1,90 @@
+package kmdb.movies_api.services;
+
+import kmdb.movies_api.dto.MovieDTO;
+import kmdb.movies_api.dto.MovieSummaryDTO;
+import kmdb.movies_api.entities.Actor;
+import kmdb.movies_api.exceptions.ResourceNotFoundException;
+import kmdb.movies_api.repositories.ActorRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class FullTextSearchTests {
+
+    @Autowired
+    private MovieService movieService;
+
+    @Autowired
+    private ActorService actorService;
+
+    @Autowired
+    private ActorRepository actorRepository;
+
+    @Test
+    void titleWordsMatchAsPrefixesInAnyOrder() {
+        long knight = addMovie("Quillaby Dark Knight");
+        long knights = addMovie("The Quillaby Knights Return");
+        addMovie("Quillaby Lights");
+
+        assertEquals(List.of(knight, knights).stream().sorted().toList(),
+                ids(movieService.searchMoviesByTitle("kni quill", 10)).stream().sorted().toList());
+        // every word has to match
+        assertEquals(List.of(knight), ids(movieService.searchMoviesByTitle("quillaby dar kni", 10)));
+        assertEquals(2, movieService.searchMoviesByTitle("quillaby", 2).size());
+        assertEquals(List.of(), movieService.searchMoviesByTitle("!!!", 10));
+    }
+
+    @Test
+    void accentsAndCaseAreFolded() {
+        long movie = addMovie("Zéphyrine à Paris");
+
+        assertEquals(List.of(movie), ids(movieService.searchMoviesByTitle("ZEPHYRINE a par", 10)));
+    }
+
+    @Test
+    void searchIndexFollowsDeletes() {
+        long movie = addMovie("Vorlathen Deleted");
+        assertEquals(List.of(movie), ids(movieService.searchMoviesByTitle("vorlathen", 10)));
+
+        movieService.deleteMovie(movie);
+
+        assertEquals(List.of(), movieService.searchMoviesByTitle("vorlathen", 10));
+    }
+
+    @Test
+    void actorSearchFollowsRenames() {
+        long id = actorRepository.save(new Actor("Brannoch Oldname")).getId();
+        assertEquals(List.of(id), actorIds("branno old"));
+
+        actorService.updateActor(id, "Brannoch Newname", null);
+
+        assertEquals(List.of(id), actorIds("branno new"));
+        assertThrows(ResourceNotFoundException.class, () -> actorService.findActorsByName("branno old", 10));
+    }
+
+    private List<Long> actorIds(String name) {
+        return actorService.findActorsByName(name, 10).orElseThrow().stream().map(Actor::getId).toList();
+    }
+
+    private long addMovie(String title) {
+        MovieDTO movie = new MovieDTO();
+        movie.setTitle(title);
+        movie.setReleaseYear(2000);
+        movie.setDuration(100);
+        movie.setActors(List.of());
+        movie.setGenres(List.of());
+        return movieService.addMovie(movie).getId();
+    }
+
+    private static List<Long> ids(List<MovieSummaryDTO> movies) {
+        return movies.stream().map(MovieSummaryDTO::id).toList();
+    }
+}
@@ -0,0 +1,151 @@
+package kmdb.movies_api.services;
+
+import jakarta.persistence.EntityManagerFactory;
+import kmdb.movies_api.dto.MovieSummaryDTO;
+import kmdb.movies_api.entities.Actor;
+import kmdb.movies_api.entities.Movie;
+import kmdb.movies_api.pagination.CursorPage;
+import kmdb.movies_api.pagination.KeysetCursor;
+import kmdb.movies_api.repositories.ActorRepository;
+import kmdb.movies_api.repositories.MovieRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("test")
+class KeysetPaginationTests {
+
+    @Autowired
+    private MovieService movieService;
+
+    @Autowired
+    private ActorService actorService;
+
+    @Autowired
+    private MovieRepository movieRepository;
+
+    @Autowired
+    private ActorRepository actorRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void scrollingMoviesByTitleBreaksTiesOnId() {
+        // equal titles, so only the id tells the rows on either side of a page break apart
+        List<Long> sameTitle = new ArrayList<>();
+        List<Long> laterTitle = new ArrayList<>();
+        for (String title : List.of("Keyset Movie", "Keyset Movie", "Keyset Movie", "Keyset Movie B", "Keyset Movie",
+                "Keyset Movie B", "Keyset Movie")) {
+            (title.equals("Keyset Movie") ? sameTitle : laterTitle).add(addMovie(title));
+        }
+        List<Long> expected = new ArrayList<>(sameTitle.stream().sorted().toList());
+        expected.addAll(laterTitle.stream().sorted().toList());
+
+        List<Long> seen = scroll(new KeysetCursor("title", 0, "Keyset Movie"), 2,
+                cursor -> movieService.scrollMovies(cursor, "title", 2), MovieSummaryDTO::title, MovieSummaryDTO::id,
+                title -> title.startsWith("Keyset Movie"));
+
+        assertEquals(expected, seen);
+    }
+
+    @Test
+    void scrollingActorsByIdVisitsEachOnce() {
+        List<Actor> actors = actorRepository.saveAll(List.of(new Actor("Keyset Actor 1"), new Actor("Keyset Actor 2"),
+                new Actor("Keyset Actor 3"), new Actor("Keyset Actor 4"), new Actor("Keyset Actor 5")));
+        List<Long> ids = actors.stream().map(Actor::getId).sorted().toList();
+
+        List<Long> seen = scroll(new KeysetCursor("id", ids.get(0) - 1, ""), 2,
+                cursor -> actorService.scrollActors(cursor, "id", 2), Actor::getName, Actor::getId,
+                name -> name.startsWith("Keyset Actor"));
+
+        assertEquals(ids, seen);
+    }
+
+    @Test
+    void lastPageHasNoCursor() {
+        CursorPage<Actor> page = actorService.scrollActors(
+                new KeysetCursor("id", Long.MAX_VALUE - 1, "").encode(), "id", 10);
+
+        assertEquals(List.of(), page.content());
+        assertNull(page.next());
+    }
+
+    @Test
+    void badCursorsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> movieService.scrollMovies("not a cursor", "id", 10));
+        assertThrows(IllegalArgumentException.class, () -> movieService.scrollMovies(null, "year", 10));
+        assertThrows(IllegalArgumentException.class, () -> actorService.scrollActors(
+                new KeysetCursor("title", 0, "").encode(), "id", 10));
+    }
+
+    @Test
+    void sliceSkipsTheCount() {
+        // two at least, so the count is not skipped as it is on a short first page
+        addMovie("Keyset Slice Movie 1");
+        addMovie("Keyset Slice Movie 2");
+        long total = movieRepository.count();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        statistics.clear();
+        movieService.getAllMovies(PageRequest.of(0, 1));
+        long withCount = statistics.getPrepareStatementCount();
+        statistics.clear();
+        Slice<MovieSummaryDTO> first = movieService.getMovieSlice(PageRequest.of(0, 1));
+
+        assertEquals(withCount - 1, statistics.getPrepareStatementCount());
+        assertEquals(1, first.getContent().size());
+        assertTrue(first.hasNext());
+        // the extra row read to find the next slice is not returned
+        Slice<MovieSummaryDTO> last = movieService.getMovieSlice(PageRequest.of((int) total - 1, 1));
+        assertEquals(1, last.getContent().size());
+        assertFalse(last.hasNext());
+    }
+
+    private long addMovie(String title) {
+        Movie movie = new Movie();
+        movie.setTitle(title);
+        movie.setReleaseYear(2000);
+        movie.setDuration(100);
+        return movieRepository.save(movie).getId();
+    }
+
+    // Follows the next cursors from start, collecting the ids of rows whose key is accepted, until a
+    // page reaches a row that is not or there is no next page
+    private static <T> List<Long> scroll(KeysetCursor start, int size, Function<String, CursorPage<T>> fetch,
+                                         Function<T, String> key, Function<T, Long> id,
+                                         Predicate<String> accepted) {
+        List<Long> seen = new ArrayList<>();
+        String cursor = start.encode();
+        while (cursor != null) {
+            CursorPage<T> page = fetch.apply(cursor);
+            assertTrue(page.content().size() <= size);
+            for (T row : page.content()) {
+                if (!accepted.test(key.apply(row))) {
+                    return seen;
+                }
+                assertFalse(seen.contains(id.apply(row)));
+                seen.add(id.apply(row));
+            }
+            cursor = page.next();
+        }
+        return seen;
+    }
+}
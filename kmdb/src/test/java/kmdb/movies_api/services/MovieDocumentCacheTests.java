@@ -0,0 +1,122 @@
+package kmdb.movies_api.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import kmdb.movies_api.entities.Movie;
+import kmdb.movies_api.events.MovieSaved;
+import kmdb.movies_api.repositories.projections.MovieVersionRow;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MovieDocumentCacheTests {
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void leastRecentlyUsedDocumentLeavesWhenTheBudgetIsFull() {
+        long size = sizeOfOneDocument();
+        // room for two documents of the same size, give or take a byte of compression
+        MovieDocumentCache cache = cache(2 * size + size / 2);
+
+        cache.put(movie(1, 0, 0));
+        cache.put(movie(2, 0, 0));
+        assertNotNull(cache.get(1, version(0, 0)));
+        cache.put(movie(3, 0, 0));
+
+        assertNotNull(cache.get(1, version(0, 0)));
+        assertNull(cache.get(2, version(0, 0)));
+        assertNotNull(cache.get(3, version(0, 0)));
+        assertTrue(registry.get("kmdb.movie.documents.bytes").gauge().value() <= 2 * size + size / 2);
+    }
+
+    @Test
+    void documentOverTheBudgetIsServedButNotKept() {
+        long size = sizeOfOneDocument();
+        MovieDocumentCache cache = cache(size - 1);
+
+        assertNotNull(cache.put(movie(1, 0, 0)));
+        assertNull(cache.get(1, version(0, 0)));
+        assertEquals(0, registry.get("kmdb.movie.documents.bytes").gauge().value());
+    }
+
+    @Test
+    void documentIsOnlyServedForItsVersionAndRating() {
+        MovieDocumentCache cache = cache(Long.MAX_VALUE);
+        cache.put(movie(1, 2, 3));
+
+        assertNotNull(cache.get(1, version(2, 3)));
+        assertNull(cache.get(1, version(3, 3)));
+        assertNull(cache.get(1, version(2, 4)));
+        assertEquals(1, registry.get("kmdb.movie.documents").tag("result", "hit").counter().count());
+        assertEquals(2, registry.get("kmdb.movie.documents").tag("result", "miss").counter().count());
+
+        // a request that loaded an older version does not replace the newer document
+        cache.put(movie(1, 1, 3));
+        assertNotNull(cache.get(1, version(2, 3)));
+
+        cache.onMovieSaved(new MovieSaved(1, "Movie 1", 2000));
+        assertNull(cache.get(1, version(2, 3)));
+    }
+
+    @Test
+    void gzippedDocumentHoldsTheSameJson() throws Exception {
+        MovieDocumentCache.MovieDocument document = cache(Long.MAX_VALUE).put(movie(1, 0, 4));
+
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(document.gzip()))) {
+            assertArrayEquals(document.json(), gzip.readAllBytes());
+        }
+        assertTrue(new String(document.json(), StandardCharsets.UTF_8).contains("\"Rating\":\"★★★★☆\""));
+    }
+
+    @Test
+    void gzipIsSentUnlessTheClientRefusesIt() {
+        assertTrue(MovieDocumentCache.acceptsGzip("gzip, deflate, br"));
+        assertTrue(MovieDocumentCache.acceptsGzip("br;q=1.0, GZIP;q=0.5"));
+        assertTrue(MovieDocumentCache.acceptsGzip("*"));
+        assertFalse(MovieDocumentCache.acceptsGzip(null));
+        assertFalse(MovieDocumentCache.acceptsGzip("identity"));
+        assertFalse(MovieDocumentCache.acceptsGzip("gzip;q=0"));
+        assertFalse(MovieDocumentCache.acceptsGzip("deflate, gzip; q=0.0"));
+    }
+
+    private MovieDocumentCache cache(long budgetBytes) {
+        return cache(budgetBytes, registry);
+    }
+
+    private static MovieDocumentCache cache(long budgetBytes, MeterRegistry registry) {
+        return new MovieDocumentCache(new ObjectMapper(), registry,
+                new MockEnvironment().withProperty("kmdb.movie-documents.budget-bytes", String.valueOf(budgetBytes)));
+    }
+
+    // measured on a cache of its own, so its meters stay out of the tested one's
+    private static long sizeOfOneDocument() {
+        return cache(Long.MAX_VALUE, new SimpleMeterRegistry()).put(movie(1, 0, 0)).size();
+    }
+
+    private static Movie movie(long id, long version, int starRating) {
+        Movie movie = new Movie();
+        movie.setId(id);
+        movie.setTitle("Movie " + id);
+        movie.setReleaseYear(2000);
+        movie.setDuration(100);
+        movie.setVersion(version);
+        movie.setStarRating(starRating);
+        return movie;
+    }
+
+    private static MovieVersionRow version(long version, int starRating) {
+        return new MovieVersionRow(version, starRating, 0);
+    }
+}
@@ -0,0 +1,122 @@
+package kmdb.movies_api.services;
+
+import kmdb.movies_api.dto.BulkIngestResultDTO;
+import kmdb.movies_api.entities.Actor;
+import kmdb.movies_api.entities.Genre;
+import kmdb.movies_api.repositories.ActorRepository;
+import kmdb.movies_api.repositories.GenreRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class MovieIngestServiceTests {
+
+    @Autowired
+    private MovieIngestService movieIngestService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ActorRepository actorRepository;
+
+    @Autowired
+    private GenreRepository genreRepository;
+
+    // stands in for a constraint the validation does not know about
+    @BeforeEach
+    void rejectTitle() {
+        jdbcTemplate.execute("CREATE TRIGGER IF NOT EXISTS ingest_test_reject BEFORE INSERT ON movie " +
+                "WHEN NEW.title = 'Ingest Rejected' BEGIN SELECT RAISE(ABORT, 'rejected by test trigger'); END");
+    }
+
+    @AfterEach
+    void dropTrigger() {
+        jdbcTemplate.execute("DROP TRIGGER IF EXISTS ingest_test_reject");
+    }
+
+    @Test
+    void failedBatchReportsOnlyTheItemsItHeld() throws Exception {
+        String body = """
+                {"title": "Ingest Fine", "releaseYear": 2001, "duration": 100, "actors": [], "genres": []}
+                {"title": "Ingest Unknown Actor", "releaseYear": 2001, "duration": 100, "actors": [987654321], "genres": []}
+                {"title": "Ingest Rejected", "releaseYear": 2001, "duration": 100, "actors": [], "genres": []}
+                """;
+
+        BulkIngestResultDTO result = movieIngestService.ingest(
+                new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(3, result.received());
+        assertEquals(0, result.inserted());
+        assertEquals(3, result.failed());
+        assertEquals(List.of(0, 1, 2), result.errors().stream().map(BulkIngestResultDTO.ItemError::index).toList());
+        assertEquals("Actor with ID 987654321 not found", result.errors().get(1).message());
+        assertTrue(result.errors().get(0).message().startsWith("Not inserted, the batch failed"));
+        assertTrue(result.errors().get(2).message().startsWith("Not inserted, the batch failed"));
+    }
+
+    @Test
+    void chunkInsertsMoviesWithConsecutiveIdsAndTheirLinks() throws Exception {
+        long actorId = actorRepository.save(new Actor("Ingest Chunk Actor")).getId();
+        long otherActorId = actorRepository.save(new Actor("Ingest Chunk Other Actor")).getId();
+        Genre genre = new Genre();
+        genre.setName("Ingest Chunk Genre");
+        long genreId = genreRepository.save(genre).getId();
+        // the repeated actor is linked once
+        String body = """
+                [{"title": "Ingest Chunk One", "releaseYear": 2002, "duration": 100, "actors": [%1$d, %1$d], "genres": [%3$d]},
+                 {"title": "Ingest Chunk Two", "releaseYear": 2002, "duration": 110, "actors": [%1$d, %2$d], "genres": []},
+                 {"title": "Ingest Chunk Three", "releaseYear": 2002, "duration": 120, "actors": [], "genres": [%3$d]}]
+                """.formatted(actorId, otherActorId, genreId);
+
+        BulkIngestResultDTO result = movieIngestService.ingest(
+                new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(3, result.received());
+        assertEquals(3, result.inserted());
+        assertEquals(0, result.failed());
+        List<Long> ids = jdbcTemplate.queryForList("SELECT id FROM movie WHERE title LIKE 'Ingest Chunk %' " +
+                "ORDER BY id", Long.class);
+        assertEquals(List.of(ids.get(0), ids.get(0) + 1, ids.get(0) + 2), ids);
+        assertEquals("Ingest Chunk Two", jdbcTemplate.queryForObject("SELECT title FROM movie WHERE id = ?",
+                String.class, ids.get(1)));
+        assertEquals(List.of(actorId), links("actors", "actor_id", ids.get(0)));
+        assertEquals(List.of(actorId, otherActorId), links("actors", "actor_id", ids.get(1)));
+        assertEquals(List.of(), links("actors", "actor_id", ids.get(2)));
+        assertEquals(List.of(genreId), links("genres", "genre_id", ids.get(0)));
+        assertEquals(List.of(), links("genres", "genre_id", ids.get(1)));
+        assertEquals(List.of(genreId), links("genres", "genre_id", ids.get(2)));
+    }
+
+    @Test
+    void startupFailsWithoutTheSingleWriter() {
+        MockEnvironment env = new MockEnvironment().withProperty("kmdb.datasource.read-write-split", "false");
+        assertThrows(IllegalStateException.class, () -> new MovieIngestService(null, null, null, null, null, null,
+                null, null, env));
+
+        // unless the bulk upload is switched off
+        env.setProperty("kmdb.ingest.enabled", "false");
+        MovieIngestService disabled = new MovieIngestService(null, null, null, null, null, null, null, null, env);
+        assertThrows(IllegalStateException.class, () -> disabled.ingest(new ByteArrayInputStream(new byte[0])));
+    }
+
+    private List<Long> links(String table, String column, long movieId) {
+        return jdbcTemplate.queryForList("SELECT " + column + " FROM " + table + " WHERE movie_id = ? ORDER BY " +
+                column, Long.class, movieId);
+    }
+}
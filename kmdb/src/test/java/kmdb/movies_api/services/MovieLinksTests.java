@@ -0,0 +1,214 @@
+package kmdb.movies_api.services;
+
+import kmdb.movies_api.dto.MovieDTO;
+import kmdb.movies_api.dto.MovieLinksDTO;
+import kmdb.movies_api.dto.MovieLinksDiffDTO;
+import kmdb.movies_api.entities.Actor;
+import kmdb.movies_api.entities.Genre;
+import kmdb.movies_api.entities.Movie;
+import kmdb.movies_api.exceptions.ResourceNotFoundException;
+import kmdb.movies_api.repositories.ActorRepository;
+import kmdb.movies_api.repositories.GenreRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class MovieLinksTests {
+
+    @Autowired
+    private MovieService movieService;
+
+    @Autowired
+    private ActorService actorService;
+
+    @Autowired
+    private GenreService genreService;
+
+    @Autowired
+    private ActorRepository actorRepository;
+
+    @Autowired
+    private GenreRepository genreRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void batchUpdateAnswersWithWhatChanged() {
+        long kept = actor("Links Kept Actor");
+        long dropped = actor("Links Dropped Actor");
+        long added = actor("Links Added Actor");
+        long absent = actor("Links Absent Actor");
+        long genre = genre("Links Genre");
+        long addedGenre = genre("Links Added Genre");
+        long movieId = addMovie("Links Batch", List.of(kept, dropped), genre);
+        // loaded once so the movie and its cast are in the second-level cache
+        assertEquals(Set.of(kept, dropped), actorIds(movieId));
+        long versionBefore = version(movieId);
+
+        MovieLinksDiffDTO diff = movieService.updateLinks(movieId, new MovieLinksDTO(
+                Set.of(kept, added), Set.of(dropped, absent), Set.of(genre, addedGenre), Set.of()));
+
+        // kept was linked already and absent was not linked, so neither is reported
+        assertEquals(List.of(added), diff.actorsAdded());
+        assertEquals(List.of(dropped), diff.actorsRemoved());
+        assertEquals(List.of(addedGenre), diff.genresAdded());
+        assertEquals(List.of(), diff.genresRemoved());
+        long version = version(movieId);
+        assertEquals(versionBefore + 1, version);
+        assertEquals("\"" + version + "." + starRating(movieId) + "\"", diff.etag());
+        assertEquals(Set.of(kept, added), actorIds(movieId));
+        assertEquals(Set.of(genre, addedGenre), genreIds(movieId));
+    }
+
+    @Test
+    void unchangedLinksKeepTheVersion() {
+        long actor = actor("Links Unchanged Actor");
+        long genre = genre("Links Unchanged Genre");
+        long otherGenre = genre("Links Unchanged Other Genre");
+        long movieId = addMovie("Links Unchanged", List.of(actor), genre);
+        long versionBefore = version(movieId);
+
+        MovieLinksDiffDTO diff = movieService.updateLinks(movieId,
+                new MovieLinksDTO(Set.of(actor), Set.of(), Set.of(), Set.of(otherGenre)));
+
+        assertEquals(List.of(), diff.actorsAdded());
+        assertEquals(List.of(), diff.genresRemoved());
+        assertEquals(versionBefore, version(movieId));
+    }
+
+    @Test
+    void rejectsIdsBothAddedAndRemoved() {
+        long actor = actor("Links Both Actor");
+        long genre = genre("Links Both Genre");
+        long movieId = addMovie("Links Both", List.of(), genre);
+        long versionBefore = version(movieId);
+
+        assertThrows(IllegalArgumentException.class, () -> movieService.updateLinks(movieId,
+                new MovieLinksDTO(Set.of(actor), Set.of(actor), Set.of(), Set.of())));
+        assertEquals(versionBefore, version(movieId));
+        assertEquals(Set.of(), actorIds(movieId));
+    }
+
+    @Test
+    void rejectsUnknownIds() {
+        long actor = actor("Links Unknown Actor");
+        long genre = genre("Links Unknown Genre");
+        long movieId = addMovie("Links Unknown", List.of(), genre);
+        long versionBefore = version(movieId);
+
+        assertThrows(ResourceNotFoundException.class, () -> movieService.updateLinks(movieId,
+                new MovieLinksDTO(Set.of(actor, Long.MAX_VALUE), Set.of(), Set.of(), Set.of())));
+        assertThrows(ResourceNotFoundException.class, () -> movieService.updateLinks(Long.MAX_VALUE,
+                new MovieLinksDTO(Set.of(actor), Set.of(), Set.of(), Set.of())));
+        // nothing of the rejected batch is written
+        assertEquals(versionBefore, version(movieId));
+        assertEquals(Set.of(), actorIds(movieId));
+    }
+
+    @Test
+    void forceDeletedActorLeavesOnlyItsMovies() {
+        long deleted = actor("Links Force Deleted Actor");
+        long other = actor("Links Force Other Actor");
+        long genre = genre("Links Force Actor Genre");
+        long linked = addMovie("Links Force Linked", List.of(deleted, other), genre);
+        long unlinked = addMovie("Links Force Unlinked", List.of(other), genre);
+        // both cached with their casts
+        assertEquals(Set.of(deleted, other), actorIds(linked));
+        assertEquals(Set.of(other), actorIds(unlinked));
+        long linkedVersion = version(linked);
+        long unlinkedVersion = version(unlinked);
+
+        actorService.deleteActor(deleted, true);
+
+        assertEquals(Set.of(other), actorIds(linked));
+        assertEquals(linkedVersion + 1, version(linked));
+        // the movie without the actor keeps its version and its cache entry
+        assertEquals(unlinkedVersion, version(unlinked));
+        assertTrue(entityManagerFactory.getCache().contains(Movie.class, unlinked));
+    }
+
+    @Test
+    void forceDeletedGenreLeavesOnlyItsMovies() {
+        long actor = actor("Links Force Genre Actor");
+        long deleted = genre("Links Force Deleted Genre");
+        long other = genre("Links Force Other Genre");
+        long linked = addMovie("Links Force Genre Linked", List.of(actor), deleted);
+        long unlinked = addMovie("Links Force Genre Unlinked", List.of(actor), other);
+        assertEquals(Set.of(deleted), genreIds(linked));
+        assertEquals(Set.of(other), genreIds(unlinked));
+        long linkedVersion = version(linked);
+        long unlinkedVersion = version(unlinked);
+
+        genreService.deleteGenre(deleted, true);
+
+        assertEquals(Set.of(), genreIds(linked));
+        assertEquals(linkedVersion + 1, version(linked));
+        assertEquals(unlinkedVersion, version(unlinked));
+        assertTrue(entityManagerFactory.getCache().contains(Movie.class, unlinked));
+    }
+
+    private long actor(String name) {
+        return actorRepository.save(new Actor(name)).getId();
+    }
+
+    private long genre(String name) {
+        Genre genre = new Genre();
+        genre.setName(name);
+        return genreRepository.save(genre).getId();
+    }
+
+    private long addMovie(String title, List<Long> actors, long genre) {
+        MovieDTO movie = new MovieDTO();
+        movie.setTitle(title);
+        movie.setReleaseYear(1903);
+        movie.setDuration(100);
+        movie.setActors(actors);
+        movie.setGenres(List.of(genre));
+        return movieService.addMovie(movie).getId();
+    }
+
+    // through getMovieById, so a stale cached collection would show here
+    private Set<Long> actorIds(long movieId) {
+        return new TransactionTemplate(transactionManager).execute(status -> movie(movieId).getActors().stream()
+                .map(Actor::getId).collect(Collectors.toSet()));
+    }
+
+    private Set<Long> genreIds(long movieId) {
+        return new TransactionTemplate(transactionManager).execute(status -> movie(movieId).getGenres().stream()
+                .map(Genre::getId).collect(Collectors.toSet()));
+    }
+
+    private Movie movie(long movieId) {
+        return movieService.getMovieById(movieId).orElseThrow();
+    }
+
+    private long version(long movieId) {
+        return jdbcTemplate.queryForObject("SELECT version FROM movie WHERE id = ?", Long.class, movieId);
+    }
+
+    private int starRating(long movieId) {
+        return jdbcTemplate.queryForObject("SELECT star_rating FROM movie WHERE id = ?", Integer.class, movieId);
+    }
+}
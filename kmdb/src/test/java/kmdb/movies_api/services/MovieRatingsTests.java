@@ -0,0 +1,162 @@
+package kmdb.movies_api.services;
+
+import kmdb.movies_api.dto.MovieDTO;
+import kmdb.movies_api.entities.Actor;
+import kmdb.movies_api.entities.Genre;
+import kmdb.movies_api.entities.Movie;
+import kmdb.movies_api.repositories.ActorRepository;
+import kmdb.movies_api.repositories.GenreRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class MovieRatingsTests {
+
+    @Autowired
+    private MovieService movieService;
+
+    @Autowired
+    private MovieRatings movieRatings;
+
+    @Autowired
+    private ActorRepository actorRepository;
+
+    @Autowired
+    private GenreRepository genreRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void flushStoresVotesWithoutANewVersion() {
+        long movieId = addMovie("Ratings Flushed");
+        long versionBefore = version(movieId);
+        movieService.rateMovie(movieId, 5);
+        movieService.rateMovie(movieId, 4);
+
+        movieRatings.flush();
+
+        // stored now and no longer pending, so counted once
+        assertEquals(2, movieService.getRating(movieId).votes());
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT votes FROM movie_rating WHERE movie_id = ?", Long.class, movieId));
+        assertEquals(0, movieRatings.pendingMovies());
+        assertEquals(versionBefore, version(movieId));
+        assertEquals(5, jdbcTemplate.queryForObject("SELECT star_rating FROM movie WHERE id = ?", Integer.class, movieId));
+    }
+
+    @Test
+    void readsDuringFlushesCountEachVoteOnce() throws InterruptedException {
+        long movieId = addMovie("Ratings Concurrent");
+        // votes started and finished, a read has to fall between the two
+        AtomicLong started = new AtomicLong();
+        AtomicLong cast = new AtomicLong();
+        AtomicBoolean voting = new AtomicBoolean(true);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(3);
+        Thread voter = Thread.ofPlatform().start(() -> {
+            while (System.nanoTime() < deadline) {
+                started.incrementAndGet();
+                movieRatings.vote(movieId, 3);
+                cast.incrementAndGet();
+            }
+            voting.set(false);
+        });
+        Thread flusher = Thread.ofPlatform().start(() -> {
+            while (voting.get()) {
+                movieRatings.flush();
+            }
+        });
+
+        while (voting.get()) {
+            long castBefore = cast.get();
+            long votes = movieService.getRating(movieId).votes();
+            long startedAfter = started.get();
+            assertTrue(votes >= castBefore && votes <= startedAfter,
+                    votes + " votes read while " + castBefore + " to " + startedAfter + " were cast");
+        }
+        voter.join();
+        flusher.join();
+        movieRatings.flush();
+        assertEquals(cast.get(), movieService.getRating(movieId).votes());
+        assertEquals(0, movieRatings.pendingMovies());
+    }
+
+    @Test
+    void flushedStarRatingReachesCachedListings() {
+        long movieId = addMovie("Ratings Cached Listing");
+        // puts the year's listing in the query cache before the rating changes
+        listedRating(movieId);
+        movieService.rateMovie(movieId, 5);
+
+        movieRatings.flush();
+
+        assertEquals(Movie.starRatingRepresentation(5), listedRating(movieId));
+    }
+
+    @Test
+    void votesDoNotWaitForTheWriter() throws InterruptedException {
+        long movieId = addMovie("Ratings Writer Busy");
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        // holds the only writer connection, as a long import or flush would
+        Thread writer = Thread.ofPlatform().start(() -> new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            jdbcTemplate.update("UPDATE movie SET duration = duration WHERE id = ?", movieId);
+            writing.countDown();
+            try {
+                done.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        writing.await();
+        try {
+            Movie rated = assertTimeoutPreemptively(Duration.ofSeconds(5), () -> movieService.rateMovie(movieId, 4));
+            // answered with the vote counted, before any flush
+            assertEquals(Movie.starRatingRepresentation(4), rated.getStarRatingRepresentation());
+            assertEquals(1, movieService.getRating(movieId).votes());
+        } finally {
+            done.countDown();
+            writer.join();
+        }
+    }
+
+    private long addMovie(String title) {
+        Genre genre = new Genre();
+        genre.setName(title + " Genre");
+        MovieDTO movie = new MovieDTO();
+        movie.setTitle(title);
+        movie.setReleaseYear(1901);
+        movie.setDuration(100);
+        movie.setActors(List.of(actorRepository.save(new Actor(title + " Actor")).getId()));
+        movie.setGenres(List.of(genreRepository.save(genre).getId()));
+        return movieService.addMovie(movie).getId();
+    }
+
+    private String listedRating(long movieId) {
+        return movieService.getMoviesByReleaseYear(1901).stream()
+                .filter(movie -> movie.id() == movieId).findFirst().orElseThrow().rating();
+    }
+
+    private long version(long movieId) {
+        return jdbcTemplate.queryForObject("SELECT version FROM movie WHERE id = ?", Long.class, movieId);
+    }
+}
@@ -0,0 +1,134 @@
+package kmdb.movies_api.services;
+
+import jakarta.persistence.EntityManagerFactory;
+import kmdb.movies_api.dto.MovieSummaryDTO;
+import kmdb.movies_api.entities.Actor;
+import kmdb.movies_api.entities.Genre;
+import kmdb.movies_api.entities.Movie;
+import kmdb.movies_api.repositories.ActorRepository;
+import kmdb.movies_api.repositories.GenreRepository;
+import kmdb.movies_api.repositories.MovieRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("test")
+class MovieServiceQueryCountTests {
+
+    private static final int MOVIES = 60;
+
+    @Autowired
+    private MovieService movieService;
+
+    @Autowired
+    private GenreService genreService;
+
+    @Autowired
+    private MovieRepository movieRepository;
+
+    @Autowired
+    private ActorRepository actorRepository;
+
+    @Autowired
+    private GenreRepository genreRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void seedCatalogue() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        // the named fixtures, not the row count, tell whether this class has seeded already: other
+        // tests share the database and add movies of their own
+        if (actorRepository.findByName("Query Count Actor A").isPresent()) {
+            return;
+        }
+        List<Actor> actors = actorRepository.saveAll(List.of(
+                new Actor("Query Count Actor A"), new Actor("Query Count Actor B"), new Actor("Query Count Actor C")));
+        Genre drama = new Genre();
+        drama.setName("Query Count Drama");
+        Genre comedy = new Genre();
+        comedy.setName("Query Count Comedy");
+        List<Genre> genres = genreRepository.saveAll(List.of(drama, comedy));
+
+        for (int i = 0; i < MOVIES; i++) {
+            Movie movie = new Movie();
+            movie.setTitle("Query Count Movie " + i);
+            movie.setReleaseYear(1990 + i % 30);
+            movie.setDuration(90 + i);
+            movie.setActors(Set.of(actors.get(i % 3), actors.get((i + 1) % 3)));
+            movie.setGenres(Set.of(genres.get(i % 2)));
+            movieRepository.save(movie);
+        }
+    }
+
+    @Test
+    void movieListingRunsSameNumberOfStatementsForAnyPageSize() {
+        long smallPage = statementsFor(() -> movieService.getAllMovies(PageRequest.of(0, 5)));
+        long largePage = statementsFor(() -> movieService.getAllMovies(PageRequest.of(0, 50)));
+
+        // page select, count, one select for actor names and one for genre names
+        assertEquals(4, smallPage);
+        assertEquals(smallPage, largePage);
+    }
+
+    @Test
+    void genreListingDoesNotLoadMovies() {
+        assertEquals(1, statementsFor(() -> genreService.getAllGenres()));
+    }
+
+    @Test
+    void movieListingReadsProjectionsWithoutLoadingEntities() {
+        Long actorA = actorRepository.findByName("Query Count Actor A").orElseThrow().getId();
+
+        statistics.clear();
+        assertEquals(10, movieService.getAllMovies(PageRequest.of(0, 10)).getContent().size());
+        // other tests add movies without actors, so the names are checked on this class's movies only
+        List<MovieSummaryDTO> movies = movieService.getMoviesByActor(actorA);
+
+        // movie i has actors i % 3 and (i + 1) % 3, so actor A is in two of every three
+        assertEquals(MOVIES - MOVIES / 3, movies.size());
+        assertTrue(movies.stream().allMatch(movie -> !movie.actors().isEmpty() && !movie.genres().isEmpty()));
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void combinedFilterIsOneSelectPlusCount() {
+        Long actorA = actorRepository.findByName("Query Count Actor A").orElseThrow().getId();
+        Long actorB = actorRepository.findByName("Query Count Actor B").orElseThrow().getId();
+        Long drama = genreRepository.findByName("Query Count Drama").orElseThrow().getId();
+
+        statistics.clear();
+        Page<MovieSummaryDTO> page = movieService.filterMovies(1990, 1999, 90, null, null,
+                List.of(actorA, actorB), List.of(drama), PageRequest.of(0, 3));
+
+        // movies 0, 6, 30 and 36 have both actors, the genre and a year in the nineties
+        assertEquals(4, page.getTotalElements());
+        assertEquals(List.of("Query Count Movie 0", "Query Count Movie 6", "Query Count Movie 30"),
+                page.getContent().stream().map(MovieSummaryDTO::title).toList());
+        // page select, count, actor names and genre names
+        assertEquals(4, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    private long statementsFor(Runnable call) {
+        statistics.clear();
+        call.run();
+        return statistics.getPrepareStatementCount();
+    }
+}
@@ -0,0 +1,162 @@
+package kmdb.movies_api.services;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import kmdb.movies_api.dto.MovieDTO;
+import kmdb.movies_api.entities.Actor;
+import kmdb.movies_api.entities.Genre;
+import kmdb.movies_api.entities.Movie;
+import kmdb.movies_api.repositories.ActorRepository;
+import kmdb.movies_api.repositories.GenreRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class SecondLevelCacheTests {
+
+    @Autowired
+    private MovieService movieService;
+
+    @Autowired
+    private GenreService genreService;
+
+    @Autowired
+    private ActorRepository actorRepository;
+
+    @Autowired
+    private GenreRepository genreRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void statistics() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void movieAndItsLinksAreReadWithoutStatements() {
+        long actor = actor("Cache Cast Actor");
+        long genre = genre("Cache Cast Genre");
+        long movieId = addMovie("Cache Cast Movie", List.of(actor), List.of(genre));
+        assertEquals(Set.of(actor), actorIds(movieId));
+
+        statistics.clear();
+        assertEquals(Set.of(actor), actorIds(movieId));
+        assertEquals(Set.of(genre), inTransaction(() -> movieService.getMovieById(movieId).orElseThrow().getGenres()
+                .stream().map(Genre::getId).collect(Collectors.toSet())));
+
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertTrue(statistics.getSecondLevelCacheHitCount() > 0);
+    }
+
+    @Test
+    void genreListIsServedFromTheQueryCacheUntilAGenreIsAdded() {
+        genreService.getAllGenres();
+
+        statistics.clear();
+        genreService.getAllGenres();
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertEquals(1, statistics.getQueryCacheHitCount());
+
+        Genre added = new Genre();
+        added.setName("Cache Added Genre");
+        genreService.addGenre(added);
+        statistics.clear();
+        List<Genre> genres = genreService.getAllGenres();
+
+        // the insert moved the genre table's timestamp past the cached result
+        assertEquals(1, statistics.getQueryCacheMissCount());
+        assertTrue(genres.stream().anyMatch(genre -> genre.getName().equals("Cache Added Genre")));
+    }
+
+    @Test
+    void assignedActorShowsOnBothCachedSides() {
+        long first = actor("Cache First Actor");
+        long second = actor("Cache Second Actor");
+        long movieId = addMovie("Cache Assigned Movie", List.of(first), List.of());
+        // both collections cached before the change
+        assertEquals(Set.of(first), actorIds(movieId));
+        assertEquals(Set.of(), movieIds(second));
+
+        movieService.assignActorToMovie(movieId, second);
+
+        assertEquals(Set.of(first, second), actorIds(movieId));
+        // Actor.movies is the inverse side, evicted by auto_evict_collection_cache
+        assertEquals(Set.of(movieId), movieIds(second));
+    }
+
+    @Test
+    void regionHitsAreCountedInTheCacheMetrics() {
+        long genre = genre("Cache Metrics Genre");
+        genreService.getGenreById(genre);
+        double hits = genreHits();
+
+        genreService.getGenreById(genre);
+
+        assertTrue(genreHits() > hits);
+    }
+
+    private double genreHits() {
+        return registry.get("cache.gets").tags("cache", "genre", "result", "hit").functionCounter().count();
+    }
+
+    private Set<Long> actorIds(long movieId) {
+        return inTransaction(() -> movieService.getMovieById(movieId).orElseThrow().getActors().stream()
+                .map(Actor::getId).collect(Collectors.toSet()));
+    }
+
+    private Set<Long> movieIds(long actorId) {
+        return inTransaction(() -> actorRepository.findById(actorId).orElseThrow().getMovies().stream()
+                .map(Movie::getId).collect(Collectors.toSet()));
+    }
+
+    // lazy collections are read inside the transaction that loaded their owner
+    private <T> T inTransaction(Supplier<T> read) {
+        return new TransactionTemplate(transactionManager).execute(status -> read.get());
+    }
+
+    private long actor(String name) {
+        return actorRepository.save(new Actor(name)).getId();
+    }
+
+    private long genre(String name) {
+        Genre genre = new Genre();
+        genre.setName(name);
+        return genreRepository.save(genre).getId();
+    }
+
+    private long addMovie(String title, List<Long> actors, List<Long> genres) {
+        MovieDTO movie = new MovieDTO();
+        movie.setTitle(title);
+        movie.setReleaseYear(1906);
+        movie.setDuration(100);
+        movie.setActors(actors);
+        movie.setGenres(genres);
+        return movieService.addMovie(movie).getId();
+    }
+}